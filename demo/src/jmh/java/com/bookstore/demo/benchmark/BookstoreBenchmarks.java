@@ -0,0 +1,281 @@
+package com.bookstore.demo.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.bookstore.demo.analytics.SalesAnalytics;
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.controller.BookController;
+import com.bookstore.demo.controller.CartController;
+import com.bookstore.demo.controller.OrderController;
+import com.bookstore.demo.controller.ReviewController;
+import com.bookstore.demo.dto.CartItemRequest;
+import com.bookstore.demo.dto.CartLine;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.search.BookFacetIndex;
+import com.bookstore.demo.search.BookSuggestIndex;
+
+/**
+ * Controller entry points called in-process, so each measurement covers the controller, the
+ * services and repositories behind it and the database, but not HTTP or JSON. Run all of them
+ * with {@code ./mvnw -Pjmh -DskipTests verify}, or pick some and resize the dataset with
+ * {@code -Djmh.args="BookstoreBenchmarks.search -p books=100000"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BookstoreBenchmarks {
+
+	// Cart lines come from a small slice of the catalog so carts stay a realistic size
+	private static final int CART_BOOKS = 20;
+
+	// Some of the generated categories, and the price bounds of the first three buckets
+	private static final String[] FACET_CATEGORIES = { "Fiction", "Fantasy", "Thriller", "History", "Science" };
+	private static final double[] FACET_PRICE_BOUNDS = { 0, 10, 20, 30 };
+
+	// What a search box sends while a generated title or author is typed
+	private static final String[] TYPED_PREFIXES = { "s", "si", "sil", "silent r", "dr", "gar", "author 1", "author 12",
+		"clock", "of the n", "w", "winter k", "ki", "the d" };
+
+	@State(Scope.Thread)
+	public static class Shopper {
+		BookController books;
+		CartController carts;
+		ReviewController reviews;
+		OrderController orders;
+		long userId;
+		List<Long> itemIds;
+
+		@Setup(Level.Trial)
+		public void setUp(BookstoreState state) {
+			books = state.bean(BookController.class);
+			carts = state.bean(CartController.class);
+			reviews = state.bean(ReviewController.class);
+			orders = state.bean(OrderController.class);
+			userId = state.claimUser();
+			itemIds = new ArrayList<>();
+			for (int i = 0; i < CART_BOOKS; i++) {
+				ResponseEntity<CartLine> added = carts.addToCart(userId, new CartItemRequest(state.bookIds[i], 1));
+				itemIds.add(added.getBody().getId());
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class CheckoutCart {
+		OrderController orders;
+		CartStore cartStore;
+		BookRepository bookRepository;
+		long userId;
+		OrderController.CheckoutRequest request;
+
+		@Setup(Level.Trial)
+		public void setUp(BookstoreState state) {
+			orders = state.bean(OrderController.class);
+			cartStore = state.bean(CartStore.class);
+			bookRepository = state.bean(BookRepository.class);
+			userId = state.claimUser();
+			request = new OrderController.CheckoutRequest();
+			request.setShippingAddress("1 Benchmark Way");
+			request.setMetadata(Map.of("paymentMethod", "cod"));
+		}
+
+		// Checkout empties the cart, so every call gets a fresh one
+		@Setup(Level.Invocation)
+		public void fill(BookstoreState state) {
+			for (int i = 0; i < 3; i++) {
+				cartStore.add(userId, bookRepository.findById(state.randomBook()).get(), 1);
+			}
+		}
+	}
+
+	// A client retrying a checkout that already went through, with the same Idempotency-Key
+	@State(Scope.Thread)
+	public static class RetriedCheckout {
+		OrderController orders;
+		long userId;
+		String idempotencyKey;
+		OrderController.CheckoutRequest request;
+
+		@Setup(Level.Trial)
+		public void setUp(BookstoreState state) {
+			orders = state.bean(OrderController.class);
+			CartStore cartStore = state.bean(CartStore.class);
+			BookRepository bookRepository = state.bean(BookRepository.class);
+			userId = state.claimUser();
+			for (int i = 0; i < 3; i++) {
+				cartStore.add(userId, bookRepository.findById(state.randomBook()).get(), 1);
+			}
+			idempotencyKey = UUID.randomUUID().toString();
+			request = new OrderController.CheckoutRequest();
+			request.setShippingAddress("1 Benchmark Way");
+			request.setMetadata(Map.of("paymentMethod", "cod"));
+			if (!orders.checkout(userId, idempotencyKey, request).getStatusCode().is2xxSuccessful()) {
+				throw new IllegalStateException("Checkout failed");
+			}
+		}
+	}
+
+	@Benchmark
+	public List<Book> search(BookstoreState state, Shopper shopper) {
+		String query = BookstoreState.QUERIES[ThreadLocalRandom.current().nextInt(BookstoreState.QUERIES.length)];
+		return shopper.books.searchBooks(query, 20);
+	}
+
+	@Benchmark
+	public List<BookSuggestIndex.Suggestion> suggest(Shopper shopper) {
+		return shopper.books.suggestBooks(TYPED_PREFIXES[ThreadLocalRandom.current().nextInt(TYPED_PREFIXES.length)], 8);
+	}
+
+	@Benchmark
+	public ResponseEntity<Book> getBook(BookstoreState state, Shopper shopper) {
+		return shopper.books.getBook(state.randomBook());
+	}
+
+	@Benchmark
+	public ResponseEntity<CartLine> addToCart(BookstoreState state, Shopper shopper) {
+		long bookId = state.bookIds[ThreadLocalRandom.current().nextInt(CART_BOOKS)];
+		return shopper.carts.addToCart(shopper.userId, new CartItemRequest(bookId, 1));
+	}
+
+	@Benchmark
+	public ResponseEntity<CartLine> updateCartItem(Shopper shopper) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Long itemId = shopper.itemIds.get(random.nextInt(shopper.itemIds.size()));
+		return shopper.carts.updateCartItem(shopper.userId, itemId, new CartItemRequest(null, 1 + random.nextInt(5)));
+	}
+
+	@Benchmark
+	public ResponseEntity<?> checkout(CheckoutCart cart) {
+		ResponseEntity<?> response = cart.orders.checkout(cart.userId, null, cart.request);
+		if (!response.getStatusCode().is2xxSuccessful()) {
+			throw new IllegalStateException("Checkout failed: " + response.getBody());
+		}
+		return response;
+	}
+
+	@Benchmark
+	public ResponseEntity<?> checkoutRetry(RetriedCheckout retry) {
+		return retry.orders.checkout(retry.userId, retry.idempotencyKey, retry.request);
+	}
+
+	@Benchmark
+	public byte[] cartJson(BookstoreState state, Shopper shopper) {
+		return state.render(() -> shopper.carts.getCartItems(shopper.userId).getBody());
+	}
+
+	@Benchmark
+	public byte[] reviewsByBookJson(BookstoreState state, Shopper shopper) {
+		return state.render(() -> shopper.reviews.getReviewsByBook(state.reviewedBook()).getBody());
+	}
+
+	// The same reviews as NDJSON, written in keyset batches
+	@Benchmark
+	public int reviewsByBookStream(BookstoreState state, Shopper shopper) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		shopper.reviews.streamReviewsByBook(state.reviewedBook()).getBody().writeTo(out);
+		return out.size();
+	}
+
+	@Benchmark
+	public byte[] reviewsByUserJson(BookstoreState state, Shopper shopper) {
+		return state.render(() -> shopper.reviews.getReviewsByUser(state.randomUser()).getBody());
+	}
+
+	@Benchmark
+	public ResponseEntity<ReviewController.ReviewStats> reviewStats(BookstoreState state, Shopper shopper) {
+		return shopper.reviews.getReviewStats(state.randomBook());
+	}
+
+	@Benchmark
+	public ResponseEntity<Map<Long, ReviewController.ReviewStats>> reviewStatsBatch(BookstoreState state, Shopper shopper) {
+		List<Long> bookIds = new ArrayList<>(50);
+		for (int i = 0; i < 50; i++) {
+			bookIds.add(state.randomBook());
+		}
+		return shopper.reviews.getReviewStatsBatch(bookIds);
+	}
+
+	@Benchmark
+	public ResponseEntity<OrderController.OrderHistoryPage> orderHistory(BookstoreState state, Shopper shopper) {
+		return shopper.orders.getUserOrders(state.randomUser(), 20, null);
+	}
+
+	@Benchmark
+	public List<Book> recommendations(BookstoreState state, Shopper shopper) {
+		return shopper.books.getRecommendations(state.randomUser(), 8);
+	}
+
+	@Benchmark
+	public ResponseEntity<BookController.FacetedBookPage> facets(Shopper shopper) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+		params.add("category", FACET_CATEGORIES[random.nextInt(FACET_CATEGORIES.length)]);
+		params.add("price", BookFacetIndex.priceBuckets().get(random.nextInt(3)));
+		return shopper.books.browseBooks(params);
+	}
+
+	// The same page and counts as facets, with a GROUP BY per facet, for comparison
+	@Benchmark
+	public int facetsGroupBy(BookstoreState state) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		JdbcTemplate jdbcTemplate = state.bean(JdbcTemplate.class);
+		String category = FACET_CATEGORIES[random.nextInt(FACET_CATEGORIES.length)];
+		int bucket = random.nextInt(3);
+		double low = FACET_PRICE_BOUNDS[bucket];
+		double high = FACET_PRICE_BOUNDS[bucket + 1];
+		int rows = jdbcTemplate.queryForList("SELECT id FROM books WHERE LOWER(category) = LOWER(?) AND price >= ? AND price < ? "
+			+ "ORDER BY id FETCH FIRST 20 ROWS ONLY", Long.class, category, low, high).size();
+		rows += jdbcTemplate.queryForList("SELECT category, COUNT(*) FROM books WHERE price >= ? AND price < ? GROUP BY category",
+			low, high).size();
+		rows += jdbcTemplate.queryForList("SELECT author, COUNT(*) FROM books WHERE LOWER(category) = LOWER(?) AND price >= ? AND price < ? "
+			+ "GROUP BY author ORDER BY COUNT(*) DESC FETCH FIRST 20 ROWS ONLY", category, low, high).size();
+		rows += jdbcTemplate.queryForList("SELECT CASE WHEN price < 10 THEN 0 WHEN price < 20 THEN 1 WHEN price < 30 THEN 2 "
+			+ "WHEN price < 50 THEN 3 WHEN price < 100 THEN 4 ELSE 5 END AS bucket, COUNT(*) FROM books "
+			+ "WHERE LOWER(category) = LOWER(?) GROUP BY bucket", category).size();
+		return rows;
+	}
+
+	// Sales since a random day of the two seeded years
+	@Benchmark
+	public List<SalesAnalytics.BookSales> topSellers(BookstoreState state) {
+		return state.bean(SalesAnalytics.class).topSellers(salesSince(), null, 10);
+	}
+
+	@Benchmark
+	public List<SalesAnalytics.CategorySales> revenueByCategory(BookstoreState state) {
+		return state.bean(SalesAnalytics.class).revenueByCategory(salesSince(), null);
+	}
+
+	// The same top sellers with a GROUP BY over order_items, as ops ran it before the snapshot
+	@Benchmark
+	public int topSellersGroupBy(BookstoreState state) {
+		return state.bean(JdbcTemplate.class).queryForList("SELECT i.book_id, SUM(i.quantity) AS units, SUM(i.quantity * i.unit_price) "
+			+ "FROM order_items i JOIN orders o ON o.id = i.order_id WHERE o.status <> 'CANCELLED' AND o.created_at >= ? "
+			+ "GROUP BY i.book_id ORDER BY units DESC, i.book_id FETCH FIRST 10 ROWS ONLY", salesSince().atStartOfDay()).size();
+	}
+
+	private static LocalDate salesSince() {
+		return LocalDate.now().minusDays(ThreadLocalRandom.current().nextInt(730));
+	}
+}
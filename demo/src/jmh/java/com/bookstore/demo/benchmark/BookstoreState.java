@@ -0,0 +1,113 @@
+package com.bookstore.demo.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.demo.BookstoreApplication;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The application, without its web server, over a dataset from {@code SyntheticDataGenerator}
+ * sized with JMH parameters, e.g. {@code -p books=100000 -p users=10000}. Popularity is Zipf
+ * skewed and the generator is seeded, so runs with the same parameters see the same data.
+ */
+@State(Scope.Benchmark)
+public class BookstoreState {
+
+	static final String[] QUERIES = { "dragon", "silent river", "garden of", "winter king", "lost", "clockmaker" };
+
+	@Param("10000")
+	public int books;
+
+	@Param("1000")
+	public int users;
+
+	@Param("5000")
+	public int reviews;
+
+	@Param("2000")
+	public int orders;
+
+	ConfigurableApplicationContext context;
+	long[] bookIds;
+	long[] userIds;
+	long[] reviewedBookIds;
+	ObjectMapper objectMapper;
+	TransactionTemplate transactionTemplate;
+	final AtomicInteger nextUser = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void start() {
+		context = new SpringApplicationBuilder(BookstoreApplication.class)
+			.web(WebApplicationType.NONE)
+			// Arguments, unlike default properties, override application.properties
+			.run("--spring.jpa.show-sql=false", "--spring.main.banner-mode=off", "--logging.level.root=WARN",
+				"--bookstore.seed.books=" + books, "--bookstore.seed.users=" + users,
+				"--bookstore.seed.reviews=" + reviews, "--bookstore.seed.orders=" + orders);
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		// Books without stock levels never run out, however long checkout runs
+		bookIds = jdbcTemplate.queryForList(
+			"SELECT id FROM books WHERE id NOT IN (SELECT book_id FROM inventory_buckets) ORDER BY id", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+		reviewedBookIds = jdbcTemplate.queryForList(
+			"SELECT book_id FROM reviews GROUP BY book_id ORDER BY COUNT(*) DESC, book_id LIMIT 100", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+		userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE email LIKE '%@seed.bookstore.test' ORDER BY id", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+		objectMapper = context.getBean(ObjectMapper.class);
+		transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+
+	<T> T bean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	long randomBook() {
+		return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+	}
+
+	// One of the hundred most reviewed books, which have from a handful to hundreds of reviews
+	long reviewedBook() {
+		return reviewedBookIds[ThreadLocalRandom.current().nextInt(reviewedBookIds.length)];
+	}
+
+	long randomUser() {
+		return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+	}
+
+	// A response body as JSON, rendered in a transaction as open-in-view would render it
+	byte[] render(Supplier<?> body) {
+		return transactionTemplate.execute(status -> {
+			try {
+				return objectMapper.writeValueAsBytes(body.get());
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	// Each benchmark thread shops as its own users, so threads do not contend on one cart
+	long claimUser() {
+		return userIds[nextUser.getAndIncrement() % userIds.length];
+	}
+}
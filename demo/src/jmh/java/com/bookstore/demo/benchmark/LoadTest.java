@@ -0,0 +1,271 @@
+package com.bookstore.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.BookstoreApplication;
+import com.bookstore.demo.config.VirtualThreadPinningMonitor;
+import com.bookstore.demo.reactive.ReactiveCatalogServer;
+
+/**
+ * HTTP load test of the cart, checkout and catalog endpoints, once on Tomcat's platform thread pool and
+ * once on virtual threads, and of the catalog once more on the reactive server. Each mode starts its
+ * own server over the same seeded dataset and is driven by a closed loop of clients, each shopping
+ * as its own user, so throughput and latency percentiles compare like for like. Run through the jmh profile:
+ * <pre>
+ * mvn -Pjmh -DskipTests verify -Djmh.main=com.bookstore.demo.benchmark.LoadTest -Djmh.args="--clients=400 --seconds=30"
+ * </pre>
+ * Options: {@code --clients}, {@code --seconds} and {@code --warmup-seconds} per scenario,
+ * {@code --books}, {@code --users}, {@code --reviews}, {@code --modes=platform,virtual,reactive} and
+ * {@code --scenarios=cart,checkout,catalog}. Any other
+ * {@code --name=value} is passed to the application, e.g. {@code --bookstore.payment.latency-ms=50}.
+ */
+public class LoadTest {
+
+	private static final Pattern ORDER_ID = Pattern.compile("\"orderId\"\\s*:\\s*(\\d+)");
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>(Map.of(
+			"clients", "400", "seconds", "30", "warmup-seconds", "10",
+			"books", "10000", "users", "2000", "reviews", "20000",
+			"modes", "platform,virtual,reactive", "scenarios", "cart,checkout,catalog"));
+		List<String> appArgs = new ArrayList<>();
+		for (String arg : args) {
+			String[] option = arg.replaceFirst("^--", "").split("=", 2);
+			if (option.length == 2 && options.containsKey(option[0])) {
+				options.put(option[0], option[1]);
+			} else {
+				appArgs.add(arg);
+			}
+		}
+		int clients = Integer.parseInt(options.get("clients"));
+		List<String> scenarios = List.of(options.get("scenarios").split(","));
+		boolean shopping = scenarios.contains("cart") || scenarios.contains("checkout");
+		if (shopping && clients > Integer.parseInt(options.get("users"))) {
+			throw new IllegalArgumentException("Every client needs its own user: --users must be at least --clients");
+		}
+
+		Map<String, Result> results = new LinkedHashMap<>();
+		for (String mode : options.get("modes").split(",")) {
+			List<String> run = new ArrayList<>(List.of("--server.port=0", "--spring.jpa.show-sql=false",
+				"--spring.main.banner-mode=off", "--logging.level.root=WARN",
+				"--logging.level.com.bookstore.demo.config.VirtualThreadPinningMonitor=INFO",
+				"--spring.threads.virtual.enabled=" + mode.equals("virtual"), "--bookstore.reactive.port=0",
+				"--bookstore.seed.books=" + options.get("books"), "--bookstore.seed.users=" + options.get("users"),
+				"--bookstore.seed.reviews=" + options.get("reviews")));
+			run.addAll(appArgs);
+			try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BookstoreApplication.class)
+					.run(run.toArray(String[]::new))) {
+				LoadTest test = new LoadTest(context, clients, mode.equals("reactive"));
+				Duration warmup = Duration.ofSeconds(Long.parseLong(options.get("warmup-seconds")));
+				Duration measured = Duration.ofSeconds(Long.parseLong(options.get("seconds")));
+				for (String scenario : scenarios) {
+					// The reactive server only serves catalog reads
+					if (mode.equals("reactive") && !scenario.equals("catalog")) {
+						continue;
+					}
+					test.drive(scenario, warmup);
+					results.put(mode + " " + scenario, test.drive(scenario, measured));
+				}
+				VirtualThreadPinningMonitor monitor = context.getBeanProvider(VirtualThreadPinningMonitor.class).getIfAvailable();
+				if (monitor != null) {
+					System.out.printf("%s: %d pinned virtual threads%n", mode, monitor.getPinnedCount());
+				}
+			}
+		}
+
+		System.out.printf("%n%-18s %10s %9s %9s %9s %9s %8s%n", "mode scenario", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+		results.forEach((name, result) -> System.out.printf("%-18s %10.0f %9.2f %9.2f %9.2f %9.2f %8d%n", name,
+			result.throughput(), result.percentile(0.50), result.percentile(0.99), result.percentile(0.999),
+			result.percentile(1.0), result.errors));
+	}
+
+	private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+	private final String baseUrl;
+	private final String catalogUrl;
+	private final int clients;
+	private final long[] bookIds;
+	private final long[] userIds;
+	private final long[] reviewedBookIds;
+
+	LoadTest(ConfigurableApplicationContext context, int clients, boolean reactive) {
+		this.baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api";
+		this.catalogUrl = reactive
+			? "http://localhost:" + context.getBean(ReactiveCatalogServer.class).getPort() + "/api"
+			: baseUrl;
+		this.clients = clients;
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		// Books without stock levels never run out, however long checkout runs
+		bookIds = jdbcTemplate.queryForList(
+			"SELECT id FROM books WHERE id NOT IN (SELECT book_id FROM inventory_buckets) ORDER BY id", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+		userIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE email LIKE '%@seed.bookstore.test' ORDER BY id", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+		reviewedBookIds = jdbcTemplate.queryForList(
+			"SELECT book_id FROM reviews GROUP BY book_id ORDER BY COUNT(*) DESC, book_id LIMIT 100", Long.class)
+			.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Runs one client per user for the given time. Cart clients add a book and read the cart back,
+	 * both timed; checkout clients add a book, check out and cancel the order so its stock is
+	 * released, and only the checkout is timed. Catalog clients browse anonymously: a search, a
+	 * book, and the reviews and rating stats of one of the most reviewed books, all timed.
+	 */
+	Result drive(String scenario, Duration duration) throws InterruptedException {
+		long deadline = System.nanoTime() + duration.toNanos();
+		Recorder[] recorders = new Recorder[clients];
+		AtomicLong errors = new AtomicLong();
+		List<Thread> threads = new ArrayList<>(clients);
+		for (int c = 0; c < clients; c++) {
+			Recorder recorder = recorders[c] = new Recorder();
+			if (scenario.equals("catalog")) {
+				threads.add(Thread.ofVirtual().start(() -> browse(recorder, deadline, errors)));
+				continue;
+			}
+			long userId = userIds[c];
+			threads.add(Thread.ofVirtual().start(() -> {
+				try {
+					send(request("DELETE", "/cart/" + userId, null));
+					int added = 0;
+					while (System.nanoTime() < deadline) {
+						String addBody = "{\"bookId\":" + bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)] + ",\"quantity\":1}";
+						if (scenario.equals("cart")) {
+							if (!ok(recorder.timed(request("POST", "/cart/" + userId, addBody)))) {
+								errors.incrementAndGet();
+							}
+							if (!ok(recorder.timed(request("GET", "/cart/" + userId, null)))) {
+								errors.incrementAndGet();
+							}
+							// Carts are kept small, as a shopper's would be
+							if (++added % 10 == 0) {
+								send(request("DELETE", "/cart/" + userId, null));
+							}
+						} else {
+							send(request("POST", "/cart/" + userId, addBody));
+							HttpResponse<String> checkout = recorder.timed(request("POST", "/orders/" + userId + "/checkout",
+								"{\"shippingAddress\":\"1 Load Test Lane\",\"metadata\":{\"paymentMethod\":\"cod\"}}"));
+							Matcher orderId = ORDER_ID.matcher(checkout.body());
+							if (ok(checkout) && orderId.find()) {
+								send(request("POST", "/orders/" + orderId.group(1) + "/cancel", null));
+							} else {
+								errors.incrementAndGet();
+							}
+						}
+					}
+				} catch (Exception e) {
+					errors.incrementAndGet();
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return new Result(recorders, duration, errors.get());
+	}
+
+	private void browse(Recorder recorder, long deadline, AtomicLong errors) {
+		try {
+			while (System.nanoTime() < deadline) {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				String query = BookstoreState.QUERIES[random.nextInt(BookstoreState.QUERIES.length)].replace(' ', '+');
+				long bookId = bookIds[random.nextInt(bookIds.length)];
+				long reviewedBookId = reviewedBookIds[random.nextInt(reviewedBookIds.length)];
+				for (String path : List.of("/books?q=" + query, "/books/" + bookId,
+						"/reviews/book/" + reviewedBookId, "/reviews/book/" + reviewedBookId + "/stats")) {
+					if (!ok(recorder.timed(request(catalogUrl, "GET", path, null)))) {
+						errors.incrementAndGet();
+					}
+				}
+			}
+		} catch (Exception e) {
+			errors.incrementAndGet();
+		}
+	}
+
+	private HttpResponse<String> send(HttpRequest request) throws Exception {
+		return http.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static boolean ok(HttpResponse<?> response) {
+		return response.statusCode() >= 200 && response.statusCode() < 300;
+	}
+
+	private HttpRequest request(String method, String path, String body) {
+		return request(baseUrl, method, path, body);
+	}
+
+	private HttpRequest request(String base, String method, String path, String body) {
+		return HttpRequest.newBuilder(URI.create(base + path))
+			.header("Content-Type", "application/json")
+			.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+			.build();
+	}
+
+	// Latencies of one client, so clients never contend on a shared histogram
+	class Recorder {
+		long[] nanos = new long[1024];
+		int count;
+
+		HttpResponse<String> timed(HttpRequest request) throws Exception {
+			long start = System.nanoTime();
+			HttpResponse<String> response = send(request);
+			if (count == nanos.length) {
+				nanos = Arrays.copyOf(nanos, count * 2);
+			}
+			nanos[count++] = System.nanoTime() - start;
+			return response;
+		}
+	}
+
+	static class Result {
+		final long[] sorted;
+		final Duration duration;
+		final long errors;
+
+		Result(Recorder[] recorders, Duration duration, long errors) {
+			int total = 0;
+			for (Recorder recorder : recorders) {
+				total += recorder.count;
+			}
+			sorted = new long[total];
+			int offset = 0;
+			for (Recorder recorder : recorders) {
+				System.arraycopy(recorder.nanos, 0, sorted, offset, recorder.count);
+				offset += recorder.count;
+			}
+			Arrays.sort(sorted);
+			this.duration = duration;
+			this.errors = errors;
+		}
+
+		double throughput() {
+			return sorted.length / (duration.toMillis() / 1000.0);
+		}
+
+		double percentile(double p) {
+			if (sorted.length == 0) {
+				return Double.NaN;
+			}
+			return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1_000_000.0;
+		}
+	}
+}
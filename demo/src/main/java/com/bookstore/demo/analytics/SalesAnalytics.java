@@ -0,0 +1,525 @@
+package com.bookstore.demo.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.util.LongIntHashMap;
+import com.bookstore.demo.util.TopK;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Sales reports over an in-memory, column-per-field copy of every order line that was not
+ * cancelled, archived ones included.
+ * <p>
+ * Each line is a row across primitive arrays: the book as a dense slot, the quantity, the unit
+ * price in cents and the day it was ordered. A report is one pass over those arrays that adds
+ * into a primitive accumulator per group (book, category or day); large snapshots are split into
+ * fork-join leaves that each fill their own accumulator, which are then summed. A full rebuild
+ * runs on startup and every {@code bookstore.analytics.rebuild-interval-ms}; in between, new
+ * orders arrive from the order outbox and are appended. Reports read a published snapshot, so they
+ * never wait for either.
+ * <p>
+ * Orders cancelled after they were appended keep counting until the next rebuild, and an order
+ * redelivered after a failed outbox batch may be counted twice until then.
+ */
+@Component
+public class SalesAnalytics implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesAnalytics.class);
+
+    static final String UNCATEGORIZED = "Uncategorized";
+
+    private static final int LOOKUP_BATCH = 1000;
+
+    private static final String LINES =
+        "SELECT o.id, i.book_id, i.quantity, i.unit_price, o.created_at, b.category FROM order_items i "
+            + "JOIN orders o ON o.id = i.order_id LEFT JOIN books b ON b.id = i.book_id ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Smallest fork-join leaf; a snapshot up to this size is scanned on the calling thread
+    @Value("${bookstore.analytics.min-leaf-rows:65536}")
+    private int minLeafRows;
+
+    // Serializes rebuilds and appends; not a monitor, as both block on JDBC
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private Columns columns = new Columns();
+    private volatile Snapshot snapshot = new Columns().snapshot();
+
+    /**
+     * Units sold and revenue of one book; title and author are filled in by the caller.
+     */
+    public static class BookSales {
+        private final long bookId;
+        private final long units;
+        private final BigDecimal revenue;
+        private String title;
+        private String author;
+
+        BookSales(long bookId, long units, BigDecimal revenue) {
+            this.bookId = bookId;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public long getBookId() { return bookId; }
+        public long getUnits() { return units; }
+        public BigDecimal getRevenue() { return revenue; }
+
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+
+        public String getAuthor() { return author; }
+        public void setAuthor(String author) { this.author = author; }
+    }
+
+    /**
+     * Units sold and revenue of one category.
+     */
+    public static class CategorySales {
+        private final String category;
+        private final long units;
+        private final BigDecimal revenue;
+
+        CategorySales(String category, long units, BigDecimal revenue) {
+            this.category = category;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public String getCategory() { return category; }
+        public long getUnits() { return units; }
+        public BigDecimal getRevenue() { return revenue; }
+    }
+
+    /**
+     * Units sold and revenue of one day.
+     */
+    public static class DaySales {
+        private final LocalDate day;
+        private final long units;
+        private final BigDecimal revenue;
+
+        DaySales(LocalDate day, long units, BigDecimal revenue) {
+            this.day = day;
+            this.units = units;
+            this.revenue = revenue;
+        }
+
+        public LocalDate getDay() { return day; }
+        public long getUnits() { return units; }
+        public BigDecimal getRevenue() { return revenue; }
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("bookstore.analytics.rows", () -> snapshot.rows)
+            .description("Order lines in the sales analytics snapshot")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.analytics.rebuild-interval-ms:3600000}",
+               initialDelayString = "${bookstore.analytics.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        updateLock.lock();
+        try {
+            long start = System.nanoTime();
+            Columns fresh = new Columns();
+            jdbcTemplate.query(LINES + "WHERE o.status <> 'CANCELLED'", rs -> {
+                fresh.countedOrders.addLong(rs.getLong(1));
+                String category = rs.getString(6);
+                fresh.add(rs.getLong(2), category != null ? category : UNCATEGORIZED, rs.getInt(3),
+                    rs.getBigDecimal(4), rs.getTimestamp(5).toLocalDateTime());
+            });
+            jdbcTemplate.query("SELECT id, items, created_at FROM order_archive WHERE status <> 'CANCELLED'",
+                (RowCallbackHandler) rs -> {
+                    fresh.countedOrders.addLong(rs.getLong(1));
+                    LocalDateTime createdAt = rs.getTimestamp(3).toLocalDateTime();
+                    OrderArchive.unpackItems(rs.getString(2), (bookId, quantity, unitPrice, totalPrice) ->
+                        fresh.add(bookId, null, quantity != null ? quantity : 0, unitPrice, createdAt));
+                });
+            resolveCategories(fresh);
+
+            columns = fresh;
+            snapshot = fresh.snapshot();
+            log.info("Sales analytics rebuilt from {} order lines of {} books in {} ms",
+                fresh.rows, fresh.slots, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Books first seen in the archive have no category yet; books no longer in the catalog get none
+    private void resolveCategories(Columns fresh) {
+        List<Long> unresolved = new ArrayList<>();
+        for (int slot = 0; slot < fresh.slots; slot++) {
+            if (fresh.slotCategories[slot] < 0) {
+                unresolved.add(fresh.slotBookIds[slot]);
+            }
+        }
+        for (int from = 0; from < unresolved.size(); from += LOOKUP_BATCH) {
+            List<Long> batch = unresolved.subList(from, Math.min(from + LOOKUP_BATCH, unresolved.size()));
+            namedParameterJdbcTemplate.query("SELECT id, category FROM books WHERE id IN (:ids)", Map.of("ids", batch),
+                (RowCallbackHandler) rs -> {
+                    String category = rs.getString(2);
+                    fresh.setCategory(rs.getLong(1), category != null ? category : UNCATEGORIZED);
+                });
+        }
+        for (Long bookId : unresolved) {
+            fresh.setCategory(bookId, UNCATEGORIZED);
+        }
+    }
+
+    @Override
+    public String consumerName() {
+        return "sales";
+    }
+
+    @Override
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        onOrdersPlaced(List.of(event));
+    }
+
+    // The lines of a whole outbox batch are read with one query and published as one snapshot
+    @Override
+    public void onOrdersPlaced(List<OrderPlacedEvent> events) {
+        updateLock.lock();
+        try {
+            List<Long> orderIds = new ArrayList<>(events.size());
+            for (OrderPlacedEvent event : events) {
+                // Orders read by the last rebuild or already delivered must not be counted twice
+                Long orderId = event.getOrderId();
+                if (orderId != null && !columns.countedOrders.contains(orderId)) {
+                    columns.countedOrders.addLong(orderId);
+                    orderIds.add(orderId);
+                }
+            }
+            if (orderIds.isEmpty()) {
+                return;
+            }
+            Columns current = columns;
+            namedParameterJdbcTemplate.query(LINES + "WHERE o.id IN (:ids) AND o.status <> 'CANCELLED'", Map.of("ids", orderIds),
+                (RowCallbackHandler) rs -> {
+                    String category = rs.getString(6);
+                    current.add(rs.getLong(2), category != null ? category : UNCATEGORIZED, rs.getInt(3),
+                        rs.getBigDecimal(4), rs.getTimestamp(5).toLocalDateTime());
+                });
+            snapshot = current.snapshot();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * The best-selling books by units between {@code from} and {@code to}, both inclusive and
+     * either open when null; ties go to the lower book id.
+     */
+    public List<BookSales> topSellers(LocalDate from, LocalDate to, int limit) {
+        Snapshot s = snapshot;
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        long[] totals = timed("top-sellers", () -> reduce(s, 2 * s.slots, (lo, hi, acc) -> {
+            int[] days = s.days;
+            int[] slots = s.bookSlots;
+            int[] quantities = s.quantities;
+            long[] prices = s.unitPriceCents;
+            for (int i = lo; i < hi; i++) {
+                int day = days[i];
+                if (day >= fromDay && day < toDay) {
+                    int at = slots[i] << 1;
+                    acc[at] += quantities[i];
+                    acc[at + 1] += (long) quantities[i] * prices[i];
+                }
+            }
+        }));
+
+        TopK top = new TopK(limit);
+        for (int slot = 0; slot < s.slots; slot++) {
+            if (totals[slot << 1] > 0) {
+                top.offer(slot, totals[slot << 1]);
+            }
+        }
+        List<BookSales> result = new ArrayList<>(top.size());
+        for (long slot : top.drain()) {
+            int at = (int) slot << 1;
+            result.add(new BookSales(s.slotBookIds[(int) slot], totals[at], cents(totals[at + 1])));
+        }
+        return result;
+    }
+
+    /**
+     * Units and revenue per category between {@code from} and {@code to}, highest revenue first.
+     */
+    public List<CategorySales> revenueByCategory(LocalDate from, LocalDate to) {
+        Snapshot s = snapshot;
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        long[] totals = timed("revenue-by-category", () -> reduce(s, 2 * s.categories.length, (lo, hi, acc) -> {
+            int[] days = s.days;
+            int[] slots = s.bookSlots;
+            int[] slotCategories = s.slotCategories;
+            int[] quantities = s.quantities;
+            long[] prices = s.unitPriceCents;
+            for (int i = lo; i < hi; i++) {
+                int day = days[i];
+                if (day >= fromDay && day < toDay) {
+                    int at = slotCategories[slots[i]] << 1;
+                    acc[at] += quantities[i];
+                    acc[at + 1] += (long) quantities[i] * prices[i];
+                }
+            }
+        }));
+
+        List<CategorySales> result = new ArrayList<>();
+        for (int category = 0; category < s.categories.length; category++) {
+            int at = category << 1;
+            if (totals[at] > 0) {
+                result.add(new CategorySales(s.categories[category], totals[at], cents(totals[at + 1])));
+            }
+        }
+        result.sort((a, b) -> b.getRevenue().compareTo(a.getRevenue()));
+        return result;
+    }
+
+    /**
+     * Units and revenue for every day from {@code from} to {@code to}, both inclusive and both
+     * required, oldest first; days without sales are included with zeros.
+     */
+    public List<DaySales> revenueByDay(LocalDate from, LocalDate to) {
+        Snapshot s = snapshot;
+        int fromDay = fromDay(from);
+        int toDay = toDay(to);
+        long[] totals = timed("revenue-by-day", () -> reduce(s, 2 * (toDay - fromDay), (lo, hi, acc) -> {
+            int[] days = s.days;
+            int[] quantities = s.quantities;
+            long[] prices = s.unitPriceCents;
+            for (int i = lo; i < hi; i++) {
+                int day = days[i];
+                if (day >= fromDay && day < toDay) {
+                    int at = (day - fromDay) << 1;
+                    acc[at] += quantities[i];
+                    acc[at + 1] += (long) quantities[i] * prices[i];
+                }
+            }
+        }));
+
+        List<DaySales> result = new ArrayList<>(toDay - fromDay);
+        for (int day = fromDay; day < toDay; day++) {
+            int at = (day - fromDay) << 1;
+            result.add(new DaySales(LocalDate.ofEpochDay(day), totals[at], cents(totals[at + 1])));
+        }
+        return result;
+    }
+
+    private long[] timed(String report, Supplier<long[]> scan) {
+        return Timer.builder("bookstore.analytics.reports")
+            .description("Time to scan the sales snapshot for one report")
+            .tag("report", report)
+            .register(meterRegistry)
+            .record(scan);
+    }
+
+    private static int fromDay(LocalDate from) {
+        return from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+    }
+
+    private static int toDay(LocalDate to) {
+        return to != null ? (int) to.toEpochDay() + 1 : Integer.MAX_VALUE;
+    }
+
+    private static BigDecimal cents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // Adds rows [lo, hi) of the snapshot into acc
+    @FunctionalInterface
+    interface Kernel {
+        void accumulate(int lo, int hi, long[] acc);
+    }
+
+    private long[] reduce(Snapshot s, int width, Kernel kernel) {
+        int leafRows = Math.max(minLeafRows, s.rows / (4 * ForkJoinPool.getCommonPoolParallelism()));
+        if (s.rows <= leafRows) {
+            long[] acc = new long[width];
+            kernel.accumulate(0, s.rows, acc);
+            return acc;
+        }
+        return ForkJoinPool.commonPool().invoke(new Reduction(kernel, width, 0, s.rows, leafRows));
+    }
+
+    // Each leaf fills its own accumulator, so leaves share nothing until their results are summed
+    private static final class Reduction extends RecursiveTask<long[]> {
+        private final Kernel kernel;
+        private final int width;
+        private final int lo;
+        private final int hi;
+        private final int leafRows;
+
+        Reduction(Kernel kernel, int width, int lo, int hi, int leafRows) {
+            this.kernel = kernel;
+            this.width = width;
+            this.lo = lo;
+            this.hi = hi;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (hi - lo <= leafRows) {
+                long[] acc = new long[width];
+                kernel.accumulate(lo, hi, acc);
+                return acc;
+            }
+            int mid = (lo + hi) >>> 1;
+            Reduction left = new Reduction(kernel, width, lo, mid, leafRows);
+            left.fork();
+            long[] right = new Reduction(kernel, width, mid, hi, leafRows).compute();
+            long[] acc = left.join();
+            for (int i = 0; i < width; i++) {
+                acc[i] += right[i];
+            }
+            return acc;
+        }
+    }
+
+    // A published view of the columns; rows appended after it was taken are beyond its bounds
+    private static final class Snapshot {
+        private final int rows;
+        private final int[] bookSlots;
+        private final int[] quantities;
+        private final long[] unitPriceCents;
+        private final int[] days;
+        private final int slots;
+        private final long[] slotBookIds;
+        private final int[] slotCategories;
+        private final String[] categories;
+
+        Snapshot(Columns columns) {
+            rows = columns.rows;
+            bookSlots = columns.bookSlots;
+            quantities = columns.quantities;
+            unitPriceCents = columns.unitPriceCents;
+            days = columns.days;
+            slots = columns.slots;
+            slotBookIds = columns.slotBookIds;
+            slotCategories = columns.slotCategories;
+            categories = columns.categories.toArray(new String[0]);
+        }
+    }
+
+    // The growable columns; only written under updateLock, and never below the size already published
+    private static final class Columns {
+        private int rows;
+        private int[] bookSlots = new int[1024];
+        private int[] quantities = new int[1024];
+        private long[] unitPriceCents = new long[1024];
+        private int[] days = new int[1024];
+
+        private int slots;
+        private long[] slotBookIds = new long[256];
+        private int[] slotCategories = new int[256];
+        private final LongIntHashMap slotsByBook = new LongIntHashMap();
+
+        private final List<String> categories = new ArrayList<>();
+        private final Map<String, Integer> categoryIndex = new HashMap<>();
+
+        // Ids of the orders counted above; ids are not committed in order, so no highest id would do
+        private final Roaring64Bitmap countedOrders = new Roaring64Bitmap();
+
+        // A null category is looked up later
+        void add(long bookId, String category, int quantity, BigDecimal unitPrice, LocalDateTime createdAt) {
+            if (rows == days.length) {
+                int capacity = rows * 2;
+                bookSlots = Arrays.copyOf(bookSlots, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                unitPriceCents = Arrays.copyOf(unitPriceCents, capacity);
+                days = Arrays.copyOf(days, capacity);
+            }
+            bookSlots[rows] = slot(bookId, category);
+            quantities[rows] = quantity;
+            unitPriceCents[rows] = unitPrice != null ? unitPrice.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0;
+            days[rows] = (int) createdAt.toLocalDate().toEpochDay();
+            rows++;
+        }
+
+        void setCategory(long bookId, String category) {
+            int slot = slotsByBook.get(bookId);
+            if (slot >= 0 && slotCategories[slot] < 0) {
+                slotCategories[slot] = category(category);
+            }
+        }
+
+        private int slot(long bookId, String category) {
+            int slot = slotsByBook.get(bookId);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (slots == slotBookIds.length) {
+                slotBookIds = Arrays.copyOf(slotBookIds, slots * 2);
+                slotCategories = Arrays.copyOf(slotCategories, slots * 2);
+            }
+            slot = slots++;
+            slotBookIds[slot] = bookId;
+            slotCategories[slot] = category != null ? category(category) : -1;
+            slotsByBook.put(bookId, slot);
+            return slot;
+        }
+
+        private int category(String name) {
+            Integer index = categoryIndex.get(name);
+            if (index == null) {
+                index = categories.size();
+                categories.add(name);
+                categoryIndex.put(name, index);
+            }
+            return index;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(this);
+        }
+    }
+}
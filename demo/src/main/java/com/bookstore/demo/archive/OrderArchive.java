@@ -0,0 +1,273 @@
+package com.bookstore.demo.archive;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.demo.dto.OrderLine;
+import com.bookstore.demo.dto.OrderSummary;
+import com.bookstore.demo.entity.Order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Moves finished orders older than {@code bookstore.archive.order-age-days} from {@code orders},
+ * {@code order_items} and {@code stock_reservations} into {@code order_archive}, one row per order
+ * keyed by the month it was placed in, and reads archived orders back for the order history.
+ * <p>
+ * Only delivered and cancelled orders are archived, as no status transition leaves them. A run pages
+ * through each of those statuses by id and moves a chunk of {@code bookstore.archive.chunk-size}
+ * orders per transaction, so the hot tables are only locked one chunk at a time. Every archived
+ * order was placed at or before {@link #getHorizon()}, the time of the newest one: history pages
+ * newer than that never need the archive, which keeps recent pages on the hot tables alone.
+ */
+@Component
+public class OrderArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchive.class);
+
+    private static final Order.OrderStatus[] ARCHIVED_STATUSES = { Order.OrderStatus.DELIVERED, Order.OrderStatus.CANCELLED };
+
+    // One chunk: the candidates of one status up to the last id of the page, all in the same predicate
+    private static final String CHUNK = "id > ? AND id <= ? AND status = ? AND created_at < ?";
+    private static final String SELECT_CANDIDATES =
+        "SELECT id FROM orders WHERE status = ? AND id > ? AND created_at < ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final String INSERT =
+        "INSERT INTO order_archive (id, user_id, total_amount, status, shipping_address, created_at, updated_at, archive_month, items) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_PAGE =
+        "SELECT id, status, total_amount, shipping_address, created_at, items FROM order_archive WHERE user_id = ? ";
+    private static final String PAGE_ORDER = "ORDER BY created_at DESC, id DESC FETCH FIRST ? ROWS ONLY";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bookstore.archive.order-age-days:365}")
+    private int orderAgeDays;
+
+    @Value("${bookstore.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+    private Counter archivedOrders;
+
+    // Unknown until the archive has been read, and until then every history page looks in it
+    private volatile LocalDateTime horizon = LocalDateTime.MAX;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        archivedOrders = Counter.builder("bookstore.archive.orders")
+            .description("Orders moved into the order archive")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHorizon() {
+        LocalDateTime newest = jdbcTemplate.queryForObject("SELECT MAX(created_at) FROM order_archive", LocalDateTime.class);
+        horizon = newest != null ? newest : LocalDateTime.MIN;
+    }
+
+    /**
+     * Every archived order was placed at or before this time.
+     */
+    public LocalDateTime getHorizon() {
+        return horizon;
+    }
+
+    // Runs one interval after startup, then once per interval
+    @Scheduled(initialDelayString = "${bookstore.archive.interval-ms:86400000}", fixedDelayString = "${bookstore.archive.interval-ms:86400000}")
+    public void archiveOldOrders() {
+        archiveOrdersBefore(LocalDateTime.now().minusDays(orderAgeDays));
+    }
+
+    /**
+     * Archives the delivered and cancelled orders placed before {@code cutoff} and returns how many
+     * were moved. A failed chunk is rolled back on its own; the chunks before it stay archived.
+     */
+    public long archiveOrdersBefore(LocalDateTime cutoff) {
+        // Raised before any order moves, so a history read never skips an order that is on its way into the archive
+        if (horizon.isBefore(cutoff)) {
+            horizon = cutoff;
+        }
+        long start = System.nanoTime();
+        long archived = 0;
+        Timestamp before = Timestamp.valueOf(cutoff);
+        for (Order.OrderStatus status : ARCHIVED_STATUSES) {
+            long afterId = 0;
+            List<Long> ids = jdbcTemplate.queryForList(SELECT_CANDIDATES, Long.class, status.name(), afterId, before, chunkSize);
+            while (!ids.isEmpty()) {
+                long lastId = afterId;
+                long upTo = ids.get(ids.size() - 1);
+                int moved = transactionTemplate.execute(tx -> moveChunk(lastId, upTo, status, before));
+                archivedOrders.increment(moved);
+                archived += moved;
+                afterId = upTo;
+                ids = ids.size() < chunkSize ? List.of()
+                    : jdbcTemplate.queryForList(SELECT_CANDIDATES, Long.class, status.name(), afterId, before, chunkSize);
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived {} orders placed before {} in {} ms", archived, cutoff, (System.nanoTime() - start) / 1_000_000);
+        }
+        // Lowered again to the newest order actually archived, so a run that moved nothing keeps history off the archive
+        loadHorizon();
+        return archived;
+    }
+
+    private int moveChunk(long afterId, long upTo, Order.OrderStatus status, Timestamp before) {
+        Object[] chunk = { afterId, upTo, status.name(), before };
+
+        Map<Long, StringBuilder> items = new HashMap<>();
+        jdbcTemplate.query("SELECT order_id, book_id, quantity, unit_price, total_price FROM order_items "
+                + "WHERE order_id IN (SELECT id FROM orders WHERE " + CHUNK + ") ORDER BY order_id, id",
+            rs -> {
+                StringBuilder packed = items.computeIfAbsent(rs.getLong(1), orderId -> new StringBuilder());
+                if (!packed.isEmpty()) {
+                    packed.append(';');
+                }
+                packed.append(rs.getLong(2)).append(':').append(pack(rs.getObject(3, Integer.class))).append(':')
+                    .append(pack(rs.getBigDecimal(4))).append(':').append(pack(rs.getBigDecimal(5)));
+            }, chunk);
+
+        List<Object[]> rows = jdbcTemplate.query("SELECT id, user_id, total_amount, status, shipping_address, created_at, updated_at "
+                + "FROM orders WHERE " + CHUNK + " ORDER BY id",
+            (rs, rowNum) -> {
+                long id = rs.getLong(1);
+                Timestamp createdAt = rs.getTimestamp(6);
+                LocalDateTime placed = createdAt.toLocalDateTime();
+                StringBuilder packed = items.get(id);
+                return new Object[] { id, rs.getLong(2), rs.getBigDecimal(3), rs.getString(4), rs.getString(5),
+                    createdAt, rs.getTimestamp(7), placed.getYear() * 100 + placed.getMonthValue(),
+                    packed != null ? packed.toString() : "" };
+            }, chunk);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE order_id IN (SELECT id FROM orders WHERE " + CHUNK + ")", chunk);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE " + CHUNK + ")", chunk);
+        return jdbcTemplate.update("DELETE FROM orders WHERE " + CHUNK, chunk);
+    }
+
+    /**
+     * A page of the user's archived orders, newest first, starting after the order at
+     * ({@code createdAt}, {@code id}) or from the newest when {@code createdAt} is null. The items
+     * carry the current fields of their books; a book deleted since leaves them null.
+     */
+    public List<OrderSummary> findSummaries(Long userId, LocalDateTime createdAt, Long id, int limit) {
+        Map<Long, String> packedItems = new HashMap<>();
+        List<OrderSummary> orders;
+        if (createdAt == null) {
+            orders = jdbcTemplate.query(SELECT_PAGE + PAGE_ORDER,
+                (rs, rowNum) -> summary(rs, packedItems), userId, limit);
+        } else {
+            Timestamp at = Timestamp.valueOf(createdAt);
+            orders = jdbcTemplate.query(SELECT_PAGE + "AND (created_at < ? OR (created_at = ? AND id < ?)) " + PAGE_ORDER,
+                (rs, rowNum) -> summary(rs, packedItems), userId, at, at, id, limit);
+        }
+
+        Set<Long> bookIds = new HashSet<>();
+        for (OrderSummary order : orders) {
+            unpackItems(packedItems.get(order.getId()), (bookId, quantity, unitPrice, totalPrice) -> {
+                bookIds.add(bookId);
+                order.getItems().add(new OrderLine(order.getId(), bookId, null, null, null, quantity, unitPrice, totalPrice));
+            });
+        }
+        if (bookIds.isEmpty()) {
+            return orders;
+        }
+
+        Map<Long, String[]> books = new HashMap<>();
+        namedParameterJdbcTemplate.query("SELECT id, title, author, image_url FROM books WHERE id IN (:ids)", Map.of("ids", bookIds),
+            rs -> {
+                books.put(rs.getLong(1), new String[] { rs.getString(2), rs.getString(3), rs.getString(4) });
+            });
+        String[] missing = new String[3];
+        for (OrderSummary order : orders) {
+            order.getItems().replaceAll(line -> {
+                String[] book = books.getOrDefault(line.getBookId(), missing);
+                return new OrderLine(line.getOrderId(), line.getBookId(), book[0], book[1], book[2],
+                    line.getQuantity(), line.getUnitPrice(), line.getTotalPrice());
+            });
+        }
+        return orders;
+    }
+
+    /**
+     * Deletes the user's archived orders and returns how many there were. Archived rows have no
+     * foreign key to {@code users}, so deleting the user does not remove them.
+     */
+    public int deleteByUser(Long userId) {
+        return jdbcTemplate.update("DELETE FROM order_archive WHERE user_id = ?", userId);
+    }
+
+    /**
+     * Receives one item of an archived order; fields that were null on the order item are null.
+     */
+    @FunctionalInterface
+    public interface ItemConsumer {
+        void accept(long bookId, Integer quantity, BigDecimal unitPrice, BigDecimal totalPrice);
+    }
+
+    /**
+     * Unpacks the {@code items} column of an {@code order_archive} row.
+     */
+    public static void unpackItems(String packed, ItemConsumer consumer) {
+        if (packed == null || packed.isEmpty()) {
+            return;
+        }
+        for (String item : packed.split(";")) {
+            String[] fields = item.split(":", -1);
+            consumer.accept(Long.parseLong(fields[0]), fields[1].isEmpty() ? null : Integer.valueOf(fields[1]),
+                fields[2].isEmpty() ? null : new BigDecimal(fields[2]), fields[3].isEmpty() ? null : new BigDecimal(fields[3]));
+        }
+    }
+
+    // Null item fields are packed as empty ones
+    private static String pack(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value != null ? value.toString() : "";
+    }
+
+    private static OrderSummary summary(ResultSet rs, Map<Long, String> packedItems) throws SQLException {
+        long id = rs.getLong(1);
+        packedItems.put(id, rs.getString(6));
+        return new OrderSummary(id, Order.OrderStatus.valueOf(rs.getString(2)), rs.getBigDecimal(3), rs.getString(4),
+            rs.getTimestamp(5).toLocalDateTime());
+    }
+}
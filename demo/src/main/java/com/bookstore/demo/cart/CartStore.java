@@ -0,0 +1,584 @@
+package com.bookstore.demo.cart;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.CartItem;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.BookActivityEvent;
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.repository.CartItemRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind store for shopping carts. Carts are loaded from {@code cart_items} on first use,
+ * then read and changed in memory under a per-shard lock chosen by user id. Changed carts are
+ * marked dirty and a background job writes them back in batches, replacing each dirty cart's
+ * rows in one transaction.
+ * <p>
+ * Durability: a cart change is acknowledged before it reaches the database. A crash loses the
+ * changes made since the last flush, at most {@code bookstore.cart.flush-interval-ms} of them;
+ * a graceful shutdown flushes everything first. A cart is never partially written, since all
+ * of its rows are replaced together. Orders are not affected: checkout runs against the
+ * in-memory cart and deletes the ordered rows in its own transaction.
+ * <p>
+ * Cart item ids are assigned here from blocks reserved on the {@code cart_items_seq} sequence, so
+ * every instance sharing the database hands out distinct ids, and are written explicitly, so an
+ * item keeps its id across flushes and reloads.
+ * <p>
+ * A cart that fails to write is retried with exponential backoff; after
+ * {@code bookstore.cart.max-write-attempts} failures its unwritten changes are dropped and the
+ * cart is reloaded from its last written state on next use.
+ */
+@Component
+public class CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    private static final int SHARDS = 64;
+    private static final int MAX_CARTS_PER_FLUSH = 1000;
+    // Must match the increment of cart_items_seq, which is the allocationSize on CartItem
+    static final int ID_BLOCK_SIZE = 100;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${bookstore.cart.idle-eviction-minutes:30}")
+    private long idleEvictionMinutes;
+
+    @Value("${bookstore.cart.max-write-attempts:5}")
+    private int maxWriteAttempts;
+
+    @Value("${bookstore.cart.write-retry-backoff-ms:1000}")
+    private long writeRetryBackoffMs;
+
+    private final Shard[] shards = new Shard[SHARDS];
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // Failed writes by user, only touched under flushLock
+    private final Map<Long, FailedWrite> failedWrites = new HashMap<>();
+    // A lock rather than a monitor: a virtual thread blocking on JDBC inside synchronized would pin its carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // The unused rest of the current id block, [nextItemId, itemIdLimit)
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextItemId;
+    private long itemIdLimit;
+
+    public CartStore() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * The user's cart items, or an empty list if the user does not exist.
+     */
+    public List<CartItem> getItems(Long userId) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return List.of();
+        }
+        try {
+            return cart.copyItems();
+        } finally {
+            cart.shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the book to the cart, or raises its quantity if it is already there. Empty if the user does not exist.
+     */
+    public Optional<CartItem> add(Long userId, Book book, int quantity) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return Optional.empty();
+        }
+        CartItem added;
+        try {
+            CartItem item = cart.items.get(book.getId());
+            if (item != null) {
+                item.setQuantity(item.getQuantity() + quantity);
+            } else {
+                item = new CartItem(cart.user, book, quantity);
+                // Reads the sequence once per block, under the shard lock but only for one add in ID_BLOCK_SIZE
+                item.setId(allocateItemIds(1));
+                cart.items.put(book.getId(), item);
+            }
+            dirtyUsers.add(userId);
+            added = copy(item);
+        } finally {
+            cart.shard.lock.unlock();
+        }
+        // Published outside the shard lock, as listeners take locks of their own
+        eventPublisher.publishEvent(new BookActivityEvent(book.getId(), BookActivityEvent.ActivityType.ADDED_TO_CART, quantity));
+        return Optional.of(added);
+    }
+
+    /**
+     * Sets an item's quantity. Empty if the item is not in this user's cart.
+     */
+    public Optional<CartItem> setQuantity(Long userId, Long itemId, int quantity) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return Optional.empty();
+        }
+        try {
+            CartItem item = cart.findItem(itemId);
+            if (item == null) {
+                return Optional.empty();
+            }
+            item.setQuantity(quantity);
+            dirtyUsers.add(userId);
+            return Optional.of(copy(item));
+        } finally {
+            cart.shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an item. Returns false if the item is not in this user's cart.
+     */
+    public boolean remove(Long userId, Long itemId) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return false;
+        }
+        try {
+            CartItem item = cart.findItem(itemId);
+            if (item == null) {
+                return false;
+            }
+            cart.items.remove(item.getBook().getId());
+            dirtyUsers.add(userId);
+            return true;
+        } finally {
+            cart.shard.lock.unlock();
+        }
+    }
+
+    public void clear(Long userId) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return;
+        }
+        try {
+            cart.items.clear();
+            dirtyUsers.add(userId);
+        } finally {
+            cart.shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Claims the cart for checkout and returns its items. Only one checkout of a cart can be in
+     * progress; a second claim throws {@link IllegalStateException} until
+     * {@link #finishCheckout} is called.
+     */
+    public List<CartItem> beginCheckout(Long userId) {
+        Cart cart = lockCart(userId);
+        if (cart == null) {
+            return List.of();
+        }
+        try {
+            if (cart.checkoutInProgress) {
+                throw new IllegalStateException("Checkout already in progress");
+            }
+            cart.checkoutInProgress = true;
+            return cart.copyItems();
+        } finally {
+            cart.shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the checkout claim. If the order was placed, the ordered items are removed from
+     * the cart; items added while checkout was running stay.
+     */
+    public void finishCheckout(Long userId, List<Long> orderedItemIds, boolean placed) {
+        Shard shard = shard(userId);
+        shard.lock.lock();
+        try {
+            Cart cart = shard.carts.get(userId);
+            if (cart == null) {
+                return;
+            }
+            cart.checkoutInProgress = false;
+            if (placed) {
+                cart.items.values().removeIf(item -> orderedItemIds.contains(item.getId()));
+                dirtyUsers.add(userId);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves {@code count} consecutive cart item ids, at most {@value #ID_BLOCK_SIZE}, and returns
+     * the first. Also used for rows written to {@code cart_items} outside the store, which are
+     * picked up when their cart is first loaded.
+     */
+    public long allocateItemIds(int count) {
+        if (count < 1 || count > ID_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Between 1 and " + ID_BLOCK_SIZE + " ids per call, not " + count);
+        }
+        idLock.lock();
+        try {
+            if (itemIdLimit - nextItemId < count) {
+                // The sequence steps by the block size, so each value starts a block no other caller gets
+                nextItemId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR cart_items_seq", Long.class);
+                itemIdLimit = nextItemId + ID_BLOCK_SIZE;
+            }
+            long first = nextItemId;
+            nextItemId += count;
+            return first;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    /**
+     * Drops a cart from memory without writing it back, for users being deleted.
+     */
+    public void discard(Long userId) {
+        Shard shard = shard(userId);
+        shard.lock.lock();
+        try {
+            shard.carts.remove(userId);
+            dirtyUsers.remove(userId);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public int dirtyCount() {
+        return dirtyUsers.size();
+    }
+
+    /**
+     * Writes dirty carts back to {@code cart_items}. A failed batch is retried cart by cart, so
+     * one cart that cannot be written does not hold back the rest; it stays dirty and is retried
+     * after a backoff, until it is dropped. Returns the number of carts written.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.cart.flush-interval-ms:1000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushLocked() {
+        List<CartSnapshot> batch = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Long> dirty = dirtyUsers.iterator();
+        while (dirty.hasNext() && batch.size() < MAX_CARTS_PER_FLUSH) {
+            Long userId = dirty.next();
+            FailedWrite failed = failedWrites.get(userId);
+            if (failed != null && failed.retryAt > now) {
+                continue;
+            }
+            // Cleared before the snapshot, so a change racing with it marks the cart dirty again
+            dirty.remove();
+            batch.add(snapshot(userId));
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            write(batch);
+            for (CartSnapshot cart : batch) {
+                failedWrites.remove(cart.userId);
+            }
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.warn("Cart flush of {} carts failed, retrying one at a time: {}", batch.size(), e.toString());
+        }
+        int written = 0;
+        for (CartSnapshot cart : batch) {
+            try {
+                write(List.of(cart));
+                failedWrites.remove(cart.userId);
+                written++;
+            } catch (RuntimeException e) {
+                writeFailed(cart.userId, e);
+            }
+        }
+        return written;
+    }
+
+    // Backs off exponentially, and gives up on the cart's unwritten changes after maxWriteAttempts
+    private void writeFailed(Long userId, RuntimeException e) {
+        FailedWrite failed = failedWrites.computeIfAbsent(userId, id -> new FailedWrite());
+        failed.attempts++;
+        if (failed.attempts >= maxWriteAttempts) {
+            log.error("Cart of user {} could not be written after {} attempts, dropping its unwritten changes",
+                userId, failed.attempts, e);
+            failedWrites.remove(userId);
+            discard(userId);
+            return;
+        }
+        long backoffMs = Math.min(writeRetryBackoffMs << Math.min(failed.attempts - 1, 30), MAX_BACKOFF_MS);
+        failed.retryAt = System.currentTimeMillis() + backoffMs;
+        // The stack trace once per cart, not on every retry
+        if (failed.attempts == 1) {
+            log.warn("Cart of user {} could not be written, retrying in {} ms", userId, backoffMs, e);
+        } else {
+            log.warn("Cart of user {} could not be written (attempt {}), retrying in {} ms: {}", userId,
+                failed.attempts, backoffMs, e.toString());
+        }
+        dirtyUsers.add(userId);
+    }
+
+    // Everything is written before the data source closes; carts backing off from a failure get one more attempt
+    @PreDestroy
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            for (FailedWrite failed : failedWrites.values()) {
+                failed.retryAt = 0;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        int previous = -1;
+        while (!dirtyUsers.isEmpty() && dirtyUsers.size() != previous) {
+            previous = dirtyUsers.size();
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.cart.eviction-interval-ms:60000}")
+    public void evictIdleCarts() {
+        evictIdle(idleEvictionMinutes * 60_000);
+    }
+
+    /**
+     * Drops clean carts not used for at least {@code idleMillis}; they are reloaded on next use.
+     * Excludes {@link #flush} so a cart is never reloaded while its rows are being written.
+     */
+    public int evictIdle(long idleMillis) {
+        flushLock.lock();
+        try {
+            return evictIdleLocked(idleMillis);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int evictIdleLocked(long idleMillis) {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                Iterator<Map.Entry<Long, Cart>> it = shard.carts.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, Cart> entry = it.next();
+                    Cart cart = entry.getValue();
+                    if (cart.lastAccess <= cutoff && !cart.checkoutInProgress && !dirtyUsers.contains(entry.getKey())) {
+                        it.remove();
+                        evicted++;
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    // Keeps cached books current and drops deleted ones, which could otherwise never be flushed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        // A book that did not exist yet cannot be in anyone's cart; bulk imports create thousands
+        if (event.getChangeType() == BookChangedEvent.ChangeType.CREATED) {
+            return;
+        }
+        Long bookId = event.getBook().getId();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (Map.Entry<Long, Cart> entry : shard.carts.entrySet()) {
+                    CartItem item = entry.getValue().items.get(bookId);
+                    if (item == null) {
+                        continue;
+                    }
+                    if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+                        entry.getValue().items.remove(bookId);
+                        dirtyUsers.add(entry.getKey());
+                    } else {
+                        item.setBook(event.getBook());
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    // The user's cart with its shard locked, loading it first if needed; null, unlocked, if the user does not exist
+    private Cart lockCart(Long userId) {
+        Shard shard = shard(userId);
+        while (true) {
+            shard.lock.lock();
+            Cart cart = shard.carts.get(userId);
+            if (cart != null) {
+                cart.touch();
+                return cart;
+            }
+            shard.lock.unlock();
+
+            // Read outside the lock so a cold cart does not stall the rest of its shard
+            Optional<User> user = userRepository.findById(userId);
+            if (user.isEmpty()) {
+                return null;
+            }
+            Cart loaded = new Cart(user.get(), shard);
+            for (CartItem row : cartItemRepository.findByUserIdWithBook(userId)) {
+                // Detached copies, so a later transaction in the same request never writes them through JPA
+                CartItem item = copy(row);
+                item.setUser(loaded.user);
+                loaded.items.put(item.getBook().getId(), item);
+            }
+            shard.lock.lock();
+            try {
+                shard.carts.putIfAbsent(userId, loaded);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    private CartSnapshot snapshot(Long userId) {
+        Shard shard = shard(userId);
+        shard.lock.lock();
+        try {
+            Cart cart = shard.carts.get(userId);
+            return new CartSnapshot(userId, cart == null ? List.of() : cart.copyItems());
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private void write(List<CartSnapshot> carts) {
+        List<Object[]> deletes = new ArrayList<>(carts.size());
+        List<Object[]> inserts = new ArrayList<>();
+        for (CartSnapshot cart : carts) {
+            deletes.add(new Object[] { cart.userId });
+            for (CartItem item : cart.items) {
+                inserts.add(new Object[] { item.getId(), cart.userId, item.getBook().getId(), item.getQuantity(),
+                    Timestamp.valueOf(item.getAddedAt()) });
+            }
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE user_id = ?", deletes);
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO cart_items (id, user_id, book_id, quantity, added_at) VALUES (?, ?, ?, ?, ?)", inserts);
+        });
+    }
+
+    private Shard shard(Long userId) {
+        return shards[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (SHARDS - 1)];
+    }
+
+    private static CartItem copy(CartItem item) {
+        CartItem copy = new CartItem(item.getUser(), item.getBook(), item.getQuantity());
+        copy.setId(item.getId());
+        copy.setAddedAt(item.getAddedAt());
+        return copy;
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Long, Cart> carts = new HashMap<>();
+    }
+
+    private static final class Cart {
+        private final User user;
+        private final Shard shard;
+        // Keyed by book: adding a book already in the cart raises its quantity
+        private final LinkedHashMap<Long, CartItem> items = new LinkedHashMap<>();
+        private boolean checkoutInProgress;
+        private long lastAccess = System.currentTimeMillis();
+
+        Cart(User user, Shard shard) {
+            this.user = user;
+            this.shard = shard;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        CartItem findItem(Long itemId) {
+            for (CartItem item : items.values()) {
+                if (item.getId().equals(itemId)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        List<CartItem> copyItems() {
+            List<CartItem> copies = new ArrayList<>(items.size());
+            for (CartItem item : items.values()) {
+                copies.add(copy(item));
+            }
+            return copies;
+        }
+    }
+
+    private static final class FailedWrite {
+        private int attempts;
+        private long retryAt;
+    }
+
+    private static final class CartSnapshot {
+        private final Long userId;
+        private final List<CartItem> items;
+
+        CartSnapshot(Long userId, List<CartItem> items) {
+            this.userId = userId;
+            this.items = items;
+        }
+    }
+}
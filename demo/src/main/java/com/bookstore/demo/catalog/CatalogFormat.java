@@ -0,0 +1,33 @@
+package com.bookstore.demo.catalog;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Feed formats of the catalog import and export. Both carry the same columns: CSV with a header
+ * row naming them, NDJSON as one object per line with those field names.
+ */
+public enum CatalogFormat {
+
+    CSV(MediaType.parseMediaType("text/csv")),
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    CatalogFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    // The format for a request's content type, or null if it is not a feed format
+    public static CatalogFormat of(MediaType contentType) {
+        for (CatalogFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,357 @@
+package com.bookstore.demo.catalog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.demo.dto.CatalogImportReport;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.event.BookChangedEvent.ChangeType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Upserts books from a CSV or NDJSON catalog feed, keyed by ISBN.
+ * <p>
+ * The feed is parsed as it arrives, so memory use does not grow with its size. Each row is validated
+ * on its own; rejected rows are reported by line and skipped. Valid rows are written in chunks of
+ * {@code bookstore.catalog.import-batch-size} as one batched JDBC {@code MERGE} per chunk, each chunk
+ * in its own transaction, so an interrupted import keeps what it committed and can simply be rerun.
+ * <p>
+ * Rows bypass JPA, so each chunk publishes {@link BookChangedEvent}s for the search index and the cart
+ * store, and updated books are evicted from the second-level cache once the chunk commits.
+ */
+@Component
+public class CatalogImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImporter.class);
+
+    // Column and field names with case and underscores ignored, so image_url and imageUrl both match
+    static final List<String> COLUMNS = List.of("isbn", "title", "author", "category", "price", "description", "imageurl");
+    private static final List<String> REQUIRED_COLUMNS = List.of("isbn", "title", "author", "price");
+
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("100000");
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String MERGE_BOOK =
+        "MERGE INTO books b USING (VALUES (CAST(? AS VARCHAR(13)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), "
+        + "CAST(? AS VARCHAR(255)), CAST(? AS DOUBLE PRECISION), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))) "
+        + "s (isbn, title, author, category, price, description, image_url) ON b.isbn = s.isbn "
+        + "WHEN MATCHED THEN UPDATE SET title = s.title, author = s.author, category = s.category, price = s.price, "
+        + "description = s.description, image_url = s.image_url "
+        + "WHEN NOT MATCHED THEN INSERT (isbn, title, author, category, price, description, image_url) "
+        + "VALUES (s.isbn, s.title, s.author, s.category, s.price, s.description, s.image_url)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookstore.catalog.import-batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Imports the feed, passing the report to {@code progress} after every chunk written.
+     * The returned report is done; a feed that cannot be read any further ends it with a failure.
+     */
+    public CatalogImportReport importBooks(InputStream feed, CatalogFormat format, Consumer<CatalogImportReport> progress) {
+        long start = System.nanoTime();
+        CatalogImportReport report = new CatalogImportReport();
+        Map<String, Book> chunk = new LinkedHashMap<>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(feed, StandardCharsets.UTF_8));
+            RowReader rows = format == CatalogFormat.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+            for (FeedRow row = rows.next(); row != null; row = rows.next()) {
+                report.setRows(report.getRows() + 1);
+                String error = row.error != null ? row.error : validate(row.values);
+                if (error != null) {
+                    reject(report, row.line, error);
+                    continue;
+                }
+                Book book = toBook(row.values);
+                // The same ISBN twice in a chunk: the later row wins, as it would in separate chunks
+                if (chunk.put(book.getIsbn(), book) != null) {
+                    report.setUpdated(report.getUpdated() + 1);
+                }
+                if (chunk.size() == batchSize) {
+                    write(chunk, report);
+                    report.setSeconds(elapsedSeconds(start));
+                    progress.accept(report);
+                }
+            }
+            write(chunk, report);
+        } catch (IOException | RuntimeException e) {
+            report.setFailure(e instanceof InvalidFeedException ? e.getMessage() : "Import stopped: " + e.getMessage());
+            log.warn("Catalog import stopped after {} rows", report.getRows(), e);
+        }
+        report.setSeconds(elapsedSeconds(start));
+        report.setDone(true);
+        log.info("Imported {} catalog rows in {} s: {} inserted, {} updated, {} rejected", report.getRows(),
+            String.format("%.1f", report.getSeconds()), report.getInserted(), report.getUpdated(), report.getRejected());
+        return report;
+    }
+
+    private void write(Map<String, Book> chunk, CatalogImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Long> updatedIds = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<String> isbns = new ArrayList<>(chunk.keySet());
+            Map<String, Long> existing = idsByIsbn(isbns);
+            List<Object[]> rows = new ArrayList<>(chunk.size());
+            for (Book book : chunk.values()) {
+                rows.add(new Object[] { book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(), book.getPrice(),
+                    book.getDescription(), book.getImageUrl() });
+            }
+            jdbcTemplate.batchUpdate(MERGE_BOOK, rows);
+
+            Map<String, Long> ids = existing.size() == isbns.size() ? existing : idsByIsbn(isbns);
+            for (Book book : chunk.values()) {
+                book.setId(ids.get(book.getIsbn()));
+                boolean created = !existing.containsKey(book.getIsbn());
+                if (!created) {
+                    updatedIds.add(book.getId());
+                }
+                // Delivered to the listeners after commit
+                eventPublisher.publishEvent(new BookChangedEvent(book, created ? ChangeType.CREATED : ChangeType.UPDATED));
+            }
+        });
+        Cache cache = entityManagerFactory.getCache();
+        for (Long id : updatedIds) {
+            cache.evict(Book.class, id);
+        }
+        report.setInserted(report.getInserted() + chunk.size() - updatedIds.size());
+        report.setUpdated(report.getUpdated() + updatedIds.size());
+        chunk.clear();
+    }
+
+    private Map<String, Long> idsByIsbn(List<String> isbns) {
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query("SELECT id, isbn FROM books WHERE isbn IN (:isbns)", Map.of("isbns", isbns),
+            rs -> {
+                ids.put(rs.getString("isbn"), rs.getLong("id"));
+            });
+        return ids;
+    }
+
+    // Returns why the row cannot be imported, or null if it can
+    private static String validate(Map<String, String> values) {
+        if (Isbn.normalize(values.get("isbn")) == null) {
+            return values.get("isbn") == null ? "isbn is required" : "isbn " + values.get("isbn") + " is not a valid ISBN-10 or ISBN-13";
+        }
+        for (String column : List.of("title", "author")) {
+            if (values.get(column) == null) {
+                return column + " is required";
+            }
+        }
+        for (String column : List.of("title", "author", "category", "description", "imageurl")) {
+            if (values.get(column) != null && values.get(column).length() > MAX_TEXT_LENGTH) {
+                return column + " is longer than " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        String price = values.get("price");
+        if (price == null) {
+            return "price is required";
+        }
+        try {
+            BigDecimal amount = new BigDecimal(price);
+            if (amount.signum() < 0 || amount.compareTo(MAX_PRICE) > 0) {
+                return "price " + price + " is not between 0 and " + MAX_PRICE;
+            }
+        } catch (NumberFormatException e) {
+            return "price " + price + " is not a number";
+        }
+        return null;
+    }
+
+    private static Book toBook(Map<String, String> values) {
+        Book book = new Book(values.get("title"), values.get("author"), values.get("category"),
+            Double.valueOf(values.get("price")), values.get("description"), values.get("imageurl"));
+        book.setIsbn(Isbn.normalize(values.get("isbn")));
+        return book;
+    }
+
+    private static void reject(CatalogImportReport report, long line, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new CatalogImportReport.RowError(line, message));
+        }
+    }
+
+    private static double elapsedSeconds(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static String key(String name) {
+        return name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Blank values are absent, so optional columns can be left empty in CSV
+    private static String value(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String trimmed = raw.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // One data row: its values by column key, or why it could not be parsed
+    private static class FeedRow {
+        final long line;
+        final Map<String, String> values;
+        final String error;
+
+        FeedRow(long line, Map<String, String> values, String error) {
+            this.line = line;
+            this.values = values;
+            this.error = error;
+        }
+    }
+
+    private interface RowReader {
+        // The next data row, or null at the end of the feed
+        FeedRow next() throws IOException;
+    }
+
+    // A feed that cannot be read past this point, such as a CSV header without the required columns
+    private static class InvalidFeedException extends IOException {
+        InvalidFeedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class CsvRowReader implements RowReader {
+        private final MappingIterator<String[]> rows;
+        private final List<String> header = new ArrayList<>();
+
+        CsvRowReader(BufferedReader reader) throws IOException {
+            CsvMapper mapper = new CsvMapper();
+            mapper.enable(CsvParser.Feature.WRAP_AS_ARRAY);
+            mapper.enable(CsvParser.Feature.SKIP_EMPTY_LINES);
+            rows = mapper.readerFor(String[].class).readValues(reader);
+            if (!rows.hasNextValue()) {
+                throw new InvalidFeedException("The feed is empty; CSV feeds start with a header row");
+            }
+            for (String name : rows.nextValue()) {
+                // A byte order mark from spreadsheet exports would otherwise stick to the first column name
+                header.add(key(name.replace("\uFEFF", "")));
+            }
+            if (!header.containsAll(REQUIRED_COLUMNS)) {
+                throw new InvalidFeedException("The CSV header must name the columns " + String.join(", ", REQUIRED_COLUMNS)
+                    + "; optional columns are category, description and image_url");
+            }
+        }
+
+        @Override
+        public FeedRow next() throws IOException {
+            try {
+                if (!rows.hasNextValue()) {
+                    return null;
+                }
+                // Where the row starts; a quoted value may carry it over several lines
+                long line = rows.getCurrentLocation().getLineNr();
+                String[] fields = rows.nextValue();
+                if (fields.length > header.size()) {
+                    return new FeedRow(line, null, fields.length + " values for " + header.size() + " columns");
+                }
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < fields.length; i++) {
+                    if (COLUMNS.contains(header.get(i))) {
+                        values.put(header.get(i), value(fields[i]));
+                    }
+                }
+                return new FeedRow(line, values, null);
+            } catch (JsonProcessingException e) {
+                // Quoting the parser cannot follow leaves no way to tell where the next row starts
+                throw new InvalidFeedException("Malformed CSV at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public FeedRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+            if (text == null) {
+                return null;
+            }
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new FeedRow(line, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new FeedRow(line, null, "Expected a JSON object");
+            }
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                String column = key(field.getKey());
+                if (!COLUMNS.contains(column) || field.getValue().isNull()) {
+                    continue;
+                }
+                if (!field.getValue().isValueNode()) {
+                    return new FeedRow(line, null, field.getKey() + " must be a string or a number");
+                }
+                values.put(column, value(field.getValue().asText()));
+            }
+            return new FeedRow(line, values, null);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookstore.demo.catalog;
+
+/**
+ * ISBN parsing for catalog feeds. Books are keyed by ISBN-13, so an ISBN-10 and its ISBN-13 form
+ * are the same book; hyphens and spaces are ignored and check digits are verified.
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * Returns the ISBN-13 for a 10 or 13 digit ISBN, or null if it is malformed or its check digit is wrong.
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String isbn = raw.replace("-", "").replace(" ", "").toUpperCase();
+        if (isbn.length() == 13 && isDigits(isbn, 13)) {
+            return isbn.charAt(12) == checkDigit13(isbn.substring(0, 12)) ? isbn : null;
+        }
+        if (isbn.length() == 10 && isDigits(isbn, 9) && (Character.isDigit(isbn.charAt(9)) || isbn.charAt(9) == 'X')) {
+            if (isbn.charAt(9) != checkDigit10(isbn)) {
+                return null;
+            }
+            return withCheckDigit("978" + isbn.substring(0, 9));
+        }
+        return null;
+    }
+
+    /**
+     * Completes the first 12 digits of an ISBN-13 with its check digit.
+     */
+    public static String withCheckDigit(String first12) {
+        return first12 + checkDigit13(first12);
+    }
+
+    private static char checkDigit13(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static char checkDigit10(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (isbn.charAt(i) - '0') * (10 - i);
+        }
+        int check = (11 - sum % 11) % 11;
+        return check == 10 ? 'X' : (char) ('0' + check);
+    }
+
+    private static boolean isDigits(String value, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
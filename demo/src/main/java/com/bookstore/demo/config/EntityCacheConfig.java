@@ -0,0 +1,35 @@
+package com.bookstore.demo.config;
+
+import java.net.URI;
+
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Gives the second-level cache of each database its own JCache manager. Caffeine hands out one
+ * manager per URI, and Hibernate would ask for the provider's default one, so every application
+ * context in the JVM (as in tests, each over its own in-memory database) would share the
+ * {@code books} and {@code users} regions and read each other's rows. The manager is keyed by the
+ * datasource URL instead; that is not a config resource, so the regions still come from
+ * {@code application.conf}.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheManagerPerDatabase() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER,
+            Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(datasourceUrl), EntityCacheConfig.class.getClassLoader()));
+    }
+}
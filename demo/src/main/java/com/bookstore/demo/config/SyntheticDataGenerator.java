@@ -0,0 +1,307 @@
+package com.bookstore.demo.config;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.catalog.Isbn;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.util.ZipfSampler;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Bulk-loads a production-sized dataset for local testing: books, users, reviews, order history
+ * and open carts, sized by the {@code bookstore.seed.*} properties. Which books get reviewed,
+ * ordered and carted, and which users are most active, follows a Zipf distribution, so a few
+ * titles and users dominate as they would in a real store.
+ * <p>
+ * Rows are written with explicit ids in JDBC batches, one transaction per batch, and each table's
+ * rows per second are logged. Generation is deterministic for a given random seed, and is skipped
+ * if generated users are already present.
+ */
+@Component
+public class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String EMAIL_DOMAIN = "@seed.bookstore.test";
+
+    private static final String[] ADJECTIVES = { "Silent", "Lost", "Golden", "Hidden", "Broken", "Winter", "Crimson",
+        "Last", "Secret", "Distant", "Burning", "Quiet", "Wild", "Forgotten", "Northern", "Little" };
+    private static final String[] NOUNS = { "River", "Dragon", "Garden", "King", "Empire", "Letter", "Forest", "Harbor",
+        "Queen", "Island", "Machine", "Daughter", "Storm", "Mirror", "Road", "Clockmaker" };
+    private static final String[] PLACES = { "Avalon", "the North", "Glass", "Stars", "Ashes", "Summer", "the Deep",
+        "Tomorrow", "Salt", "the Old World" };
+    private static final String[] CATEGORIES = { "Fiction", "Fantasy", "Thriller", "Romance", "History", "Science",
+        "Dystopian", "Philosophy", "Biography", "Children" };
+    private static final String[] FIRST_NAMES = { "Alex", "Sam", "Priya", "Wei", "Maria", "Omar", "Yuki", "Noah",
+        "Fatima", "Lucas", "Aisha", "Mateo", "Chen", "Olga", "Kofi", "Emma" };
+    private static final String[] LAST_NAMES = { "Smith", "Garcia", "Khan", "Wang", "Müller", "Silva", "Okafor",
+        "Tanaka", "Rossi", "Novak", "Kim", "Dubois", "Singh", "Cohen", "Haddad", "Jensen" };
+    private static final String[] STREETS = { "Main St", "Oak Ave", "Pine Rd", "Elm St", "Lake Dr", "Hill Rd" };
+
+    // Cumulative share of 1 to 5 star ratings; reviews lean positive
+    private static final double[] RATING_CDF = { 0.05, 0.13, 0.30, 0.65, 1.0 };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${bookstore.seed.books:0}")
+    private int books;
+
+    @Value("${bookstore.seed.users:0}")
+    private int users;
+
+    @Value("${bookstore.seed.reviews:0}")
+    private long reviews;
+
+    @Value("${bookstore.seed.orders:0}")
+    private long orders;
+
+    @Value("${bookstore.seed.carts:0}")
+    private int carts;
+
+    @Value("${bookstore.seed.book-zipf-exponent:1.0}")
+    private double bookZipfExponent;
+
+    // Activity is far less concentrated than popularity: at 1.0 one user would write a tenth of everything
+    @Value("${bookstore.seed.user-zipf-exponent:0.5}")
+    private double userZipfExponent;
+
+    @Value("${bookstore.seed.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${bookstore.seed.random-seed:42}")
+    private long randomSeed;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private long firstBookId;
+    private long firstUserId;
+    private ZipfSampler popularBooks;
+    private ZipfSampler activeUsers;
+    private long bookScatter;
+    private long userScatter;
+
+    public boolean isEnabled() {
+        return books > 0 || users > 0;
+    }
+
+    public void generate() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email LIKE ?", Long.class, "%" + EMAIL_DOMAIN) > 0) {
+            log.info("Synthetic data already present, skipping generation");
+            return;
+        }
+        if (books < 1 || users < 1) {
+            throw new IllegalStateException("bookstore.seed.books and bookstore.seed.users must both be positive");
+        }
+        long start = System.nanoTime();
+        firstBookId = nextId("books");
+        firstUserId = nextId("users");
+        popularBooks = new ZipfSampler(books, bookZipfExponent);
+        activeUsers = new ZipfSampler(users, userZipfExponent);
+        bookScatter = coprimeMultiplier(books);
+        userScatter = coprimeMultiplier(users);
+
+        generateBooks();
+        generateUsers();
+        generateReviews();
+        generateOrders();
+        generateCarts();
+
+        for (String table : List.of("books", "users", "reviews", "orders", "order_items")) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId(table));
+        }
+        // Rows went around Hibernate, so nothing cached before them can be trusted
+        entityManagerFactory.getCache().evictAll();
+        log.info("Synthetic data generated in {} s", String.format("%.1f", (System.nanoTime() - start) / 1e9));
+    }
+
+    private void generateBooks() {
+        Random random = new Random(randomSeed);
+        int authors = Math.max(1, books / 8);
+        load("books", books, (first, size, rows) -> {
+            for (long i = first; i < first + size; i++) {
+                String title = pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " of " + pick(random, PLACES);
+                // 979 prefixed ISBNs derived from the id, so generated catalogs export and re-import cleanly
+                rows.add(new Object[] { firstBookId + i, Isbn.withCheckDigit(String.format("979%09d", firstBookId + i)), title,
+                    "Author " + (1 + random.nextInt(authors)), pick(random, CATEGORIES), price(i),
+                    "Volume " + (i + 1) + " of the generated catalog", null });
+            }
+            return batch("INSERT INTO books (id, isbn, title, author, category, price, description, image_url) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        });
+    }
+
+    private void generateUsers() {
+        Random random = new Random(randomSeed + 1);
+        load("users", users, (first, size, rows) -> {
+            for (long i = first; i < first + size; i++) {
+                rows.add(new Object[] { firstUserId + i, pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES),
+                    "user" + (i + 1) + EMAIL_DOMAIN, String.format("+1-555-%07d", i % 10_000_000),
+                    (1 + random.nextInt(9999)) + " " + pick(random, STREETS), pastTimestamp(random) });
+            }
+            return batch("INSERT INTO users (id, name, email, phone, address, created_at) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        });
+    }
+
+    private void generateReviews() {
+        Random random = new Random(randomSeed + 2);
+        long firstReviewId = nextId("reviews");
+        load("reviews", reviews, (first, size, rows) -> {
+            for (long i = first; i < first + size; i++) {
+                rows.add(new Object[] { firstReviewId + i, activeUser(random), popularBook(random), rating(random),
+                    "Generated review", pastTimestamp(random) });
+            }
+            return batch("INSERT INTO reviews (id, user_id, book_id, rating, comment, created_at) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        });
+    }
+
+    // Order history only: nothing is left pending, so no stock reservations are needed
+    private void generateOrders() {
+        Random random = new Random(randomSeed + 3);
+        long firstOrderId = nextId("orders");
+        long[] nextItemId = { nextId("order_items") };
+        load("orders", orders, (first, size, rows) -> {
+            List<Object[]> items = new ArrayList<>(size * 3);
+            for (long i = first; i < first + size; i++) {
+                long orderId = firstOrderId + i;
+                BigDecimal total = BigDecimal.ZERO;
+                int lines = 1 + random.nextInt(4);
+                for (int line = 0; line < lines; line++) {
+                    long bookId = popularBook(random);
+                    int quantity = random.nextInt(10) == 0 ? 2 : 1;
+                    BigDecimal unitPrice = BigDecimal.valueOf(price(bookId - firstBookId)).setScale(2, RoundingMode.HALF_EVEN);
+                    BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+                    total = total.add(totalPrice);
+                    items.add(new Object[] { nextItemId[0]++, orderId, bookId, quantity, unitPrice, totalPrice });
+                }
+                Timestamp placed = pastTimestamp(random);
+                Order.OrderStatus status = random.nextInt(20) == 0 ? Order.OrderStatus.CANCELLED : Order.OrderStatus.DELIVERED;
+                rows.add(new Object[] { orderId, activeUser(random), total, status.name(), "Generated address", placed, placed });
+            }
+            int inserted = batch("INSERT INTO orders (id, user_id, total_amount, status, shipping_address, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+            return inserted + batch("INSERT INTO order_items (id, order_id, book_id, quantity, unit_price, total_price) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", items);
+        });
+    }
+
+    // Open carts for the first users; their ids come from the cart store so later cart writes cannot collide
+    private void generateCarts() {
+        Random random = new Random(randomSeed + 4);
+        int cartCount = Math.min(carts, users);
+        load("carts", cartCount, (first, size, rows) -> {
+            for (long i = first; i < first + size; i++) {
+                int lines = 1 + random.nextInt(5);
+                long itemId = cartStore.allocateItemIds(lines);
+                List<Long> inCart = new ArrayList<>(lines);
+                while (inCart.size() < Math.min(lines, books)) {
+                    long bookId = popularBook(random);
+                    if (!inCart.contains(bookId)) {
+                        inCart.add(bookId);
+                        rows.add(new Object[] { itemId++, firstUserId + i, bookId, 1 + random.nextInt(3), pastTimestamp(random) });
+                    }
+                }
+            }
+            return batch("INSERT INTO cart_items (id, user_id, book_id, quantity, added_at) VALUES (?, ?, ?, ?, ?)", rows);
+        });
+    }
+
+    private interface ChunkWriter {
+        // Adds generated rows for [first, first + size) and returns how many database rows were inserted
+        int write(long first, int size, List<Object[]> rows);
+    }
+
+    private void load(String what, long count, ChunkWriter writer) {
+        long start = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long inserted = 0;
+        for (long first = 0; first < count; first += batchSize) {
+            long from = first;
+            int size = (int) Math.min(batchSize, count - first);
+            inserted += transactionTemplate.execute(status -> writer.write(from, size, new ArrayList<>(size)));
+        }
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        log.info("Generated {} {} ({} rows) in {} s: {} rows/s", count, what, inserted,
+            String.format("%.1f", seconds), String.format("%,.0f", inserted / seconds));
+    }
+
+    private int batch(String sql, List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(sql, rows);
+        return rows.size();
+    }
+
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+    }
+
+    // Popularity ranks are scattered over the catalog so the bestsellers are not simply the lowest ids
+    private long popularBook(Random random) {
+        return firstBookId + (popularBooks.sample(random) - 1) * bookScatter % books;
+    }
+
+    private long activeUser(Random random) {
+        return firstUserId + (activeUsers.sample(random) - 1) * userScatter % users;
+    }
+
+    // Multiplying by a constant coprime to n permutes [0, n)
+    private static long coprimeMultiplier(long n) {
+        long multiplier = 2_654_435_761L % n;
+        while (gcd(multiplier, n) != 1) {
+            multiplier++;
+        }
+        return multiplier;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // Prices derive from the book's index, so order lines can be priced without keeping the catalog in memory
+    private static double price(long bookIndex) {
+        long hash = (bookIndex + 1) * 0x9E3779B97F4A7C15L;
+        return (499 + (hash >>> 40) % 3000) / 100.0;
+    }
+
+    private static int rating(Random random) {
+        double r = random.nextDouble();
+        int stars = 1;
+        while (r > RATING_CDF[stars - 1]) {
+            stars++;
+        }
+        return stars;
+    }
+
+    private Timestamp pastTimestamp(Random random) {
+        return Timestamp.valueOf(now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)));
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,84 @@
+package com.bookstore.demo.controller;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bookstore.demo.analytics.SalesAnalytics;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "*")
+public class AnalyticsController {
+
+    private static final int MAX_TOP_SELLERS = 100;
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 3660;
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @GetMapping("/top-sellers")
+    public ResponseEntity<List<SalesAnalytics.BookSales>> getTopSellers(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<SalesAnalytics.BookSales> sales = salesAnalytics.topSellers(from, to, Math.max(1, Math.min(limit, MAX_TOP_SELLERS)));
+
+        Map<Long, Book> books = StreamSupport.stream(bookRepository.findAllById(
+                sales.stream().map(SalesAnalytics.BookSales::getBookId).toList()).spliterator(), false)
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+        for (SalesAnalytics.BookSales book : sales) {
+            Book found = books.get(book.getBookId());
+            if (found != null) {
+                book.setTitle(found.getTitle());
+                book.setAuthor(found.getAuthor());
+            }
+        }
+        return ResponseEntity.ok(sales);
+    }
+
+    @GetMapping("/revenue-by-category")
+    public ResponseEntity<List<SalesAnalytics.CategorySales>> getRevenueByCategory(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesAnalytics.revenueByCategory(from, to));
+    }
+
+    // Defaults to the last 30 days up to today
+    @GetMapping("/revenue-by-day")
+    public ResponseEntity<List<SalesAnalytics.DaySales>> getRevenueByDay(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate last = to != null ? to : LocalDate.now();
+        LocalDate first = from != null ? from : last.minusDays(DEFAULT_DAYS - 1);
+        if (first.isAfter(last) || ChronoUnit.DAYS.between(first, last) >= MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(salesAnalytics.revenueByDay(first, last));
+    }
+}
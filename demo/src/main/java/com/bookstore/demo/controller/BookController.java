@@ -1,13 +1,47 @@
 package com.bookstore.demo.controller;
 
+import com.bookstore.demo.catalog.CatalogExporter;
+import com.bookstore.demo.catalog.CatalogFormat;
+import com.bookstore.demo.catalog.CatalogImporter;
+import com.bookstore.demo.dto.CatalogImportReport;
 import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.recommendation.BookPopularity;
+import com.bookstore.demo.recommendation.RecommendationEngine;
 import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.search.BookFacetIndex;
+import com.bookstore.demo.search.BookSearchIndex;
+import com.bookstore.demo.search.BookSuggestIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -17,13 +51,196 @@ public class BookController {
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+    
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+    
+    @Autowired
+    private RecommendationEngine recommendationEngine;
+    
+    @Autowired
+    private BookPopularity bookPopularity;
+    
+    @Autowired
+    private CatalogImporter catalogImporter;
+    
+    @Autowired
+    private CatalogExporter catalogExporter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private static final int MAX_RESULTS = 500;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "price", "title");
+    
     @GetMapping("/books")
-    public List<Book> searchBooks(@RequestParam(value = "q", defaultValue = "") String query) {
-        if (query.isEmpty()) {
-            return bookRepository.findAll();
-        } else {
-            return bookRepository.searchBooks(query);
+    public List<Book> searchBooks(@RequestParam(value = "q", defaultValue = "") String query,
+                                  @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (query.isBlank()) {
+            // Without a query this is the first page of the catalog, not the whole table
+            return bookRepository.findBy(ScrollPosition.keyset(), Sort.by("id"), Limit.of(clamp(limit))).getContent();
+        }
+        
+        // Rank in memory, then fetch only the winning rows by primary key
+        return findAllInOrder(bookSearchIndex.search(query, clamp(limit)));
+    }
+    
+    @GetMapping("/books/suggest")
+    public List<BookSuggestIndex.Suggestion> suggestBooks(@RequestParam(value = "q", defaultValue = "") String query,
+                                                          @RequestParam(value = "limit", defaultValue = "8") int limit) {
+        // Served from memory alone, so it can be called on every keystroke
+        return bookSuggestIndex.suggest(query, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+    
+    // Both lists are ranked as activity arrives, so serving them is a copy of the ids and one lookup by primary key
+    @GetMapping("/books/bestsellers")
+    public List<Book> getBestsellers(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return findAllInOrder(bookPopularity.bestsellers(clamp(limit)));
+    }
+    
+    @GetMapping("/books/trending")
+    public List<Book> getTrending(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return findAllInOrder(bookPopularity.trending(clamp(limit)));
+    }
+    
+    @GetMapping("/books/page")
+    public ResponseEntity<BookPage> getBookPage(@RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                                @RequestParam(value = "size", defaultValue = "50") int size,
+                                                @RequestParam(value = "cursor", required = false) String cursor) {
+        Optional<Sort.Direction> sortDirection = Sort.Direction.fromOptionalString(direction);
+        if (!SORTABLE_FIELDS.contains(sort) || sortDirection.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        ScrollPosition position;
+        try {
+            position = cursor == null || cursor.isEmpty() ? ScrollPosition.keyset() : decodeCursor(cursor, sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Sort.Direction dir = sortDirection.get();
+        int limit = clamp(size);
+        if ("id".equals(sort)) {
+            Window<Book> window = bookRepository.findBy(position, Sort.by(dir, "id"), Limit.of(limit));
+            return ResponseEntity.ok(new BookPage(window.getContent(), nextCursor(sort, window)));
+        }
+        
+        // Ties on price or title are broken by id so every row has a unique position. Books without
+        // a value come last, by id: a cursor whose value is null is in that second part
+        KeysetScrollPosition keyset = (KeysetScrollPosition) position;
+        boolean inNulls = !keyset.isInitial() && keyset.getKeys().get(sort) == null;
+        List<Book> items = new ArrayList<>();
+        if (!inNulls) {
+            Window<Book> window = withValue(sort, position, Sort.by(dir, sort).and(Sort.by(dir, "id")), Limit.of(limit));
+            if (window.hasNext()) {
+                return ResponseEntity.ok(new BookPage(window.getContent(), nextCursor(sort, window)));
+            }
+            items.addAll(window.getContent());
+            position = ScrollPosition.keyset();
+        }
+        if (items.size() == limit) {
+            // Whether any books without a value follow is only known by looking
+            Window<Book> next = withoutValue(sort, position, Sort.by(dir, "id"), Limit.of(1));
+            String nextCursor = next.isEmpty() ? null : encodeCursor(sort, items.get(items.size() - 1));
+            return ResponseEntity.ok(new BookPage(items, nextCursor));
+        }
+        Window<Book> window = withoutValue(sort, position, Sort.by(dir, "id"), Limit.of(limit - items.size()));
+        items.addAll(window.getContent());
+        return ResponseEntity.ok(new BookPage(items, nextCursor(sort, window)));
+    }
+    
+    private Window<Book> withValue(String sort, ScrollPosition position, Sort order, Limit limit) {
+        return "price".equals(sort)
+            ? bookRepository.findByPriceNotNull(position, order, limit)
+            : bookRepository.findByTitleNotNull(position, order, limit);
+    }
+    
+    private Window<Book> withoutValue(String sort, ScrollPosition position, Sort order, Limit limit) {
+        return "price".equals(sort)
+            ? bookRepository.findByPriceIsNull(position, order, limit)
+            : bookRepository.findByTitleIsNull(position, order, limit);
+    }
+    
+    @GetMapping("/books/facets")
+    public ResponseEntity<FacetedBookPage> browseBooks(@RequestParam MultiValueMap<String, String> params) {
+        // Facet values arrive as repeated parameters, read raw so values containing commas are not split
+        BookFacetIndex.FacetQuery query = new BookFacetIndex.FacetQuery();
+        try {
+            query.setText(params.getFirst("q"));
+            query.setSize(clamp(Integer.parseInt(params.getOrDefault("size", List.of("20")).get(0))));
+            query.setFacetLimit(clamp(Integer.parseInt(params.getOrDefault("facetLimit", List.of("20")).get(0))));
+            String cursor = params.getFirst("cursor");
+            query.setAfterBookId(cursor == null || cursor.isEmpty() ? null : Long.valueOf(cursor));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (String facet : List.of(BookFacetIndex.CATEGORY, BookFacetIndex.AUTHOR, BookFacetIndex.PRICE)) {
+            query.select(facet, params.get(facet));
         }
+        if (!BookFacetIndex.priceBuckets().containsAll(query.getSelected(BookFacetIndex.PRICE))) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        BookFacetIndex.FacetResult result = bookFacetIndex.browse(query);
+        List<Book> items = findAllInOrder(result.getBookIds());
+        String nextCursor = result.hasMore() ? String.valueOf(result.getBookIds().get(result.getBookIds().size() - 1)) : null;
+        return ResponseEntity.ok(new FacetedBookPage(result.getTotal(), items, nextCursor, result.getFacets()));
+    }
+    
+    @GetMapping(value = "/books/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBooks() {
+        // One JSON document per line, fetched in keyset batches so heap use does not grow with the catalog
+        StreamingResponseBody body = out -> catalogExporter.export(out, CatalogFormat.NDJSON);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @GetMapping("/books/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(value = "format", defaultValue = "csv") String format) {
+        CatalogFormat catalogFormat;
+        try {
+            catalogFormat = CatalogFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> catalogExporter.export(out, catalogFormat);
+        String filename = "books." + catalogFormat.name().toLowerCase();
+        return ResponseEntity.ok()
+            .contentType(catalogFormat.getMediaType())
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(body);
+    }
+    
+    @PostMapping(value = "/books/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE },
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                             InputStream feed) {
+        CatalogFormat format = CatalogFormat.of(contentType);
+        ObjectWriter writer = objectMapper.writerFor(CatalogImportReport.class);
+        
+        // The feed is read while progress goes out: one report line per chunk written, the last one with done set
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter lines = writer.withRootValueSeparator("\n").writeValues(out)) {
+                CatalogImportReport report = catalogImporter.importBooks(feed, format, progress -> {
+                    try {
+                        lines.write(progress);
+                        lines.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                lines.write(report);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/books/{id}")
@@ -39,8 +256,131 @@ public class BookController {
     @GetMapping("/recommendations/{userId}")
     public List<Book> getRecommendations(@PathVariable Long userId, 
                                        @RequestParam(value = "limit", defaultValue = "8") int limit) {
-        // For demo purposes, just return the first few books as recommendations
-        List<Book> allBooks = bookRepository.findAll();
-        return allBooks.stream().limit(limit).toList();
+        int size = clamp(limit);
+        List<Book> books = new ArrayList<>(findAllInOrder(recommendationEngine.recommend(userId, size)));
+        
+        // Cold start: before any orders, carts or reviews exist, fall back to the start of the catalog
+        if (books.size() < size) {
+            Set<Long> seen = books.stream().map(Book::getId).collect(Collectors.toSet());
+            for (Book book : bookRepository.findBy(ScrollPosition.keyset(), Sort.by("id"), Limit.of(size + seen.size()))) {
+                if (books.size() < size && seen.add(book.getId())) {
+                    books.add(book);
+                }
+            }
+        }
+        return books;
+    }
+    
+    // Loads books by id, keeping the caller's ranking and skipping ids that no longer exist
+    private List<Book> findAllInOrder(List<Long> ids) {
+        Map<Long, Book> booksById = bookRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream().map(booksById::get).filter(Objects::nonNull).toList();
+    }
+    
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_RESULTS));
+    }
+    
+    private static String nextCursor(String sort, Window<Book> window) {
+        return window.hasNext() && !window.isEmpty() ? encodeCursor(sort, window.getContent().get(window.size() - 1)) : null;
+    }
+    
+    // Cursor format before encoding: "<sort>|<last id>|<last sort value>", or "<sort>|<last id>" for a book without a value
+    private static String encodeCursor(String sort, Book last) {
+        Object value = "price".equals(sort) ? last.getPrice() : "title".equals(sort) ? last.getTitle() : last.getId();
+        String raw = sort + "|" + last.getId() + (value == null ? "" : "|" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static KeysetScrollPosition decodeCursor(String cursor, String sort) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 2 || !parts[0].equals(sort) || (parts.length == 2 && "id".equals(sort))) {
+            throw new IllegalArgumentException("Cursor does not belong to sort " + sort);
+        }
+        
+        // Without a value the cursor resumes among the books that have none, which are paged by id alone
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if ("price".equals(sort) && parts.length == 3) {
+            keys.put("price", Double.valueOf(parts[2]));
+        } else if ("title".equals(sort) && parts.length == 3) {
+            keys.put("title", parts[2]);
+        }
+        keys.put("id", Long.valueOf(parts[1]));
+        return ScrollPosition.forward(keys);
+    }
+    
+    // Inner class for keyset pages
+    public static class BookPage {
+        private List<Book> items;
+        private String nextCursor;
+        
+        public BookPage(List<Book> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<Book> getItems() {
+            return items;
+        }
+        
+        public void setItems(List<Book> items) {
+            this.items = items;
+        }
+        
+        public String getNextCursor() {
+            return nextCursor;
+        }
+        
+        public void setNextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+        }
+    }
+    
+    // Inner class for faceted browsing: one page of matches plus the counts of every facet
+    public static class FacetedBookPage {
+        private int total;
+        private List<Book> items;
+        private String nextCursor;
+        private Map<String, List<BookFacetIndex.FacetCount>> facets;
+        
+        public FacetedBookPage(int total, List<Book> items, String nextCursor, Map<String, List<BookFacetIndex.FacetCount>> facets) {
+            this.total = total;
+            this.items = items;
+            this.nextCursor = nextCursor;
+            this.facets = facets;
+        }
+        
+        public int getTotal() {
+            return total;
+        }
+        
+        public void setTotal(int total) {
+            this.total = total;
+        }
+        
+        public List<Book> getItems() {
+            return items;
+        }
+        
+        public void setItems(List<Book> items) {
+            this.items = items;
+        }
+        
+        public String getNextCursor() {
+            return nextCursor;
+        }
+        
+        public void setNextCursor(String nextCursor) {
+            this.nextCursor = nextCursor;
+        }
+        
+        public Map<String, List<BookFacetIndex.FacetCount>> getFacets() {
+            return facets;
+        }
+        
+        public void setFacets(Map<String, List<BookFacetIndex.FacetCount>> facets) {
+            this.facets = facets;
+        }
     }
 }
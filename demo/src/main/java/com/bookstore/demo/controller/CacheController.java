@@ -0,0 +1,96 @@
+package com.bookstore.demo.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    // Regions configured in application.conf
+    private static final String[] REGIONS = {
+        "books",
+        "users",
+        "default-query-results-region",
+        "default-update-timestamps-region"
+    };
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Hit, miss and eviction counts per cache region, plus the statements sent to the database
+    @GetMapping("/stats")
+    public ResponseEntity<CacheStatsResponse> getStats() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, RegionStats> regions = new LinkedHashMap<>();
+        // No regions to report when the second-level cache is switched off
+        if (!(sessionFactory.getCache().getRegionFactory() instanceof JCacheRegionFactory regionFactory)) {
+            return ResponseEntity.ok(new CacheStatsResponse(statistics.getPrepareStatementCount(), regions));
+        }
+        CacheManager cacheManager = regionFactory.getCacheManager();
+        for (String region : REGIONS) {
+            javax.cache.Cache<Object, Object> cache = cacheManager.getCache(region);
+            if (cache != null) {
+                @SuppressWarnings("unchecked")
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine =
+                    cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+                regions.put(region, new RegionStats(caffeine.stats(), caffeine.estimatedSize()));
+            }
+        }
+        return ResponseEntity.ok(new CacheStatsResponse(statistics.getPrepareStatementCount(), regions));
+    }
+
+    // Inner classes for response
+    public static class CacheStatsResponse {
+        private long statementsPrepared;
+        private Map<String, RegionStats> regions;
+
+        public CacheStatsResponse(long statementsPrepared, Map<String, RegionStats> regions) {
+            this.statementsPrepared = statementsPrepared;
+            this.regions = regions;
+        }
+
+        public long getStatementsPrepared() { return statementsPrepared; }
+        public Map<String, RegionStats> getRegions() { return regions; }
+    }
+
+    public static class RegionStats {
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long size;
+        private double hitRate;
+
+        public RegionStats(CacheStats stats, long size) {
+            this.hits = stats.hitCount();
+            this.misses = stats.missCount();
+            this.evictions = stats.evictionCount();
+            this.size = size;
+            this.hitRate = stats.hitRate();
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getSize() { return size; }
+        public double getHitRate() { return hitRate; }
+    }
+}
@@ -15,13 +15,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bookstore.demo.cart.CartStore;
 import com.bookstore.demo.dto.CartItemRequest;
+import com.bookstore.demo.dto.CartLine;
 import com.bookstore.demo.entity.Book;
 import com.bookstore.demo.entity.CartItem;
-import com.bookstore.demo.entity.User;
 import com.bookstore.demo.repository.BookRepository;
-import com.bookstore.demo.repository.CartItemRepository;
-import com.bookstore.demo.repository.UserRepository;
 
 
 
@@ -31,95 +30,61 @@ import com.bookstore.demo.repository.UserRepository;
 public class CartController {
     
     @Autowired
-    private CartItemRepository cartItemRepository;
-    
-    @Autowired
-    private UserRepository userRepository;
+    private CartStore cartStore;
     
     @Autowired
     private BookRepository bookRepository;
     
     @GetMapping("/{userId}")
-    public ResponseEntity<List<CartItem>> getCartItems(@PathVariable Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+    public ResponseEntity<List<CartLine>> getCartItems(@PathVariable Long userId) {
+        List<CartLine> cartItems = cartStore.getItems(userId).stream().map(CartLine::new).toList();
         return ResponseEntity.ok(cartItems);
     }
     
     @PostMapping("/{userId}")
-    public ResponseEntity<CartItem> addToCart(@PathVariable Long userId,
+    public ResponseEntity<CartLine> addToCart(@PathVariable Long userId,
                                             @RequestBody CartItemRequest request) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        Optional<Book> bookOpt = bookRepository.findById(request.getBookId());
-        
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (request.getQuantity() == null || request.getQuantity() < 1) {
+            return ResponseEntity.badRequest().build();
         }
         
+        Optional<Book> bookOpt = bookRepository.findById(request.getBookId());
+        
         if (bookOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
-        User user = userOpt.get();
-        Book book = bookOpt.get();
+        // Adds a new item or raises the quantity of the existing one
+        Optional<CartItem> cartItem = cartStore.add(userId, bookOpt.get(), request.getQuantity());
         
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartItemRepository.findByUserAndBook(user, book);
-        
-        if (existingItem.isPresent()) {
-            // Update quantity
-            CartItem cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + request.getQuantity());
-            return ResponseEntity.ok(cartItemRepository.save(cartItem));
-        } else {
-            // Create new cart item
-            CartItem cartItem = new CartItem(user, book, request.getQuantity());
-            return ResponseEntity.ok(cartItemRepository.save(cartItem));
-        }
+        return cartItem.map(item -> ResponseEntity.ok(new CartLine(item))).orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @PutMapping("/{userId}/{itemId}")
-    public ResponseEntity<CartItem> updateCartItem(@PathVariable Long userId,
+    public ResponseEntity<CartLine> updateCartItem(@PathVariable Long userId,
                                                  @PathVariable Long itemId,
                                                  @RequestBody CartItemRequest request) {
-        Optional<CartItem> cartItemOpt = cartItemRepository.findById(itemId);
-        
-        if (cartItemOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (request.getQuantity() == null || request.getQuantity() < 1) {
+            return ResponseEntity.badRequest().build();
         }
         
-        CartItem cartItem = cartItemOpt.get();
-        
-        // Verify the cart item belongs to the user
-        if (!cartItem.getUser().getId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
+        // Items are looked up in this user's cart only, so other users' items are simply not found
+        Optional<CartItem> cartItem = cartStore.setQuantity(userId, itemId, request.getQuantity());
         
-        cartItem.setQuantity(request.getQuantity());
-        return ResponseEntity.ok(cartItemRepository.save(cartItem));
+        return cartItem.map(item -> ResponseEntity.ok(new CartLine(item))).orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @DeleteMapping("/{userId}/{itemId}")
     public ResponseEntity<Void> removeFromCart(@PathVariable Long userId, @PathVariable Long itemId) {
-        Optional<CartItem> cartItemOpt = cartItemRepository.findById(itemId);
-        
-        if (cartItemOpt.isEmpty()) {
+        if (!cartStore.remove(userId, itemId)) {
             return ResponseEntity.notFound().build();
         }
-        
-        CartItem cartItem = cartItemOpt.get();
-        
-        // Verify the cart item belongs to the user
-        if (!cartItem.getUser().getId().equals(userId)) {
-            return ResponseEntity.status(403).build();
-        }
-        
-        cartItemRepository.delete(cartItem);
         return ResponseEntity.ok().build();
     }
     
     @DeleteMapping("/{userId}")
     public ResponseEntity<Void> clearCart(@PathVariable Long userId) {
-        cartItemRepository.deleteByUserId(userId);
+        cartStore.clear(userId);
         return ResponseEntity.ok().build();
     }
 }
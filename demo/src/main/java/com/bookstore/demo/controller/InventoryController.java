@@ -0,0 +1,55 @@
+package com.bookstore.demo.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.service.InventoryService;
+
+@RestController
+@RequestMapping("/api/inventory")
+@CrossOrigin(origins = "*")
+public class InventoryController {
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @GetMapping("/{bookId}")
+    public ResponseEntity<InventoryService.StockLevel> getStock(@PathVariable Long bookId) {
+        if (!bookRepository.existsById(bookId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(inventoryService.getStock(bookId));
+    }
+    
+    @PutMapping("/{bookId}")
+    public ResponseEntity<InventoryService.StockLevel> setStock(@PathVariable Long bookId,
+                                                                @RequestBody StockRequest request) {
+        if (!bookRepository.existsById(bookId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.getQuantity() == null || request.getQuantity() < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        inventoryService.setStock(bookId, request.getQuantity());
+        return ResponseEntity.ok(inventoryService.getStock(bookId));
+    }
+    
+    // Inner class for request
+    public static class StockRequest {
+        private Integer quantity;
+        
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    }
+}
@@ -1,116 +1,319 @@
 package com.bookstore.demo.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.bookstore.demo.entity.CartItem;
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.dto.OrderLine;
+import com.bookstore.demo.dto.OrderSummary;
+import com.bookstore.demo.dto.OrderTransitionReport;
 import com.bookstore.demo.entity.Order;
-import com.bookstore.demo.entity.OrderItem;
 import com.bookstore.demo.entity.User;
-import com.bookstore.demo.repository.CartItemRepository;
 import com.bookstore.demo.repository.OrderRepository;
 import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.CheckoutService;
+import com.bookstore.demo.service.IdempotencyStore;
+import com.bookstore.demo.service.InventoryService;
+import com.bookstore.demo.service.OrderStatusService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
 public class OrderController {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    
     @Autowired
     private OrderRepository orderRepository;
     
+    @Autowired
+    private OrderArchive orderArchive;
+    
     @Autowired
     private UserRepository userRepository;
     
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CheckoutService checkoutService;
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private OrderStatusService orderStatusService;
+    
+    @Autowired
+    private IdempotencyStore idempotencyStore;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // With an Idempotency-Key, a retry of a checkout that succeeded gets its response back instead of a second order
     @PostMapping("/{userId}/checkout")
-    public ResponseEntity<?> checkout(@PathVariable Long userId, @RequestBody CheckoutRequest request) {
+    public ResponseEntity<?> checkout(@PathVariable Long userId,
+                                      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                      @RequestBody CheckoutRequest request) {
+        if (idempotencyKey == null) {
+            return placeOrder(userId, request);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        
+        try {
+            return idempotencyStore.execute(userId + ":" + idempotencyKey, fingerprint(request),
+                () -> placeOrder(userId, request), response -> response.getStatusCode().is2xxSuccessful());
+        } catch (IdempotencyStore.IdempotencyException e) {
+            return ResponseEntity.status(e.isInProgress() ? 409 : 422).body(e.getMessage());
+        }
+    }
+    
+    private ResponseEntity<?> placeOrder(Long userId, CheckoutRequest request) {
         Optional<User> userOpt = userRepository.findById(userId);
         
         if (userOpt.isEmpty()) {
             return ResponseEntity.badRequest().body("User not found");
         }
         
-        User user = userOpt.get();
-        
-        // Get cart items
-        List<CartItem> cartItems = cartItemRepository.findByUser(user);
-        
-        if (cartItems.isEmpty()) {
-            return ResponseEntity.badRequest().body("Cart is empty");
-        }
-        
-        // Calculate total
-        double totalAmount = cartItems.stream()
-            .mapToDouble(item -> item.getBook().getPrice() * item.getQuantity())
-            .sum();
-        
-        // Create order
-        Order order = new Order();
-        order.setUser(user);
-        order.setTotalAmount(totalAmount);
-        order.setStatus(Order.OrderStatus.CONFIRMED);
-        order.setShippingAddress(request.getShippingAddress());
-        
-        Order savedOrder = orderRepository.save(order);
-        
-        // Create order items from cart items
-        for (CartItem cartItem : cartItems) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(savedOrder);
-            orderItem.setBook(cartItem.getBook());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setUnitPrice(cartItem.getBook().getPrice());
-            orderItem.setTotalPrice(cartItem.getBook().getPrice() * cartItem.getQuantity());
+        String paymentMethod = (String) ((java.util.Map<?, ?>) request.getMetadata()).get("paymentMethod");
+        Order savedOrder;
+        try {
+            savedOrder = checkoutService.checkout(userOpt.get(), request.getShippingAddress(), paymentMethod);
+        } catch (CheckoutService.CheckoutException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
         
-        // Clear cart
-        cartItemRepository.deleteAll(cartItems);
-        
-        // Mock payment response based on payment method
+        // Mock payment response based on payment method; the provider is called from the order outbox after commit
         CheckoutResponse response = new CheckoutResponse();
-        response.setStatus("CONFIRMED");
+        response.setStatus(savedOrder.getStatus().name());
 
-        String paymentMethod = (String) ((java.util.Map<?, ?>) request.getMetadata()).get("paymentMethod");
         if ("upi".equals(paymentMethod)) {
             response.setPaymentProvider("UPI Payment");
-            response.setPaymentReference("UPI-" + System.currentTimeMillis());
+            response.setPaymentReference(paymentReference("UPI", savedOrder.getId()));
         } else if ("cod".equals(paymentMethod)) {
             response.setPaymentProvider("Cash on Delivery");
-            response.setPaymentReference("COD-" + System.currentTimeMillis());
+            response.setPaymentReference(paymentReference("COD", savedOrder.getId()));
         } else {
             response.setPaymentProvider("MockPay");
-            response.setPaymentReference("MP-" + System.currentTimeMillis());
+            response.setPaymentReference(paymentReference("MP", savedOrder.getId()));
         }
 
         response.setOrderId(savedOrder.getId());
-        response.setTotalAmount(totalAmount);
+        response.setTotalAmount(savedOrder.getTotalAmount());
         
         return ResponseEntity.ok(response);
     }
     
-    @GetMapping("/{userId}")
-    public ResponseEntity<List<Order>> getUserOrders(@PathVariable Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+    // Unique because order ids are; the random part keeps references from being guessed from one another
+    private static String paymentReference(String prefix, Long orderId) {
+        return prefix + "-" + orderId + "-" + String.format("%08X", ThreadLocalRandom.current().nextInt());
+    }
+    
+    // Digest of the request body, so a key reused for a different checkout is caught without keeping the body
+    private String fingerprint(CheckoutRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // Payment succeeded: the reserved stock is sold
+    @PostMapping("/{orderId}/confirm")
+    public ResponseEntity<String> confirmOrder(@PathVariable Long orderId) {
+        if (!orderRepository.existsById(orderId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!inventoryService.confirmOrder(orderId)) {
+            return ResponseEntity.status(409).body("Order is not pending");
+        }
+        return ResponseEntity.ok("Order confirmed");
+    }
+    
+    @PostMapping("/{orderId}/cancel")
+    public ResponseEntity<String> cancelOrder(@PathVariable Long orderId) {
+        if (!orderRepository.existsById(orderId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!inventoryService.cancelOrder(orderId)) {
+            return ResponseEntity.status(409).body("Order is not pending");
+        }
+        return ResponseEntity.ok("Order cancelled");
+    }
+    
+    // Any permitted move, e.g. PROCESSING to SHIPPED; confirming and cancelling also settle the order's stock
+    @PostMapping("/{orderId}/status")
+    public ResponseEntity<String> changeStatus(@PathVariable Long orderId, @RequestParam("to") String to) {
+        Order.OrderStatus status;
+        try {
+            status = Order.OrderStatus.valueOf(to.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unknown status " + to);
+        }
+        try {
+            if (!orderStatusService.transition(orderId, status)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (OrderStatusService.TransitionException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }
+        return ResponseEntity.ok("Order " + status.name().toLowerCase());
+    }
+    
+    // Moves every order in one status to the next in chunks, streaming a progress line per chunk
+    @PostMapping(value = "/transitions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> transitionAll(@RequestParam("from") String from,
+                                           @RequestParam("to") String to,
+                                           @RequestParam(value = "afterId", defaultValue = "0") long afterId) {
+        Order.OrderStatus fromStatus;
+        Order.OrderStatus toStatus;
+        try {
+            fromStatus = Order.OrderStatus.valueOf(from.toUpperCase());
+            toStatus = Order.OrderStatus.valueOf(to.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            orderStatusService.checkBulkTransition(fromStatus, toStatus);
+        } catch (OrderStatusService.TransitionException e) {
+            return ResponseEntity.status(409).contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
         
-        if (userOpt.isEmpty()) {
+        ObjectWriter writer = objectMapper.writerFor(OrderTransitionReport.class);
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter lines = writer.withRootValueSeparator("\n").writeValues(out)) {
+                OrderTransitionReport report = orderStatusService.transitionAll(fromStatus, toStatus, afterId, progress -> {
+                    try {
+                        lines.write(progress);
+                        lines.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                lines.write(report);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    // Order history, newest first: one query for a page of orders and one for all of their items, plus one on the archive for old pages
+    @GetMapping("/{userId}")
+    public ResponseEntity<OrderHistoryPage> getUserOrders(@PathVariable Long userId,
+                                                          @RequestParam(value = "size", defaultValue = "20") int size,
+                                                          @RequestParam(value = "cursor", required = false) String cursor) {
+        if (userRepository.findById(userId).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         
-        List<Order> orders = orderRepository.findByUser(userOpt.get());
-        return ResponseEntity.ok(orders);
+        // One row more than the page holds tells whether another page follows
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+        List<OrderSummary> orders;
+        LocalDateTime createdAt = null;
+        Long id = null;
+        if (cursor == null || cursor.isEmpty()) {
+            orders = orderRepository.findSummariesByUserId(userId, limit);
+        } else {
+            try {
+                String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                createdAt = LocalDateTime.parse(keys[0]);
+                id = Long.valueOf(keys[1]);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            orders = orderRepository.findSummariesByUserIdBefore(userId, createdAt, id, limit);
+        }
+        
+        // The archive only holds orders up to its horizon, so it is read once the hot rows run out or reach back that far
+        boolean olderPage = orders.size() <= pageSize
+            ? orderArchive.getHorizon().isAfter(LocalDateTime.MIN)
+            : !orders.get(pageSize).getCreatedAt().isAfter(orderArchive.getHorizon());
+        if (olderPage) {
+            List<OrderSummary> archived = orderArchive.findSummaries(userId, createdAt, id, pageSize + 1);
+            if (!archived.isEmpty()) {
+                orders = newestFirst(orders, archived, pageSize + 1);
+            }
+        }
+        
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            OrderSummary last = orders.get(pageSize - 1);
+            String raw = last.getCreatedAt() + "|" + last.getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        // Archived orders come with their items
+        Map<Long, OrderSummary> ordersById = orders.stream()
+            .filter(order -> order.getItems().isEmpty())
+            .collect(Collectors.toMap(OrderSummary::getId, Function.identity()));
+        if (!ordersById.isEmpty()) {
+            for (OrderLine line : orderRepository.findLinesByOrderIdIn(ordersById.keySet())) {
+                ordersById.get(line.getOrderId()).getItems().add(line);
+            }
+        }
+        return ResponseEntity.ok(new OrderHistoryPage(orders, nextCursor));
+    }
+    
+    // Merges two pages sorted newest first; an order seen in both while being archived is kept once
+    private static List<OrderSummary> newestFirst(List<OrderSummary> hot, List<OrderSummary> archived, int limit) {
+        Comparator<OrderSummary> order = Comparator.comparing(OrderSummary::getCreatedAt)
+            .thenComparing(OrderSummary::getId)
+            .reversed();
+        List<OrderSummary> merged = new ArrayList<>(limit);
+        Set<Long> ids = new HashSet<>();
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            OrderSummary next;
+            if (a == archived.size() || (h < hot.size() && order.compare(hot.get(h), archived.get(a)) < 0)) {
+                next = hot.get(h++);
+            } else {
+                next = archived.get(a++);
+            }
+            if (ids.add(next.getId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
     }
     
     // Inner classes for request/response
@@ -130,12 +333,26 @@ public class OrderController {
         public void setMetadata(Object metadata) { this.metadata = metadata; }
     }
     
+    // Keyset page of the order history
+    public static class OrderHistoryPage {
+        private List<OrderSummary> items;
+        private String nextCursor;
+        
+        public OrderHistoryPage(List<OrderSummary> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<OrderSummary> getItems() { return items; }
+        public String getNextCursor() { return nextCursor; }
+    }
+    
     public static class CheckoutResponse {
         private String status;
         private String paymentProvider;
         private String paymentReference;
         private Long orderId;
-        private Double totalAmount;
+        private BigDecimal totalAmount;
         
         // Getters and setters
         public String getStatus() { return status; }
@@ -150,7 +367,7 @@ public class OrderController {
         public Long getOrderId() { return orderId; }
         public void setOrderId(Long orderId) { this.orderId = orderId; }
         
-        public Double getTotalAmount() { return totalAmount; }
-        public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
     }
 }
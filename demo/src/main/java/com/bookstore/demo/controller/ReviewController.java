@@ -1,9 +1,13 @@
 package com.bookstore.demo.controller;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,20 +19,30 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.bookstore.demo.dto.ReviewRequest;
+import com.bookstore.demo.dto.ReviewView;
 import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.BookRatingStats;
 import com.bookstore.demo.entity.Review;
 import com.bookstore.demo.entity.User;
 import com.bookstore.demo.repository.BookRepository;
 import com.bookstore.demo.repository.ReviewRepository;
 import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.ReviewService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 
 @RestController
 @RequestMapping("/api/reviews")
 @CrossOrigin(origins = "*")
 public class ReviewController {
     
+    private static final int MAX_BATCH_STATS = 500;
+    private static final int STREAM_BATCH_SIZE = 500;
+    
     @Autowired
     private ReviewRepository reviewRepository;
     
@@ -38,20 +52,53 @@ public class ReviewController {
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private ReviewService reviewService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping("/book/{bookId}")
-    public ResponseEntity<List<Review>> getReviewsByBook(@PathVariable Long bookId) {
-        List<Review> reviews = reviewRepository.findByBookId(bookId);
+    public ResponseEntity<List<ReviewView>> getReviewsByBook(@PathVariable Long bookId) {
+        List<ReviewView> reviews = reviewRepository.findViewsByBookId(bookId);
         return ResponseEntity.ok(reviews);
     }
     
+    @GetMapping(value = "/book/{bookId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReviewsByBook(@PathVariable Long bookId) {
+        ObjectWriter writer = objectMapper.writerFor(ReviewView.class);
+        
+        // One review per line in keyset batches: a slow reader blocks the next batch instead of the
+        // server buffering them, and no connection is held between batches
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter lines = writer.withRootValueSeparator("\n").writeValues(out)) {
+                Long lastId = 0L;
+                List<ReviewView> batch;
+                do {
+                    batch = reviewRepository.findViewsByBookIdAfter(bookId, lastId, Limit.of(STREAM_BATCH_SIZE));
+                    for (ReviewView review : batch) {
+                        lines.write(review);
+                        lastId = review.getId();
+                    }
+                    lines.flush();
+                } while (batch.size() == STREAM_BATCH_SIZE);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Review>> getReviewsByUser(@PathVariable Long userId) {
-        List<Review> reviews = reviewRepository.findByUserId(userId);
+    public ResponseEntity<List<ReviewView>> getReviewsByUser(@PathVariable Long userId) {
+        List<ReviewView> reviews = reviewRepository.findViewsByUserId(userId);
         return ResponseEntity.ok(reviews);
     }
     
     @PostMapping
     public ResponseEntity<String> addReview(@RequestBody ReviewRequest request) {
+        if (!ReviewService.isValidRating(request.getRating())) {
+            return ResponseEntity.badRequest().body("Rating must be between 1 and 5");
+        }
+        
         Optional<User> userOpt = userRepository.findById(request.getUserId());
         Optional<Book> bookOpt = bookRepository.findById(request.getBookId());
 
@@ -68,15 +115,18 @@ public class ReviewController {
             return ResponseEntity.badRequest().body("User has already reviewed this book");
         }
 
-        Review review = new Review(user, book, request.getRating(), request.getComment());
-        reviewRepository.save(review);
+        reviewService.addReview(user, book, request.getRating(), request.getComment());
 
         return ResponseEntity.ok("Review submitted successfully");
     }
     
     @PutMapping("/{reviewId}")
-    public ResponseEntity<Review> updateReview(@PathVariable Long reviewId,
-                                             @RequestBody ReviewRequest request) {
+    public ResponseEntity<ReviewView> updateReview(@PathVariable Long reviewId,
+                                                 @RequestBody ReviewRequest request) {
+        if (!ReviewService.isValidRating(request.getRating())) {
+            return ResponseEntity.badRequest().build();
+        }
+        
         Optional<Review> reviewOpt = reviewRepository.findById(reviewId);
         
         if (reviewOpt.isEmpty()) {
@@ -90,10 +140,13 @@ public class ReviewController {
             return ResponseEntity.status(403).build();
         }
         
-        review.setRating(request.getRating());
-        review.setComment(request.getComment());
-        
-        return ResponseEntity.ok(reviewRepository.save(review));
+        // Re-read under the book's lock; a concurrent delete may have got there first
+        if (reviewService.updateReview(reviewId, request.getRating(), request.getComment()).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return reviewRepository.findViewById(reviewId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @DeleteMapping("/{reviewId}")
@@ -112,19 +165,31 @@ public class ReviewController {
             return ResponseEntity.status(403).build();
         }
         
-        reviewRepository.delete(review);
+        if (!reviewService.deleteReview(reviewId)) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok().build();
     }
     
     @GetMapping("/book/{bookId}/stats")
     public ResponseEntity<ReviewStats> getReviewStats(@PathVariable Long bookId) {
-        Double averageRating = reviewRepository.findAverageRatingByBookId(bookId);
-        Long reviewCount = reviewRepository.countReviewsByBookId(bookId);
+        return ResponseEntity.ok(new ReviewStats(reviewService.getStats(bookId)));
+    }
+    
+    @GetMapping("/stats")
+    public ResponseEntity<Map<Long, ReviewStats>> getReviewStatsBatch(@RequestParam List<Long> bookIds) {
+        if (bookIds.size() > MAX_BATCH_STATS) {
+            return ResponseEntity.badRequest().build();
+        }
         
-        ReviewStats stats = new ReviewStats(
-            averageRating != null ? averageRating : 0.0,
-            reviewCount != null ? reviewCount : 0L
-        );
+        // Books without reviews have no stats row and report zeros
+        Map<Long, ReviewStats> stats = new LinkedHashMap<>();
+        for (Long bookId : bookIds) {
+            stats.put(bookId, new ReviewStats(new BookRatingStats(bookId)));
+        }
+        for (BookRatingStats bookStats : reviewService.getStats(bookIds)) {
+            stats.put(bookStats.getBookId(), new ReviewStats(bookStats));
+        }
         
         return ResponseEntity.ok(stats);
     }
@@ -133,12 +198,19 @@ public class ReviewController {
     public static class ReviewStats {
         private Double averageRating;
         private Long reviewCount;
+        // Review counts for one to five stars
+        private List<Long> histogram;
         
         public ReviewStats(Double averageRating, Long reviewCount) {
             this.averageRating = averageRating;
             this.reviewCount = reviewCount;
         }
         
+        public ReviewStats(BookRatingStats stats) {
+            this(stats.getAverageRating(), stats.getReviewCount());
+            this.histogram = stats.getHistogram();
+        }
+        
         public Double getAverageRating() {
             return averageRating;
         }
@@ -154,5 +226,13 @@ public class ReviewController {
         public void setReviewCount(Long reviewCount) {
             this.reviewCount = reviewCount;
         }
+        
+        public List<Long> getHistogram() {
+            return histogram;
+        }
+        
+        public void setHistogram(List<Long> histogram) {
+            this.histogram = histogram;
+        }
     }
 }
@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.bookstore.demo.entity.User;
 import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.UserService;
 
 @RestController
 @RequestMapping("/api/users")
@@ -26,6 +27,9 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserService userService;
+    
     @GetMapping
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -88,8 +92,7 @@ public class UserController {
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+        if (userService.deleteUser(id)) {
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -0,0 +1,42 @@
+package com.bookstore.demo.dto;
+
+import com.bookstore.demo.entity.Book;
+
+// The book fields a list entry shows, such as a cart line
+public class BookSummary {
+
+    private Long id;
+    private String title;
+    private String author;
+    private Double price;
+    private String imageUrl;
+
+    public BookSummary(Book book) {
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = book.getAuthor();
+        this.price = book.getPrice();
+        this.imageUrl = book.getImageUrl();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+}
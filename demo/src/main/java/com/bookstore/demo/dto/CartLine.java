@@ -0,0 +1,38 @@
+package com.bookstore.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.bookstore.demo.entity.CartItem;
+
+// A cart line as the API returns it: the book summary without the cart's user
+public class CartLine {
+
+    private Long id;
+    private Integer quantity;
+    private LocalDateTime addedAt;
+    private BookSummary book;
+
+    public CartLine(CartItem item) {
+        this.id = item.getId();
+        this.quantity = item.getQuantity();
+        this.addedAt = item.getAddedAt();
+        this.book = new BookSummary(item.getBook());
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getAddedAt() {
+        return addedAt;
+    }
+
+    public BookSummary getBook() {
+        return book;
+    }
+}
@@ -0,0 +1,65 @@
+package com.bookstore.demo.dto;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// One item of an order with the book fields the order history shows
+public class OrderLine {
+
+    private Long orderId;
+    private Long bookId;
+    private String title;
+    private String author;
+    private String imageUrl;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal totalPrice;
+
+    // Constructor used by the JPQL projection
+    public OrderLine(Long orderId, Long bookId, String title, String author, String imageUrl,
+                     Integer quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+        this.orderId = orderId;
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.imageUrl = imageUrl;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.totalPrice = totalPrice;
+    }
+
+    // Getters
+    @JsonIgnore
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+}
@@ -0,0 +1,57 @@
+package com.bookstore.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bookstore.demo.entity.Order;
+
+// One order in a user's order history, read as a projection rather than an entity graph
+public class OrderSummary {
+
+    private Long id;
+    private Order.OrderStatus status;
+    private BigDecimal totalAmount;
+    private String shippingAddress;
+    private LocalDateTime createdAt;
+    private List<OrderLine> items = new ArrayList<>();
+
+    // Constructor used by the JPQL projection; items are attached afterwards
+    public OrderSummary(Long id, Order.OrderStatus status, BigDecimal totalAmount, String shippingAddress, LocalDateTime createdAt) {
+        this.id = id;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.shippingAddress = shippingAddress;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<OrderLine> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderLine> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bookstore.demo.dto;
+
+import com.bookstore.demo.entity.Order;
+
+// Progress of a bulk status transition; the endpoint streams one after each chunk and a final one with done set
+public class OrderTransitionReport {
+
+    private Order.OrderStatus from;
+    private Order.OrderStatus to;
+    private long expected;
+    private long transitioned;
+    private long chunks;
+    private long lastOrderId;
+    private double seconds;
+    private boolean done;
+    private String failure;
+
+    public OrderTransitionReport(Order.OrderStatus from, Order.OrderStatus to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public Order.OrderStatus getFrom() {
+        return from;
+    }
+
+    public void setFrom(Order.OrderStatus from) {
+        this.from = from;
+    }
+
+    public Order.OrderStatus getTo() {
+        return to;
+    }
+
+    public void setTo(Order.OrderStatus to) {
+        this.to = to;
+    }
+
+    // Orders in the source status when the run started; orders moving in or out meanwhile make it an estimate
+    public long getExpected() {
+        return expected;
+    }
+
+    public void setExpected(long expected) {
+        this.expected = expected;
+    }
+
+    public long getTransitioned() {
+        return transitioned;
+    }
+
+    public void setTransitioned(long transitioned) {
+        this.transitioned = transitioned;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(long chunks) {
+        this.chunks = chunks;
+    }
+
+    // The run has covered every order up to this id, so a run stopped by a failure can be resumed after it
+    public long getLastOrderId() {
+        return lastOrderId;
+    }
+
+    public void setLastOrderId(long lastOrderId) {
+        this.lastOrderId = lastOrderId;
+    }
+
+    public double getSeconds() {
+        return seconds;
+    }
+
+    public void setSeconds(double seconds) {
+        this.seconds = seconds;
+    }
+
+    public double getOrdersPerSecond() {
+        return seconds > 0 ? transitioned / seconds : 0;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public void setDone(boolean done) {
+        this.done = done;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public void setFailure(String failure) {
+        this.failure = failure;
+    }
+}
@@ -0,0 +1,62 @@
+package com.bookstore.demo.dto;
+
+import java.time.LocalDateTime;
+
+// A review with its author's name and its book's title, without the user and book entities behind them
+public class ReviewView {
+
+    private Long id;
+    private Integer rating;
+    private String comment;
+    private LocalDateTime createdAt;
+    private Long userId;
+    private String userName;
+    private Long bookId;
+    private String bookTitle;
+
+    // Constructor used by the JPQL projection
+    public ReviewView(Long id, Integer rating, String comment, LocalDateTime createdAt,
+                      Long userId, String userName, Long bookId, String bookTitle) {
+        this.id = id;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+        this.userId = userId;
+        this.userName = userName;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getRating() {
+        return rating;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getBookTitle() {
+        return bookTitle;
+    }
+}
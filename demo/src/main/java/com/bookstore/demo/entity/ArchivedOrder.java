@@ -0,0 +1,128 @@
+package com.bookstore.demo.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A finished order moved out of {@code orders} once it is old enough. It keeps its original id and
+ * packs its items into one column, so an archived order is a single row. {@code archiveMonth} is
+ * the month the order was placed in, as yyyymm, and is what old archive data is dropped by.
+ */
+@Entity
+@Table(name = "order_archive", indexes = {
+    @Index(name = "idx_order_archive_user", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_order_archive_month", columnList = "archive_month")
+})
+public class ArchivedOrder {
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "total_amount", precision = 12, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    private Order.OrderStatus status;
+
+    @Column(name = "shipping_address")
+    private String shippingAddress;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archive_month", nullable = false)
+    private Integer archiveMonth;
+
+    // bookId:quantity:unitPrice:totalPrice for each item, separated by ';'
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String items;
+
+    // Default constructor
+    public ArchivedOrder() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public void setShippingAddress(String shippingAddress) {
+        this.shippingAddress = shippingAddress;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Integer getArchiveMonth() {
+        return archiveMonth;
+    }
+
+    public void setArchiveMonth(Integer archiveMonth) {
+        this.archiveMonth = archiveMonth;
+    }
+
+    public String getItems() {
+        return items;
+    }
+
+    public void setItems(String items) {
+        this.items = items;
+    }
+}
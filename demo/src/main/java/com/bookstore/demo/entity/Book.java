@@ -1,21 +1,39 @@
 package com.bookstore.demo.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+    @Index(name = "idx_books_price_id", columnList = "price, id"),
+    @Index(name = "idx_books_title_id", columnList = "title, id")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_books_isbn", columnNames = "isbn"))
+@EntityListeners(BookEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Book {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // ISBN-13, the key catalog feeds are upserted on; null for books added through the API
+    @Column(length = 13)
+    private String isbn;
+    
     private String title;
     private String author;
     private String category;
@@ -45,6 +63,14 @@ public class Book {
         this.id = id;
     }
     
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+    
     public String getTitle() {
         return title;
     }
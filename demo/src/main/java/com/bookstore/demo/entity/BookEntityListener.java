@@ -0,0 +1,36 @@
+package com.bookstore.demo.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.event.BookChangedEvent.ChangeType;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Turns JPA lifecycle callbacks on {@link Book} into application events.
+ * Hibernate obtains this listener from the Spring container, so injection works here.
+ */
+public class BookEntityListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    public void afterPersist(Book book) {
+        eventPublisher.publishEvent(new BookChangedEvent(book, ChangeType.CREATED));
+    }
+
+    @PostUpdate
+    public void afterUpdate(Book book) {
+        eventPublisher.publishEvent(new BookChangedEvent(book, ChangeType.UPDATED));
+    }
+
+    @PostRemove
+    public void afterRemove(Book book) {
+        eventPublisher.publishEvent(new BookChangedEvent(book, ChangeType.DELETED));
+    }
+}
@@ -0,0 +1,105 @@
+package com.bookstore.demo.entity;
+
+import java.util.List;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Running rating aggregates for one book, maintained in the same transaction as each review write
+ * so that review stats are a primary-key lookup instead of an AVG/COUNT over the reviews table.
+ */
+@Entity
+@Table(name = "book_rating_stats")
+public class BookRatingStats {
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+    
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+    
+    @Column(name = "review_count", nullable = false)
+    private long reviewCount;
+    
+    // Histogram of reviews per star rating
+    @Column(name = "one_star", nullable = false)
+    private long oneStar;
+    
+    @Column(name = "two_star", nullable = false)
+    private long twoStar;
+    
+    @Column(name = "three_star", nullable = false)
+    private long threeStar;
+    
+    @Column(name = "four_star", nullable = false)
+    private long fourStar;
+    
+    @Column(name = "five_star", nullable = false)
+    private long fiveStar;
+    
+    // Default constructor
+    public BookRatingStats() {}
+    
+    // Constructor
+    public BookRatingStats(Long bookId) {
+        this.bookId = bookId;
+    }
+    
+    public void addRating(int rating) {
+        adjust(rating, 1);
+    }
+    
+    public void removeRating(int rating) {
+        adjust(rating, -1);
+    }
+    
+    private void adjust(int rating, int delta) {
+        switch (rating) {
+            case 1 -> oneStar += delta;
+            case 2 -> twoStar += delta;
+            case 3 -> threeStar += delta;
+            case 4 -> fourStar += delta;
+            case 5 -> fiveStar += delta;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5: " + rating);
+        }
+        ratingSum += (long) rating * delta;
+        reviewCount += delta;
+    }
+    
+    public double getAverageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+    
+    // Counts for one to five stars, in that order
+    public List<Long> getHistogram() {
+        return List.of(oneStar, twoStar, threeStar, fourStar, fiveStar);
+    }
+    
+    // Getters and Setters
+    public Long getBookId() {
+        return bookId;
+    }
+    
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+    
+    public long getRatingSum() {
+        return ratingSum;
+    }
+    
+    public void setRatingSum(long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+    
+    public long getReviewCount() {
+        return reviewCount;
+    }
+    
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+}
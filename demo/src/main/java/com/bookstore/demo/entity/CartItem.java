@@ -10,15 +10,21 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+    @Index(name = "idx_cart_items_user", columnList = "user_id")
+})
 public class CartItem {
+    // Allocated by CartStore in blocks of the sequence's increment, never by a JPA insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_ids")
+    @SequenceGenerator(name = "cart_item_ids", sequenceName = "cart_items_seq", allocationSize = 100)
     private Long id;
     
     @ManyToOne(fetch = FetchType.EAGER)
@@ -0,0 +1,75 @@
+package com.bookstore.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * One stripe of a book's sellable stock. A tracked book's stock is spread over several buckets
+ * so that concurrent buyers of a hot title decrement different rows instead of queueing on one.
+ */
+@Entity
+@Table(name = "inventory_buckets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_inventory_book_bucket", columnNames = {"book_id", "bucket"})
+})
+public class InventoryBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+    
+    @Column(nullable = false)
+    private Integer bucket;
+    
+    @Column(nullable = false)
+    private Integer available;
+    
+    // Default constructor
+    public InventoryBucket() {}
+    
+    // Constructor
+    public InventoryBucket(Long bookId, Integer bucket, Integer available) {
+        this.bookId = bookId;
+        this.bucket = bucket;
+        this.available = available;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getBookId() {
+        return bookId;
+    }
+    
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+    
+    public Integer getBucket() {
+        return bucket;
+    }
+    
+    public void setBucket(Integer bucket) {
+        this.bucket = bucket;
+    }
+    
+    public Integer getAvailable() {
+        return available;
+    }
+    
+    public void setAvailable(Integer available) {
+        this.available = available;
+    }
+}
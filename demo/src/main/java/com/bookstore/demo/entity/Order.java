@@ -1,11 +1,15 @@
 package com.bookstore.demo.entity;
 
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user", columnList = "user_id"),
+    @Index(name = "idx_orders_status", columnList = "status, id")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,8 +22,8 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItem> orderItems;
     
-    @Column(name = "total_amount")
-    private Double totalAmount;
+    @Column(name = "total_amount", precision = 12, scale = 2)
+    private BigDecimal totalAmount;
     
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
@@ -41,7 +45,7 @@ public class Order {
     }
     
     // Constructor
-    public Order(User user, Double totalAmount, String shippingAddress) {
+    public Order(User user, BigDecimal totalAmount, String shippingAddress) {
         this.user = user;
         this.totalAmount = totalAmount;
         this.shippingAddress = shippingAddress;
@@ -75,11 +79,11 @@ public class Order {
         this.orderItems = orderItems;
     }
     
-    public Double getTotalAmount() {
+    public BigDecimal getTotalAmount() {
         return totalAmount;
     }
     
-    public void setTotalAmount(Double totalAmount) {
+    public void setTotalAmount(BigDecimal totalAmount) {
         this.totalAmount = totalAmount;
     }
     
@@ -123,6 +127,22 @@ public class Order {
         PROCESSING,
         SHIPPED,
         DELIVERED,
-        CANCELLED
+        CANCELLED;
+        
+        // Fulfilment only moves forward, and an order can only be cancelled while its stock is merely reserved
+        public boolean canMoveTo(OrderStatus next) {
+            switch (this) {
+                case PENDING:
+                    return next == CONFIRMED || next == CANCELLED;
+                case CONFIRMED:
+                    return next == PROCESSING;
+                case PROCESSING:
+                    return next == SHIPPED;
+                case SHIPPED:
+                    return next == DELIVERED;
+                default:
+                    return false;
+            }
+        }
     }
 }
@@ -2,9 +2,12 @@ package com.bookstore.demo.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
+import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+    @Index(name = "idx_order_items_order", columnList = "order_id")
+})
 public class OrderItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,22 +24,22 @@ public class OrderItem {
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
     
-    @Column(name = "unit_price")
-    private Double unitPrice;
+    @Column(name = "unit_price", precision = 12, scale = 2)
+    private BigDecimal unitPrice;
     
-    @Column(name = "total_price")
-    private Double totalPrice;
+    @Column(name = "total_price", precision = 12, scale = 2)
+    private BigDecimal totalPrice;
     
     // Default constructor
     public OrderItem() {}
     
     // Constructor
-    public OrderItem(Order order, Book book, Integer quantity, Double unitPrice) {
+    public OrderItem(Order order, Book book, Integer quantity, BigDecimal unitPrice) {
         this.order = order;
         this.book = book;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
-        this.totalPrice = unitPrice * quantity;
+        this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
     }
     
     // Getters and Setters
@@ -72,27 +75,27 @@ public class OrderItem {
         this.quantity = quantity;
         // Recalculate total price when quantity changes
         if (this.unitPrice != null) {
-            this.totalPrice = this.unitPrice * quantity;
+            this.totalPrice = this.unitPrice.multiply(BigDecimal.valueOf(quantity));
         }
     }
     
-    public Double getUnitPrice() {
+    public BigDecimal getUnitPrice() {
         return unitPrice;
     }
     
-    public void setUnitPrice(Double unitPrice) {
+    public void setUnitPrice(BigDecimal unitPrice) {
         this.unitPrice = unitPrice;
         // Recalculate total price when unit price changes
         if (this.quantity != null) {
-            this.totalPrice = unitPrice * this.quantity;
+            this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(this.quantity));
         }
     }
     
-    public Double getTotalPrice() {
+    public BigDecimal getTotalPrice() {
         return totalPrice;
     }
     
-    public void setTotalPrice(Double totalPrice) {
+    public void setTotalPrice(BigDecimal totalPrice) {
         this.totalPrice = totalPrice;
     }
 }
@@ -0,0 +1,36 @@
+package com.bookstore.demo.event;
+
+/**
+ * Published when a shopper shows interest in a book short of ordering it: adding it to a cart or
+ * reviewing it. Popularity rankings listen for it; orders reach them through the order outbox.
+ */
+public class BookActivityEvent {
+
+    public enum ActivityType {
+        ADDED_TO_CART,
+        REVIEWED
+    }
+
+    private final Long bookId;
+    private final ActivityType activityType;
+    // Copies added to the cart, or the rating given
+    private final int amount;
+
+    public BookActivityEvent(Long bookId, ActivityType activityType, int amount) {
+        this.bookId = bookId;
+        this.activityType = activityType;
+        this.amount = amount;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public ActivityType getActivityType() {
+        return activityType;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bookstore.demo.event;
+
+import com.bookstore.demo.entity.Book;
+
+/**
+ * Published whenever a {@link Book} row is inserted, updated or deleted, through JPA or the catalog import.
+ * In-memory read models (search index and friends) listen for it to stay in sync.
+ */
+public class BookChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Book book;
+    private final ChangeType changeType;
+
+    public BookChangedEvent(Book book, ChangeType changeType) {
+        this.book = book;
+        this.changeType = changeType;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+}
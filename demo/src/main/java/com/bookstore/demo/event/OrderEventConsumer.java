@@ -0,0 +1,30 @@
+package com.bookstore.demo.event;
+
+import java.util.List;
+
+/**
+ * Receives placed orders from the order outbox, after the checkout that wrote them committed.
+ * <p>
+ * Delivery is at least once: an event is redelivered if its consumer failed, or if the application
+ * stopped before the delivery was recorded. Each consumer gets its own copy of every event and its
+ * own retries, so one that fails does not hold the others back.
+ */
+public interface OrderEventConsumer {
+
+    /**
+     * Stable name under which this consumer's events are kept in the outbox.
+     */
+    String consumerName();
+
+    void onOrderPlaced(OrderPlacedEvent event);
+
+    /**
+     * Handles a batch in outbox order. If it throws, the events are handed over again one at a time,
+     * so only the one that fails is retried later.
+     */
+    default void onOrdersPlaced(List<OrderPlacedEvent> events) {
+        for (OrderPlacedEvent event : events) {
+            onOrderPlaced(event);
+        }
+    }
+}
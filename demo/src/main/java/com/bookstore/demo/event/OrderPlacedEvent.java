@@ -0,0 +1,49 @@
+package com.bookstore.demo.event;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Written to the order outbox by checkout, carrying the books that were bought, and delivered to
+ * each {@link OrderEventConsumer} once the order has committed.
+ */
+public class OrderPlacedEvent {
+
+    private final Long orderId;
+    private final Long userId;
+    private final List<Long> bookIds;
+    private final BigDecimal totalAmount;
+    private final String paymentMethod;
+
+    public OrderPlacedEvent(Long orderId, Long userId, List<Long> bookIds) {
+        this(orderId, userId, bookIds, null, null);
+    }
+
+    public OrderPlacedEvent(Long orderId, Long userId, List<Long> bookIds, BigDecimal totalAmount, String paymentMethod) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.bookIds = List.copyOf(bookIds);
+        this.totalAmount = totalAmount;
+        this.paymentMethod = paymentMethod;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+}
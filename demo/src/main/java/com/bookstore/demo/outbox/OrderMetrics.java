@@ -0,0 +1,50 @@
+package com.bookstore.demo.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sales analytics fed from the order outbox: orders by payment method, revenue and books per order.
+ * Delivery is at least once, so an order redelivered after a failure may be counted twice.
+ */
+@Component
+public class OrderMetrics implements OrderEventConsumer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public String consumerName() {
+        return "analytics";
+    }
+
+    @Override
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        // Clients choose the method freely; anything but the known ones shares a tag so the series stay bounded
+        String paymentMethod = "upi".equals(event.getPaymentMethod()) || "cod".equals(event.getPaymentMethod())
+            ? event.getPaymentMethod() : "other";
+        Counter.builder("bookstore.orders.placed")
+            .description("Orders placed")
+            .tag("payment_method", paymentMethod)
+            .register(meterRegistry)
+            .increment();
+        if (event.getTotalAmount() != null) {
+            DistributionSummary.builder("bookstore.orders.revenue")
+                .description("Order totals")
+                .baseUnit("currency")
+                .register(meterRegistry)
+                .record(event.getTotalAmount().doubleValue());
+        }
+        DistributionSummary.builder("bookstore.orders.books")
+            .description("Distinct books per order")
+            .register(meterRegistry)
+            .record(event.getBookIds().size());
+    }
+}
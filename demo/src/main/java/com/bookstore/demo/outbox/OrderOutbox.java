@@ -0,0 +1,300 @@
+package com.bookstore.demo.outbox;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Transactional outbox for placed orders: checkout appends the event in the order's own
+ * transaction, and background lanes deliver it to every {@link OrderEventConsumer} afterwards.
+ * <p>
+ * Each consumer has its own rows in {@code order_outbox} and its own lane, a single thread that
+ * drains the consumer's due rows in batches and deletes them once handled. A lane is woken when a
+ * checkout commits and by a periodic poll, which also picks up retries and rows left over from a
+ * previous run. A failed event is retried with exponential backoff and parked after
+ * {@code bookstore.outbox.max-attempts}. Only one application instance should dispatch from a
+ * database, as rows are not locked while their lane works on them.
+ */
+@Component
+public class OrderOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderOutbox.class);
+
+    private static final String INSERT =
+        "INSERT INTO order_outbox (consumer, order_id, payload, attempts, created_at, next_attempt_at) VALUES (?, ?, ?, 0, ?, ?)";
+    private static final String SELECT_DUE =
+        "SELECT id, payload, attempts, created_at FROM order_outbox WHERE consumer = ? AND next_attempt_at <= ? "
+            + "ORDER BY id FETCH FIRST ? ROWS ONLY";
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+    private static final Duration SHUTDOWN_WAIT = Duration.ofSeconds(10);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private List<OrderEventConsumer> consumers;
+
+    @Value("${bookstore.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${bookstore.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${bookstore.outbox.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    private List<Lane> lanes;
+    private ExecutorService executor;
+
+    private static final class OutboxRow {
+        private final long id;
+        private final String payload;
+        private final int attempts;
+        private final LocalDateTime createdAt;
+
+        OutboxRow(long id, String payload, int attempts, LocalDateTime createdAt) {
+            this.id = id;
+            this.payload = payload;
+            this.attempts = attempts;
+            this.createdAt = createdAt;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        Set<String> names = new HashSet<>();
+        lanes = new ArrayList<>(consumers.size());
+        for (OrderEventConsumer consumer : consumers) {
+            if (!names.add(consumer.consumerName())) {
+                throw new IllegalStateException("Two order event consumers are named " + consumer.consumerName());
+            }
+            lanes.add(new Lane(consumer));
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, lanes.size()),
+            Thread.ofPlatform().name("order-outbox-", 0).daemon().factory());
+    }
+
+    // Lanes stop between batches; the wait keeps the database open for the batches still running
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(SHUTDOWN_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Order outbox lanes still running after {} s", SHUTDOWN_WAIT.toSeconds());
+        }
+    }
+
+    /**
+     * Queues the event for every consumer. Must run inside the transaction that writes the order,
+     * so the event is kept exactly when the order is.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OrderPlacedEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes) {
+            rows.add(new Object[] { lane.consumer.consumerName(), event.getOrderId(), payload, now, now });
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeAll();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        wakeAll();
+    }
+
+    private void wakeAll() {
+        for (Lane lane : lanes) {
+            lane.wake();
+        }
+    }
+
+    // Delivers the consumer's due rows, batch after batch, until none are left
+    private void drain(Lane lane) {
+        List<OutboxRow> batch;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            batch = jdbcTemplate.query(SELECT_DUE,
+                (rs, row) -> new OutboxRow(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getTimestamp(4).toLocalDateTime()),
+                lane.consumer.consumerName(), Timestamp.valueOf(LocalDateTime.now()), batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<OutboxRow> delivered = new ArrayList<>(batch.size());
+            try {
+                List<OrderPlacedEvent> events = new ArrayList<>(batch.size());
+                for (OutboxRow row : batch) {
+                    events.add(read(row.payload));
+                }
+                lane.consumer.onOrdersPlaced(events);
+                delivered.addAll(batch);
+            } catch (RuntimeException batchFailure) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Shutting down; the whole batch is delivered again on the next start
+                    return;
+                }
+                // Find the events that fail on their own; the rest are delivered, some of them again
+                for (OutboxRow row : batch) {
+                    try {
+                        lane.consumer.onOrderPlaced(read(row.payload));
+                        delivered.add(row);
+                    } catch (RuntimeException e) {
+                        fail(lane, row, e);
+                    }
+                }
+            }
+
+            List<Object[]> ids = new ArrayList<>(delivered.size());
+            LocalDateTime now = LocalDateTime.now();
+            for (OutboxRow row : delivered) {
+                ids.add(new Object[] { row.id });
+                lane.lag.record(Duration.between(row.createdAt, now));
+            }
+            jdbcTemplate.batchUpdate("DELETE FROM order_outbox WHERE id = ?", ids);
+            lane.delivered.increment(delivered.size());
+        } while (batch.size() == batchSize);
+    }
+
+    private void fail(Lane lane, OutboxRow row, RuntimeException e) {
+        lane.failures.increment();
+        int attempts = row.attempts + 1;
+        String error = String.valueOf(e);
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        Timestamp nextAttemptAt = null;
+        if (attempts < maxAttempts) {
+            long backoffMs = Math.min(retryBackoffMs << Math.min(attempts - 1, 30), MAX_BACKOFF.toMillis());
+            nextAttemptAt = Timestamp.valueOf(LocalDateTime.now().plusNanos(backoffMs * 1_000_000));
+            log.warn("Order event {} failed for {} (attempt {}), retrying in {} ms", row.id, lane.consumer.consumerName(),
+                attempts, backoffMs, e);
+        } else {
+            log.error("Order event {} failed for {} {} times and is parked", row.id, lane.consumer.consumerName(), attempts, e);
+        }
+        jdbcTemplate.update("UPDATE order_outbox SET attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?",
+            attempts, nextAttemptAt, error, row.id);
+    }
+
+    private OrderPlacedEvent read(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            List<Long> bookIds = new ArrayList<>();
+            for (JsonNode bookId : node.get("bookIds")) {
+                bookIds.add(bookId.asLong());
+            }
+            JsonNode totalAmount = node.get("totalAmount");
+            JsonNode paymentMethod = node.get("paymentMethod");
+            return new OrderPlacedEvent(node.get("orderId").asLong(), node.get("userId").asLong(), bookIds,
+                totalAmount == null || totalAmount.isNull() ? null : new BigDecimal(totalAmount.asText()),
+                paymentMethod == null || paymentMethod.isNull() ? null : paymentMethod.asText());
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new IllegalStateException("Unreadable order event: " + payload, e);
+        }
+    }
+
+    // One consumer's delivery thread; wakes that arrive while it drains make it go round once more
+    private final class Lane implements Runnable {
+        private final OrderEventConsumer consumer;
+        private final AtomicInteger wakes = new AtomicInteger();
+        private final Counter delivered;
+        private final Counter failures;
+        private final Timer lag;
+
+        Lane(OrderEventConsumer consumer) {
+            this.consumer = consumer;
+            this.delivered = Counter.builder("bookstore.outbox.delivered")
+                .description("Order events handled by a consumer")
+                .tag("consumer", consumer.consumerName())
+                .register(meterRegistry);
+            this.failures = Counter.builder("bookstore.outbox.failures")
+                .description("Order event deliveries that failed and were rescheduled or parked")
+                .tag("consumer", consumer.consumerName())
+                .register(meterRegistry);
+            this.lag = Timer.builder("bookstore.outbox.lag")
+                .description("Time from checkout commit to the consumer handling the order")
+                .tag("consumer", consumer.consumerName())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        }
+
+        void wake() {
+            if (wakes.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the rows stay for the next start
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int seen;
+            do {
+                seen = wakes.get();
+                try {
+                    drain(this);
+                } catch (RuntimeException e) {
+                    log.warn("Delivering order events to {} failed", consumer.consumerName(), e);
+                }
+            } while (!wakes.compareAndSet(seen, 0));
+        }
+    }
+}
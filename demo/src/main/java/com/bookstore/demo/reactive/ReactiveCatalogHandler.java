@@ -0,0 +1,122 @@
+package com.bookstore.demo.reactive;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.bookstore.demo.controller.ReviewController;
+import com.bookstore.demo.dto.ReviewView;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.search.BookSearchIndex;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Routes and handlers of the reactive catalog API: the reads of {@code BookController} and
+ * {@code ReviewController} that catalog browsing makes, with the same paths, parameters and bodies.
+ * Lists are written as a JSON array, or one document per line to clients that accept NDJSON, as the
+ * rows arrive; a book's reviews are read in keyset batches, each fetched only once the client has
+ * taken the one before.
+ */
+@Component
+public class ReactiveCatalogHandler {
+
+    private static final int MAX_RESULTS = 500;
+    private static final int REVIEW_BATCH_SIZE = 500;
+
+    @Autowired
+    private ReactiveCatalogRepository repository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .GET("/api/books", this::searchBooks)
+            .GET("/api/books/{id}", this::getBook)
+            .GET("/api/reviews/book/{bookId}", this::getReviewsByBook)
+            .GET("/api/reviews/book/{bookId}/stats", this::getReviewStats)
+            .build();
+    }
+
+    Mono<ServerResponse> searchBooks(ServerRequest request) {
+        String query = request.queryParam("q").orElse("");
+        Integer limit = intParam(request, "limit", 50);
+        if (limit == null) {
+            return ServerResponse.badRequest().build();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_RESULTS));
+
+        // Ranked in memory as on the MVC side, then only the winning rows are read
+        Flux<Book> books = query.isBlank()
+            ? repository.findFirstBooks(size)
+            : repository.findBooksInOrder(bookSearchIndex.search(query, size));
+        return ServerResponse.ok().contentType(listType(request)).body(books, Book.class);
+    }
+
+    Mono<ServerResponse> getBook(ServerRequest request) {
+        Long id = idVariable(request, "id");
+        if (id == null) {
+            return ServerResponse.badRequest().build();
+        }
+        return repository.findBook(id)
+            .flatMap(book -> ServerResponse.ok().bodyValue(book))
+            .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    Mono<ServerResponse> getReviewsByBook(ServerRequest request) {
+        Long bookId = idVariable(request, "bookId");
+        if (bookId == null) {
+            return ServerResponse.badRequest().build();
+        }
+        // With a prefetch of one batch, the next is queried only once the client has taken every review of the last
+        Flux<ReviewView> reviews = repository.findReviews(bookId, 0L, REVIEW_BATCH_SIZE).collectList()
+            .expand(batch -> batch.size() < REVIEW_BATCH_SIZE
+                ? Mono.empty()
+                : repository.findReviews(bookId, batch.get(batch.size() - 1).getId(), REVIEW_BATCH_SIZE).collectList())
+            .flatMapIterable(batch -> batch, 1);
+        return ServerResponse.ok().contentType(listType(request)).body(reviews, ReviewView.class);
+    }
+
+    Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        Long bookId = idVariable(request, "bookId");
+        if (bookId == null) {
+            return ServerResponse.badRequest().build();
+        }
+        return ServerResponse.ok().body(repository.findStats(bookId), ReviewController.ReviewStats.class);
+    }
+
+    // Functional routes do not negotiate content types themselves; lists are NDJSON only to clients that ask for it
+    private static MediaType listType(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)
+            ? MediaType.APPLICATION_NDJSON
+            : MediaType.APPLICATION_JSON;
+    }
+
+    private static Long idVariable(ServerRequest request, String name) {
+        try {
+            return Long.valueOf(request.pathVariable(name));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer intParam(ServerRequest request, String name, int defaultValue) {
+        List<String> values = request.queryParams().get(name);
+        if (values == null || values.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.valueOf(values.get(0));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
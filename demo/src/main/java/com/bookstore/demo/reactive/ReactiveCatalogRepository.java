@@ -0,0 +1,170 @@
+package com.bookstore.demo.reactive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.demo.controller.ReviewController;
+import com.bookstore.demo.dto.ReviewView;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.BookRatingStats;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Statement;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Read-only catalog and review queries over R2DBC, for the {@link ReactiveCatalogServer}.
+ * <p>
+ * The connection pool is private rather than a bean: a {@code ConnectionFactory} bean turns off
+ * Boot's JDBC DataSource, which JPA, Flyway and every JdbcTemplate here depend on. It opens the
+ * database named by {@code spring.datasource.url}, so both stacks see the same tables. H2's R2DBC
+ * driver runs a query on the thread that subscribes to it, so queries subscribe on the bounded
+ * elastic scheduler and never block the event loop.
+ */
+@Component
+public class ReactiveCatalogRepository {
+
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    private static final String SELECT_BOOKS =
+        "SELECT id, isbn, title, author, category, price, description, image_url FROM books";
+
+    private static final String SELECT_REVIEWS =
+        "SELECT r.id, r.rating, r.comment, r.created_at, u.id, u.name, b.id, b.title "
+            + "FROM reviews r JOIN users u ON u.id = r.user_id JOIN books b ON b.id = r.book_id "
+            + "WHERE r.book_id = $1 AND r.id > $2 ORDER BY r.book_id, r.id LIMIT $3";
+
+    private static final String SELECT_STATS =
+        "SELECT rating_sum, review_count, one_star, two_star, three_star, four_star, five_star "
+            + "FROM book_rating_stats WHERE book_id = $1";
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${bookstore.reactive.max-connections:10}")
+    private int maxConnections;
+
+    private ConnectionPool pool;
+
+    @PostConstruct
+    void init() {
+        if (!url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException("The reactive catalog only reads H2 databases: " + url);
+        }
+        H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+            .url(url.substring(H2_URL_PREFIX.length()))
+            .username(username)
+            .password(password)
+            .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration))
+            .maxSize(maxConnections)
+            .build());
+    }
+
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+
+    /**
+     * The first books of the catalog by id.
+     */
+    public Flux<Book> findFirstBooks(int limit) {
+        return query(SELECT_BOOKS + " ORDER BY id LIMIT $1", ReactiveCatalogRepository::book, limit);
+    }
+
+    /**
+     * The books with the given ids, in the order given; ids without a book are skipped.
+     */
+    public Flux<Book> findBooksInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder(SELECT_BOOKS).append(" WHERE id IN (");
+        for (int i = 1; i <= ids.size(); i++) {
+            sql.append(i > 1 ? ", $" : "$").append(i);
+        }
+        sql.append(')');
+        return query(sql.toString(), ReactiveCatalogRepository::book, ids.toArray())
+            .collectMap(Book::getId, Function.identity())
+            .flatMapIterable(booksById -> ids.stream().map(booksById::get).filter(book -> book != null).toList());
+    }
+
+    public Mono<Book> findBook(long id) {
+        return query(SELECT_BOOKS + " WHERE id = $1", ReactiveCatalogRepository::book, id).next();
+    }
+
+    /**
+     * One keyset batch of a book's reviews: the first {@code limit} with an id above {@code afterId}.
+     */
+    public Flux<ReviewView> findReviews(long bookId, long afterId, int limit) {
+        return query(SELECT_REVIEWS, ReactiveCatalogRepository::review, bookId, afterId, limit);
+    }
+
+    /**
+     * A book's rating stats; zeros for a book without reviews, which has no stats row.
+     */
+    public Mono<ReviewController.ReviewStats> findStats(long bookId) {
+        return query(SELECT_STATS, ReactiveCatalogRepository::stats, bookId)
+            .next()
+            .defaultIfEmpty(new ReviewController.ReviewStats(new BookRatingStats(bookId)));
+    }
+
+    private <T> Flux<T> query(String sql, Function<Readable, T> mapper, Object... parameters) {
+        return Flux.usingWhen(pool.create(),
+                connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int i = 0; i < parameters.length; i++) {
+                        statement.bind(i, parameters[i]);
+                    }
+                    return Flux.from(statement.execute()).flatMap(result -> result.map(mapper));
+                },
+                Connection::close)
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Book book(Readable row) {
+        Book book = new Book(row.get("title", String.class), row.get("author", String.class),
+            row.get("category", String.class), row.get("price", Double.class), row.get("description", String.class),
+            row.get("image_url", String.class));
+        book.setId(row.get("id", Long.class));
+        book.setIsbn(row.get("isbn", String.class));
+        return book;
+    }
+
+    private static ReviewView review(Readable row) {
+        return new ReviewView(row.get(0, Long.class), row.get(1, Integer.class), row.get(2, String.class),
+            row.get(3, LocalDateTime.class), row.get(4, Long.class), row.get(5, String.class), row.get(6, Long.class),
+            row.get(7, String.class));
+    }
+
+    private static ReviewController.ReviewStats stats(Readable row) {
+        long ratingSum = row.get("rating_sum", Long.class);
+        long reviewCount = row.get("review_count", Long.class);
+        // The same average BookRatingStats reports
+        ReviewController.ReviewStats stats =
+            new ReviewController.ReviewStats(reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0, reviewCount);
+        stats.setHistogram(List.of(row.get("one_star", Long.class), row.get("two_star", Long.class),
+            row.get("three_star", Long.class), row.get("four_star", Long.class), row.get("five_star", Long.class)));
+        return stats;
+    }
+}
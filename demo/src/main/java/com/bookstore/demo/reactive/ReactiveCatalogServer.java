@@ -0,0 +1,99 @@
+package com.bookstore.demo.reactive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.context.ServletWebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Serves the {@link ReactiveCatalogHandler} routes from a Reactor Netty server on
+ * {@code bookstore.reactive.port}, next to the servlet stack rather than instead of it. A few event
+ * loop threads hold any number of open connections, and a request only takes a thread while its
+ * rows are being read or written. It starts once the servlet server is up, so test contexts
+ * without a real server do not bind a port, and is disabled with a negative port.
+ */
+@Component
+public class ReactiveCatalogServer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCatalogServer.class);
+
+    @Autowired
+    private ReactiveCatalogHandler handler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bookstore.reactive.port:8082}")
+    private int port;
+
+    private DisposableServer server;
+
+    // Also published for the management server, which runs in a child context with its own namespace
+    @EventListener
+    public synchronized void start(ServletWebServerInitializedEvent event) {
+        if (port < 0 || server != null || event.getApplicationContext().getServerNamespace() != null) {
+            return;
+        }
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(handler.routes(), handlerStrategies());
+        server = HttpServer.create()
+            .port(port)
+            .handle(new ReactorHttpHandlerAdapter(httpHandler))
+            .bindNow();
+        log.info("Reactive catalog API listening on port {}", server.port());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+    }
+
+    /**
+     * The bound port, or -1 while the server is not running.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.port() : -1;
+    }
+
+    /**
+     * Codecs and filters of the reactive routes: the application's ObjectMapper, so bodies match the
+     * MVC endpoints, and the same open CORS policy as their {@code @CrossOrigin}.
+     */
+    public HandlerStrategies handlerStrategies() {
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.addAllowedOrigin("*");
+        cors.addAllowedMethod(HttpMethod.GET);
+        cors.addAllowedHeader("*");
+        UrlBasedCorsConfigurationSource corsSource = new UrlBasedCorsConfigurationSource();
+        corsSource.registerCorsConfiguration("/api/**", cors);
+
+        return HandlerStrategies.builder()
+            .codecs(codecs -> {
+                codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+            })
+            .webFilter(new CorsWebFilter(corsSource))
+            .build();
+    }
+}
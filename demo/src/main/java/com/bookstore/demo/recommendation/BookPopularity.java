@@ -0,0 +1,466 @@
+package com.bookstore.demo.recommendation;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.demo.event.BookActivityEvent;
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.util.LongFloatHashMap;
+import com.bookstore.demo.util.TopK;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Bestseller and trending lists from exponentially time-decayed popularity scores.
+ * <p>
+ * Bestsellers count copies ordered, with a half-life of {@code bookstore.popularity.bestseller-half-life-hours};
+ * trending also counts cart adds and favourable reviews, with the much shorter
+ * {@code bookstore.popularity.trending-half-life-hours}. Scores are kept in forward-decay form:
+ * an event at time t adds {@code weight * 2^((t - landmark) / halfLife)}, so scores only grow
+ * and the order between two books never changes until one of them sees an event. That lets each
+ * list keep its top books in a bounded heap updated on every event, and publish the ranking
+ * for reads, which are then a copy of at most {@value #TOP_K} ids.
+ * <p>
+ * A full rebuild on startup and every {@code bookstore.popularity.rebuild-interval-ms} reads the
+ * activity of the last {@value #HALF_LIVES_LOADED} bestseller half-lives, drops cancelled orders
+ * and deleted books, and moves the landmark to the present.
+ */
+@Component
+public class BookPopularity implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(BookPopularity.class);
+
+    // As for recommendations, a purchase says more than a cart add, and only reviews of 4 stars and up count
+    private static final float PURCHASE_WEIGHT = 3f;
+    private static final float CART_WEIGHT = 1f;
+    private static final float REVIEW_WEIGHT = 2f;
+    private static final int MIN_POSITIVE_RATING = 4;
+
+    static final int TOP_K = 100;
+    // Older activity weighs under 2^-10 of new activity on the bestseller list, so a rebuild does not read it
+    private static final int HALF_LIVES_LOADED = 10;
+    // Scores are rescaled to a new landmark before the growth factor gets near float range
+    private static final double MAX_HALF_LIVES = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${bookstore.popularity.bestseller-half-life-hours:720}")
+    private long bestsellerHalfLifeHours;
+
+    @Value("${bookstore.popularity.trending-half-life-hours:24}")
+    private long trendingHalfLifeHours;
+
+    // A lock rather than a monitor: a rebuild blocks on JDBC
+    private final ReentrantLock lock = new ReentrantLock();
+    // Swapped under the lock, read without it
+    private volatile Rankings rankings;
+    // Activity seen while a rebuild reads the tables, replayed onto the rebuilt rankings
+    private List<Activity> duringRebuild;
+
+    @PostConstruct
+    void init() {
+        rankings = new Rankings(System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.popularity.rebuild-interval-ms:86400000}",
+               initialDelayString = "${bookstore.popularity.rebuild-interval-ms:86400000}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (duringRebuild != null) {
+                return;
+            }
+            duringRebuild = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Rankings fresh;
+        try {
+            fresh = new Rankings(System.currentTimeMillis());
+            Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusHours(HALF_LIVES_LOADED * bestsellerHalfLifeHours));
+            jdbcTemplate.query("SELECT o.id, i.book_id, i.quantity, o.created_at FROM order_items i JOIN orders o ON o.id = i.order_id "
+                    + "JOIN books b ON b.id = i.book_id WHERE o.created_at >= ? AND o.status <> 'CANCELLED'",
+                (RowCallbackHandler) rs -> {
+                    fresh.countedOrders.addLong(rs.getLong(1));
+                    fresh.accumulate(Activity.purchase(rs.getLong(2), rs.getInt(3), millis(rs.getTimestamp(4)), rs.getLong(1)));
+                }, since);
+            jdbcTemplate.query("SELECT c.book_id, c.quantity, c.added_at FROM cart_items c JOIN books b ON b.id = c.book_id "
+                    + "WHERE c.added_at >= ?",
+                (RowCallbackHandler) rs -> fresh.accumulate(Activity.cartAdd(rs.getLong(1), rs.getInt(2), millis(rs.getTimestamp(3)))),
+                since);
+            jdbcTemplate.query("SELECT r.book_id, r.created_at FROM reviews r JOIN books b ON b.id = r.book_id "
+                    + "WHERE r.created_at >= ? AND r.rating >= ?",
+                (RowCallbackHandler) rs -> fresh.accumulate(Activity.review(rs.getLong(1), millis(rs.getTimestamp(2)))),
+                since, MIN_POSITIVE_RATING);
+            fresh.rank();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                duringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            // Cart adds and reviews may also have been read above; a few counted twice until the next rebuild is harmless
+            Roaring64Bitmap replayed = new Roaring64Bitmap();
+            for (Activity activity : duringRebuild) {
+                if (activity.orderId == 0) {
+                    fresh.record(activity);
+                } else if (!fresh.countedOrders.contains(activity.orderId)) {
+                    fresh.record(activity);
+                    replayed.addLong(activity.orderId);
+                }
+            }
+            fresh.countedOrders.or(replayed);
+            duringRebuild = null;
+            rankings = fresh;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Popularity rankings rebuilt from {} books in {} ms", fresh.trending.scores.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public String consumerName() {
+        return "popularity";
+    }
+
+    @Override
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        onOrdersPlaced(List.of(event));
+    }
+
+    // The copies ordered are only in order_items, read once per outbox batch
+    @Override
+    public void onOrdersPlaced(List<OrderPlacedEvent> events) {
+        List<Long> orderIds = new ArrayList<>(events.size());
+        for (OrderPlacedEvent event : events) {
+            if (event.getOrderId() != null) {
+                orderIds.add(event.getOrderId());
+            }
+        }
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Activity> purchases = new ArrayList<>();
+        namedParameterJdbcTemplate.query("SELECT o.id, i.book_id, i.quantity, o.created_at FROM order_items i "
+                + "JOIN orders o ON o.id = i.order_id WHERE o.id IN (:ids)", Map.of("ids", orderIds),
+            (RowCallbackHandler) rs -> purchases.add(
+                Activity.purchase(rs.getLong(2), rs.getInt(3), millis(rs.getTimestamp(4)), rs.getLong(1))));
+        lock.lock();
+        try {
+            // Orders read by the last rebuild or already delivered must not be counted twice
+            Roaring64Bitmap counted = rankings.countedOrders;
+            for (Activity purchase : purchases) {
+                if (!counted.contains(purchase.orderId)) {
+                    record(purchase);
+                }
+            }
+            for (Long orderId : orderIds) {
+                counted.addLong(orderId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reviews count once their transaction commits; cart adds are not transactional and count at once
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookActivity(BookActivityEvent event) {
+        Activity activity;
+        switch (event.getActivityType()) {
+            case ADDED_TO_CART:
+                activity = Activity.cartAdd(event.getBookId(), event.getAmount(), System.currentTimeMillis());
+                break;
+            case REVIEWED:
+                if (event.getAmount() < MIN_POSITIVE_RATING) {
+                    return;
+                }
+                activity = Activity.review(event.getBookId(), System.currentTimeMillis());
+                break;
+            default:
+                return;
+        }
+        lock.lock();
+        try {
+            record(activity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(Activity activity) {
+        rankings.record(activity);
+        if (duringRebuild != null) {
+            duringRebuild.add(activity);
+        }
+    }
+
+    /**
+     * Ids of the books with the most copies ordered recently, best first; at most {@value #TOP_K}.
+     */
+    public List<Long> bestsellers(int limit) {
+        return head(rankings.bestsellers.ranked, limit);
+    }
+
+    /**
+     * Ids of the books with the most orders, cart adds and favourable reviews in the last day or
+     * so, best first; at most {@value #TOP_K}.
+     */
+    public List<Long> trending(int limit) {
+        return head(rankings.trending.ranked, limit);
+    }
+
+    private static List<Long> head(long[] ranked, int limit) {
+        int size = Math.min(limit, ranked.length);
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(ranked[i]);
+        }
+        return ids;
+    }
+
+    private static long millis(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // One scored event; orderId is 0 for anything but a purchase
+    private static final class Activity {
+        private final long bookId;
+        private final float purchaseWeight;
+        private final float interestWeight;
+        private final long at;
+        private final long orderId;
+
+        private Activity(long bookId, float purchaseWeight, float interestWeight, long at, long orderId) {
+            this.bookId = bookId;
+            this.purchaseWeight = purchaseWeight;
+            this.interestWeight = interestWeight;
+            this.at = at;
+            this.orderId = orderId;
+        }
+
+        static Activity purchase(long bookId, int quantity, long at, long orderId) {
+            return new Activity(bookId, quantity, PURCHASE_WEIGHT * quantity, at, orderId);
+        }
+
+        static Activity cartAdd(long bookId, int quantity, long at) {
+            return new Activity(bookId, 0f, CART_WEIGHT * quantity, at, 0);
+        }
+
+        static Activity review(long bookId, long at) {
+            return new Activity(bookId, 0f, REVIEW_WEIGHT, at, 0);
+        }
+    }
+
+    // Both lists, swapped as a whole by a rebuild; only changed under the lock, and their rankings are published for lock-free reads
+    private final class Rankings {
+        private final Ranking bestsellers;
+        private final Ranking trending;
+        // Ids of the orders counted; ids are not committed in order, so no highest id would do
+        private final Roaring64Bitmap countedOrders = new Roaring64Bitmap();
+
+        Rankings(long landmark) {
+            bestsellers = new Ranking(Duration.ofHours(bestsellerHalfLifeHours), landmark);
+            trending = new Ranking(Duration.ofHours(trendingHalfLifeHours), landmark);
+        }
+
+        void accumulate(Activity activity) {
+            if (activity.purchaseWeight > 0) {
+                bestsellers.accumulate(activity.bookId, activity.purchaseWeight, activity.at);
+            }
+            trending.accumulate(activity.bookId, activity.interestWeight, activity.at);
+        }
+
+        void rank() {
+            bestsellers.rank();
+            trending.rank();
+        }
+
+        void record(Activity activity) {
+            if (activity.purchaseWeight > 0) {
+                bestsellers.record(activity.bookId, activity.purchaseWeight, activity.at);
+            }
+            trending.record(activity.bookId, activity.interestWeight, activity.at);
+        }
+    }
+
+    /**
+     * Forward-decayed scores of every book, plus a min-heap of the {@value #TOP_K} best. As scores
+     * only grow, a book outside the heap can only enter it on an event of its own, by beating the
+     * heap's minimum.
+     */
+    private static final class Ranking {
+        private final double halfLifeMillis;
+        private long landmark;
+        private final LongFloatHashMap scores = new LongFloatHashMap();
+        private final long[] heapIds = new long[TOP_K];
+        private final float[] heapScores = new float[TOP_K];
+        private int heapSize;
+        private volatile long[] ranked = new long[0];
+
+        Ranking(Duration halfLife, long landmark) {
+            this.halfLifeMillis = halfLife.toMillis();
+            this.landmark = landmark;
+        }
+
+        // Adds to the score without maintaining the heap; rank() builds it afterwards
+        float accumulate(long bookId, float weight, long at) {
+            double halfLives = (at - landmark) / halfLifeMillis;
+            if (halfLives > MAX_HALF_LIVES) {
+                rescale(at);
+                halfLives = 0;
+            }
+            return scores.add(bookId, (float) (weight * Math.pow(2, halfLives)));
+        }
+
+        void rank() {
+            TopK top = new TopK(TOP_K);
+            scores.forEach((bookId, score) -> {
+                // Activity far older than this list's half-life decays to nothing
+                if (score > 0) {
+                    top.offer(bookId, score);
+                }
+            });
+            float[] best = new float[top.size()];
+            long[] ids = top.drain(best);
+            heapSize = 0;
+            for (int i = ids.length - 1; i >= 0; i--) {
+                heapIds[heapSize] = ids[i];
+                heapScores[heapSize] = best[i];
+                heapSize++;
+            }
+            // Worst first is already a valid min-heap
+            ranked = ids;
+        }
+
+        void record(long bookId, float weight, long at) {
+            float score = accumulate(bookId, weight, at);
+            for (int i = 0; i < heapSize; i++) {
+                if (heapIds[i] == bookId) {
+                    heapScores[i] = score;
+                    siftDown(i);
+                    publish();
+                    return;
+                }
+            }
+            if (heapSize < TOP_K) {
+                heapIds[heapSize] = bookId;
+                heapScores[heapSize] = score;
+                siftUp(heapSize++);
+                publish();
+            } else if (better(bookId, score, heapIds[0], heapScores[0])) {
+                heapIds[0] = bookId;
+                heapScores[0] = score;
+                siftDown(0);
+                publish();
+            }
+        }
+
+        // Moves the landmark to now; scaling every score by the same factor keeps the order
+        private void rescale(long now) {
+            float factor = (float) Math.pow(2, (landmark - now) / halfLifeMillis);
+            scores.forEach((bookId, score) -> scores.put(bookId, score * factor));
+            for (int i = 0; i < heapSize; i++) {
+                heapScores[i] *= factor;
+            }
+            landmark = now;
+        }
+
+        private void publish() {
+            long[] ids = Arrays.copyOf(heapIds, heapSize);
+            float[] best = Arrays.copyOf(heapScores, heapSize);
+            Integer[] order = new Integer[heapSize];
+            for (int i = 0; i < heapSize; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> better(ids[a], best[a], ids[b], best[b]) ? -1 : 1);
+            long[] sorted = new long[heapSize];
+            for (int i = 0; i < heapSize; i++) {
+                sorted[i] = ids[order[i]];
+            }
+            ranked = sorted;
+        }
+
+        private static boolean better(long idA, float scoreA, long idB, float scoreB) {
+            return scoreA > scoreB || (scoreA == scoreB && idA < idB);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!better(heapIds[parent], heapScores[parent], heapIds[i], heapScores[i])) {
+                    break;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= heapSize) {
+                    break;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < heapSize && better(heapIds[left], heapScores[left], heapIds[right], heapScores[right])) {
+                    worst = right;
+                }
+                if (!better(heapIds[i], heapScores[i], heapIds[worst], heapScores[worst])) {
+                    break;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = heapIds[a];
+            heapIds[a] = heapIds[b];
+            heapIds[b] = id;
+            float score = heapScores[a];
+            heapScores[a] = heapScores[b];
+            heapScores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.bookstore.demo.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.util.LongFloatHashMap;
+import com.bookstore.demo.util.LongObjectHashMap;
+import com.bookstore.demo.util.TopK;
+
+/**
+ * Item-to-item collaborative filtering over purchases, cart contents and favourable reviews.
+ * <p>
+ * Two books co-occur when the same user interacted with both. A full rebuild scans the
+ * interaction tables, archived orders included, keeps the co-occurrence counts in a sparse primitive-keyed matrix and
+ * precomputes each book's top neighbours by cosine similarity. New orders from the order outbox
+ * are folded in before the outbox records their delivery, one batch at a time, and only recompute
+ * the neighbour lists of the books involved. The model remembers every order it has counted, so a
+ * redelivered or already rebuilt order is not counted twice, whatever order the ids committed in.
+ * Serving reads the user's strongest items and merges their precomputed neighbours, so the cost
+ * is bounded by seeds x neighbours rather than by catalog size.
+ */
+@Component
+public class RecommendationEngine implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEngine.class);
+
+    // A purchase says more than a cart add; only reviews of 4 stars and up count at all
+    private static final float PURCHASE_WEIGHT = 3f;
+    private static final float CART_WEIGHT = 1f;
+    private static final float REVIEW_WEIGHT = 2f;
+    private static final int MIN_POSITIVE_RATING = 4;
+
+    private static final int NEIGHBOURS_PER_BOOK = 20;
+    // Only a user's strongest items are paired, so heavy buyers stay O(cap^2) per rebuild and O(cap) per order
+    private static final int MAX_PAIRED_ITEMS_PER_USER = 100;
+    private static final int SEED_ITEMS = 20;
+    private static final int POPULAR_BOOKS = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes rebuilds and incremental updates; not a monitor, as a rebuild blocks on JDBC
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private Model model = new Model();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.recommendations.rebuild-interval-ms:3600000}",
+               initialDelayString = "${bookstore.recommendations.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        updateLock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        long start = System.nanoTime();
+        Model fresh = new Model();
+
+        jdbcTemplate.query("SELECT o.id, o.user_id, oi.book_id FROM order_items oi JOIN orders o ON o.id = oi.order_id",
+            rs -> {
+                fresh.countedOrders.addLong(rs.getLong(1));
+                fresh.interact(rs.getLong(2), rs.getLong(3), PURCHASE_WEIGHT);
+            });
+        jdbcTemplate.query("SELECT id, user_id, items FROM order_archive",
+            (RowCallbackHandler) rs -> {
+                fresh.countedOrders.addLong(rs.getLong(1));
+                long userId = rs.getLong(2);
+                OrderArchive.unpackItems(rs.getString(3), (bookId, quantity, unitPrice, totalPrice) ->
+                    fresh.interact(userId, bookId, PURCHASE_WEIGHT));
+            });
+        jdbcTemplate.query("SELECT user_id, book_id FROM cart_items",
+            (RowCallbackHandler) rs -> fresh.interact(rs.getLong(1), rs.getLong(2), CART_WEIGHT));
+        jdbcTemplate.query("SELECT user_id, book_id FROM reviews WHERE rating >= ?",
+            (RowCallbackHandler) rs -> fresh.interact(rs.getLong(1), rs.getLong(2), REVIEW_WEIGHT), MIN_POSITIVE_RATING);
+        fresh.computeCooccurrence();
+
+        lock.writeLock().lock();
+        try {
+            model = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recommendations rebuilt for {} users and {} books in {} ms",
+            fresh.itemsByUser.size(), fresh.neighbours.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public String consumerName() {
+        return "recommendations";
+    }
+
+    @Override
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        onOrdersPlaced(List.of(event));
+    }
+
+    // Applied before returning, so the outbox only deletes events the model holds; waits out a running rebuild
+    @Override
+    public void onOrdersPlaced(List<OrderPlacedEvent> events) {
+        updateLock.lock();
+        lock.writeLock().lock();
+        try {
+            LongFloatHashMap touched = new LongFloatHashMap();
+            for (OrderPlacedEvent event : events) {
+                // Orders read by the last rebuild or already delivered must not be counted twice
+                Long orderId = event.getOrderId();
+                if (orderId != null) {
+                    if (model.countedOrders.contains(orderId)) {
+                        continue;
+                    }
+                    model.countedOrders.addLong(orderId);
+                }
+                model.addPurchase(event.getUserId(), event.getBookIds(), touched);
+            }
+            // Similarities of untouched books drift slightly until the next full rebuild
+            touched.forEach((bookId, ignored) -> model.neighbours.put(bookId, model.topNeighbours(bookId)));
+        } finally {
+            lock.writeLock().unlock();
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Book ids to recommend to the user, best first. Users without history get the most popular books.
+     */
+    public List<Long> recommend(long userId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>(limit);
+            LongFloatHashMap history = model.itemsByUser.get(userId);
+
+            if (history != null) {
+                TopK seeds = new TopK(SEED_ITEMS);
+                history.forEach(seeds::offer);
+                float[] seedWeights = new float[seeds.size()];
+                long[] seedIds = seeds.drain(seedWeights);
+
+                LongFloatHashMap scores = new LongFloatHashMap(seedIds.length * NEIGHBOURS_PER_BOOK);
+                for (int s = 0; s < seedIds.length; s++) {
+                    Neighbours neighbours = model.neighbours.get(seedIds[s]);
+                    if (neighbours == null) {
+                        continue;
+                    }
+                    for (int n = 0; n < neighbours.ids.length; n++) {
+                        if (!history.containsKey(neighbours.ids[n])) {
+                            scores.add(neighbours.ids[n], seedWeights[s] * neighbours.scores[n]);
+                        }
+                    }
+                }
+
+                TopK top = new TopK(limit);
+                scores.forEach(top::offer);
+                for (long bookId : top.drain()) {
+                    result.add(bookId);
+                }
+            }
+
+            // Top up thin or missing histories with popular books
+            for (int i = 0; i < model.popular.length && result.size() < limit; i++) {
+                long bookId = model.popular[i];
+                if ((history == null || !history.containsKey(bookId)) && !result.contains(bookId)) {
+                    result.add(bookId);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Neighbours {
+        private static final Neighbours EMPTY = new Neighbours(new long[0], new float[0]);
+
+        private final long[] ids;
+        private final float[] scores;
+
+        Neighbours(long[] ids, float[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+    }
+
+    private static final class Model {
+        // user -> (book -> interaction weight)
+        private final LongObjectHashMap<LongFloatHashMap> itemsByUser = new LongObjectHashMap<>();
+        // Sparse symmetric matrix: book -> (other book -> co-occurrence weight)
+        private final LongObjectHashMap<LongFloatHashMap> cooccurrence = new LongObjectHashMap<>();
+        // book -> total interaction weight, the norm used for cosine similarity
+        private final LongFloatHashMap popularity = new LongFloatHashMap();
+        private final LongObjectHashMap<Neighbours> neighbours = new LongObjectHashMap<>();
+        private long[] popular = new long[0];
+        // Ids of the orders counted above; dense ids compress to a few bytes per thousand orders
+        private final Roaring64Bitmap countedOrders = new Roaring64Bitmap();
+
+        void interact(long userId, long bookId, float weight) {
+            itemsByUser.computeIfAbsent(userId, id -> new LongFloatHashMap()).add(bookId, weight);
+        }
+
+        void computeCooccurrence() {
+            itemsByUser.forEach((userId, items) -> {
+                items.forEach(popularity::add);
+
+                TopK strongest = new TopK(MAX_PAIRED_ITEMS_PER_USER);
+                items.forEach(strongest::offer);
+                float[] weights = new float[strongest.size()];
+                long[] bookIds = strongest.drain(weights);
+
+                for (int i = 0; i < bookIds.length; i++) {
+                    for (int j = i + 1; j < bookIds.length; j++) {
+                        cooccur(bookIds[i], bookIds[j], Math.min(weights[i], weights[j]));
+                    }
+                }
+            });
+
+            cooccurrence.forEach((bookId, row) -> neighbours.put(bookId, topNeighbours(bookId)));
+
+            TopK mostPopular = new TopK(POPULAR_BOOKS);
+            popularity.forEach(mostPopular::offer);
+            popular = mostPopular.drain();
+        }
+
+        void addPurchase(long userId, List<Long> bookIds, LongFloatHashMap touched) {
+            LongFloatHashMap history = itemsByUser.computeIfAbsent(userId, id -> new LongFloatHashMap());
+            for (Long bookId : bookIds) {
+                long book = bookId;
+                // Paired with the user's strongest items only, as in a rebuild
+                TopK strongest = new TopK(MAX_PAIRED_ITEMS_PER_USER);
+                history.forEach(strongest::offer);
+                float[] weights = new float[strongest.size()];
+                long[] others = strongest.drain(weights);
+                for (int i = 0; i < others.length; i++) {
+                    if (others[i] != book) {
+                        cooccur(book, others[i], Math.min(PURCHASE_WEIGHT, weights[i]));
+                        touched.put(others[i], 1f);
+                    }
+                }
+                history.add(book, PURCHASE_WEIGHT);
+                popularity.add(book, PURCHASE_WEIGHT);
+                touched.put(book, 1f);
+            }
+        }
+
+        private void cooccur(long a, long b, float weight) {
+            cooccurrence.computeIfAbsent(a, id -> new LongFloatHashMap()).add(b, weight);
+            cooccurrence.computeIfAbsent(b, id -> new LongFloatHashMap()).add(a, weight);
+        }
+
+        Neighbours topNeighbours(long bookId) {
+            LongFloatHashMap row = cooccurrence.get(bookId);
+            if (row == null) {
+                return Neighbours.EMPTY;
+            }
+            float norm = popularity.get(bookId);
+            TopK top = new TopK(NEIGHBOURS_PER_BOOK);
+            row.forEach((other, weight) -> top.offer(other, (float) (weight / Math.sqrt(norm * popularity.get(other)))));
+            float[] scores = new float[top.size()];
+            long[] ids = top.drain(scores);
+            return new Neighbours(ids, scores);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.bookstore.demo.repository;
+
+import com.bookstore.demo.entity.BookRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BookRatingStatsRepository extends JpaRepository<BookRatingStats, Long> {
+    
+    // Recomputes every book's aggregates from the reviews table, for data written before stats existed
+    @Modifying
+    @Query(value = "INSERT INTO book_rating_stats " +
+                   "(book_id, rating_sum, review_count, one_star, two_star, three_star, four_star, five_star) " +
+                   "SELECT book_id, SUM(rating), COUNT(*), " +
+                   "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), " +
+                   "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END) " +
+                   "FROM reviews GROUP BY book_id", nativeQuery = true)
+    int insertFromReviews();
+}
@@ -1,12 +1,21 @@
 package com.bookstore.demo.repository;
 
 import com.bookstore.demo.entity.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
@@ -16,4 +25,24 @@ public interface BookRepository extends JpaRepository<Book, Long> {
            "LOWER(b.author) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(b.category) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<Book> searchBooks(@Param("query") String query);
+    
+    // Keyset batch used to walk the whole table without OFFSET scans
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    // Keyset page in any sort order; the sort must end with a unique key such as id
+    Window<Book> findBy(ScrollPosition position, Sort sort, Limit limit);
+    
+    // Keyset pages split by whether the sort key is set: keyset predicates never match NULL, so those rows are paged by id
+    Window<Book> findByPriceNotNull(ScrollPosition position, Sort sort, Limit limit);
+    
+    Window<Book> findByPriceIsNull(ScrollPosition position, Sort sort, Limit limit);
+    
+    Window<Book> findByTitleNotNull(ScrollPosition position, Sort sort, Limit limit);
+    
+    Window<Book> findByTitleIsNull(ScrollPosition position, Sort sort, Limit limit);
+    
+    // Row lock that serializes writes to a book's derived aggregates
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findByIdForUpdate(@Param("id") Long id);
 }
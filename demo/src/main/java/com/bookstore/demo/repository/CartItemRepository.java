@@ -4,6 +4,9 @@ import com.bookstore.demo.entity.CartItem;
 import com.bookstore.demo.entity.User;
 import com.bookstore.demo.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,4 +26,13 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteByUser(User user);
     
     void deleteByUserId(Long userId);
+    
+    // Cart with its books in one query, for pricing at checkout
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.book WHERE c.user.id = :userId")
+    List<CartItem> findByUserIdWithBook(@Param("userId") Long userId);
+    
+    // Single bulk statement instead of a select and delete per row
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
 }
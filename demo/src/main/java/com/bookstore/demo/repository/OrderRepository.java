@@ -1,10 +1,17 @@
 package com.bookstore.demo.repository;
 
+import com.bookstore.demo.dto.OrderLine;
+import com.bookstore.demo.dto.OrderSummary;
 import com.bookstore.demo.entity.Order;
 import com.bookstore.demo.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,7 +21,27 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     List<Order> findByUserId(Long userId);
     
-    List<Order> findByStatus(Order.OrderStatus status);
+    // A page of ids in one status, in id order from just after afterId; paging by id keeps each page an index range
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusAfter(@Param("status") Order.OrderStatus status, @Param("afterId") Long afterId, Limit limit);
     
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
+    
+    // Order history, newest first, as projections; ties on createdAt are broken by id
+    @Query("SELECT new com.bookstore.demo.dto.OrderSummary(o.id, o.status, o.totalAmount, o.shippingAddress, o.createdAt) " +
+           "FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Limit limit);
+    
+    // The page after the order at (createdAt, id)
+    @Query("SELECT new com.bookstore.demo.dto.OrderSummary(o.id, o.status, o.totalAmount, o.shippingAddress, o.createdAt) " +
+           "FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") Long id, Limit limit);
+    
+    // Items of many orders with their book fields in one query, instead of a query per order and per book
+    @Query("SELECT new com.bookstore.demo.dto.OrderLine(i.order.id, b.id, b.title, b.author, b.imageUrl, i.quantity, i.unitPrice, i.totalPrice) " +
+           "FROM OrderItem i JOIN i.book b WHERE i.order.id IN :orderIds ORDER BY i.order.id, i.id")
+    List<OrderLine> findLinesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
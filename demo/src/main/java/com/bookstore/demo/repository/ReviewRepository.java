@@ -1,8 +1,10 @@
 package com.bookstore.demo.repository;
 
+import com.bookstore.demo.dto.ReviewView;
 import com.bookstore.demo.entity.Review;
 import com.bookstore.demo.entity.Book;
 import com.bookstore.demo.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,11 +18,21 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     List<Review> findByBook(Book book);
     
-    List<Review> findByBookId(Long bookId);
+    // Explicit queries: the derived ones left join the user or book and filter on the joined id, which H2 answers with a table scan
+    @Query("SELECT r FROM Review r WHERE r.book.id = :bookId")
+    List<Review> findByBookId(@Param("bookId") Long bookId);
     
     List<Review> findByUser(User user);
     
-    List<Review> findByUserId(Long userId);
+    @Query("SELECT r FROM Review r WHERE r.user.id = :userId")
+    List<Review> findByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT r.id FROM Review r WHERE r.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+    
+    // A scalar, so the review itself is only loaded once its book is locked
+    @Query("SELECT r.book.id FROM Review r WHERE r.id = :id")
+    Optional<Long> findBookIdById(@Param("id") Long id);
     
     Optional<Review> findByUserAndBook(User user, Book book);
     
@@ -29,4 +41,23 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     @Query("SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId")
     Long countReviewsByBookId(@Param("bookId") Long bookId);
+    
+    // Reviews as projections with only the user and book columns the response shows, in one query
+    @Query("SELECT new com.bookstore.demo.dto.ReviewView(r.id, r.rating, r.comment, r.createdAt, u.id, u.name, b.id, b.title) " +
+           "FROM Review r JOIN r.user u JOIN r.book b WHERE b.id = :bookId ORDER BY r.id")
+    List<ReviewView> findViewsByBookId(@Param("bookId") Long bookId);
+    
+    // One keyset batch of a book's reviews. Filtered and ordered on reviews.book_id, which the entity join
+    // keeps Hibernate from rewriting to books.id, so H2 walks idx_reviews_book_id without sorting
+    @Query("SELECT new com.bookstore.demo.dto.ReviewView(r.id, r.rating, r.comment, r.createdAt, u.id, u.name, b.id, b.title) " +
+           "FROM Review r JOIN r.user u JOIN Book b ON b.id = r.book.id WHERE r.book.id = :bookId AND r.id > :afterId ORDER BY r.book.id, r.id")
+    List<ReviewView> findViewsByBookIdAfter(@Param("bookId") Long bookId, @Param("afterId") Long afterId, Limit limit);
+    
+    @Query("SELECT new com.bookstore.demo.dto.ReviewView(r.id, r.rating, r.comment, r.createdAt, u.id, u.name, b.id, b.title) " +
+           "FROM Review r JOIN r.user u JOIN r.book b WHERE u.id = :userId ORDER BY r.id")
+    List<ReviewView> findViewsByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT new com.bookstore.demo.dto.ReviewView(r.id, r.rating, r.comment, r.createdAt, u.id, u.name, b.id, b.title) " +
+           "FROM Review r JOIN r.user u JOIN r.book b WHERE r.id = :id")
+    Optional<ReviewView> findViewById(@Param("id") Long id);
 }
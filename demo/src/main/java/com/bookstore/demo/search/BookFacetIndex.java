@@ -0,0 +1,521 @@
+package com.bookstore.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.util.TopK;
+
+/**
+ * Facet counts by category, author and price bucket for browsing the catalog.
+ * <p>
+ * Every book gets a dense doc number and every facet value a compressed bitmap of the docs that have
+ * it, so filtering is an AND of bitmaps and a count is an intersection cardinality; nothing is grouped
+ * per request. Each facet is counted with the filters of the other facets applied but not its own, so a
+ * client can offer the alternatives to what is already selected. Categories are free text and are
+ * matched ignoring case and extra whitespace.
+ * <p>
+ * Like {@link BookSearchIndex}, the index is rebuilt from the database at startup and kept current
+ * through {@link BookChangedEvent}. Docs are numbered in book id order at a rebuild and appended in
+ * commit order after it, so two books created concurrently may be numbered out of id order. Pages
+ * therefore follow doc order, and the cursor book is looked up to find the doc to resume after.
+ * Deleted books keep their doc, only dropped from the bitmaps, so a cursor on a deleted book still
+ * resumes in place.
+ */
+@Component
+public class BookFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookFacetIndex.class);
+
+    public static final String CATEGORY = "category";
+    public static final String AUTHOR = "author";
+    public static final String PRICE = "price";
+
+    // Upper bounds of the price buckets; the last bucket is open-ended
+    private static final double[] PRICE_BOUNDS = { 10, 20, 30, 50, 100 };
+    private static final List<String> PRICE_LABELS = List.of("0-10", "10-20", "20-30", "30-50", "50-100", "100+");
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    private volatile FacetState state = new FacetState();
+
+    // Non-null while a rebuild runs; changes seen meanwhile are replayed onto the new index
+    private List<BookChangedEvent> pendingChanges;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        FacetState fresh = new FacetState();
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+        }
+
+        try {
+            // Only the faceted columns, straight from JDBC; entities would also churn the books cache
+            long lastId = 0;
+            List<Book> batch;
+            do {
+                batch = jdbcTemplate.query("SELECT id, author, category, price FROM books WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY",
+                    (rs, rowNum) -> {
+                        Book book = new Book(null, rs.getString("author"), rs.getString("category"), rs.getObject("price", Double.class), null, null);
+                        book.setId(rs.getLong("id"));
+                        return book;
+                    }, lastId, REBUILD_BATCH_SIZE);
+                for (Book book : batch) {
+                    fresh.index(book);
+                    lastId = book.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (BookChangedEvent change : pendingChanges) {
+                apply(fresh, change);
+            }
+            pendingChanges = null;
+            state = fresh;
+        }
+        log.info("Facet index rebuilt with {} books in {} ms", fresh.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        if (pendingChanges != null) {
+            pendingChanges.add(event);
+        }
+        apply(state, event);
+    }
+
+    public synchronized void index(Book book) {
+        state.index(book);
+    }
+
+    public synchronized void remove(Long bookId) {
+        state.remove(bookId);
+    }
+
+    public int size() {
+        return state.size();
+    }
+
+    /**
+     * Filters the catalog by the query's text and selected facet values and counts every facet over
+     * the result. Values selected within one facet are alternatives; selections in different facets
+     * must all match.
+     */
+    public FacetResult browse(FacetQuery query) {
+        long[] textMatches = query.getText() == null || query.getText().isBlank()
+            ? null
+            : bookSearchIndex.matchAll(query.getText());
+        return state.browse(query, textMatches);
+    }
+
+    public static List<String> priceBuckets() {
+        return PRICE_LABELS;
+    }
+
+    private static void apply(FacetState target, BookChangedEvent event) {
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            target.remove(event.getBook().getId());
+        } else {
+            target.index(event.getBook());
+        }
+    }
+
+    private static String priceBucket(Double price) {
+        if (price == null) {
+            return null;
+        }
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return PRICE_LABELS.get(bucket);
+    }
+
+    private static final class FacetState {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Every book indexed since the last rebuild, deleted or not; sorted to seek to an unknown cursor
+        private final NavigableMap<Long, Integer> docByBookId = new TreeMap<>();
+        private long[] bookIdByDoc = new long[256];
+        private int nextDoc;
+        private final RoaringBitmap live = new RoaringBitmap();
+        private final Map<String, Facet> facets = new LinkedHashMap<>();
+
+        FacetState() {
+            facets.put(CATEGORY, new Facet());
+            facets.put(AUTHOR, new Facet());
+            Facet prices = new Facet();
+            for (String label : PRICE_LABELS) {
+                prices.value(label);
+            }
+            facets.put(PRICE, prices);
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return live.getCardinality();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void index(Book book) {
+            lock.writeLock().lock();
+            try {
+                Integer doc = docByBookId.get(book.getId());
+                if (doc == null) {
+                    doc = nextDoc++;
+                    if (doc == bookIdByDoc.length) {
+                        bookIdByDoc = Arrays.copyOf(bookIdByDoc, doc * 2);
+                    }
+                    bookIdByDoc[doc] = book.getId();
+                    docByBookId.put(book.getId(), doc);
+                }
+                live.add(doc);
+                facets.get(CATEGORY).set(doc, book.getCategory());
+                facets.get(AUTHOR).set(doc, book.getAuthor());
+                facets.get(PRICE).set(doc, priceBucket(book.getPrice()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long bookId) {
+            lock.writeLock().lock();
+            try {
+                Integer doc = docByBookId.get(bookId);
+                if (doc != null && live.contains(doc)) {
+                    live.remove(doc);
+                    for (Facet facet : facets.values()) {
+                        facet.set(doc, null);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        FacetResult browse(FacetQuery query, long[] textMatches) {
+            lock.readLock().lock();
+            try {
+                RoaringBitmap base = live;
+                if (textMatches != null) {
+                    base = new RoaringBitmap();
+                    for (long bookId : textMatches) {
+                        Integer doc = docByBookId.get(bookId);
+                        if (doc != null && live.contains(doc)) {
+                            base.add(doc.intValue());
+                        }
+                    }
+                }
+
+                Map<String, RoaringBitmap> filters = new LinkedHashMap<>();
+                for (Map.Entry<String, Facet> facet : facets.entrySet()) {
+                    Collection<String> selected = query.getSelected(facet.getKey());
+                    if (!selected.isEmpty()) {
+                        filters.put(facet.getKey(), facet.getValue().union(selected));
+                    }
+                }
+
+                RoaringBitmap matches = base;
+                for (RoaringBitmap filter : filters.values()) {
+                    matches = RoaringBitmap.and(matches, filter);
+                }
+
+                FacetResult result = new FacetResult();
+                result.total = matches.getCardinality();
+                for (Map.Entry<String, Facet> facet : facets.entrySet()) {
+                    // Counted under every filter but this facet's own
+                    RoaringBitmap context = base;
+                    for (Map.Entry<String, RoaringBitmap> filter : filters.entrySet()) {
+                        if (!filter.getKey().equals(facet.getKey())) {
+                            context = RoaringBitmap.and(context, filter.getValue());
+                        }
+                    }
+                    int limit = PRICE.equals(facet.getKey()) ? PRICE_LABELS.size() : query.getFacetLimit();
+                    result.facets.put(facet.getKey(), facet.getValue().count(context, context == live, limit,
+                        PRICE.equals(facet.getKey())));
+                }
+
+                // A page of matches in doc order after the cursor book's doc
+                PeekableIntIterator docs = matches.getIntIterator();
+                int from = firstDocAfter(query.getAfterBookId());
+                if (from > 0) {
+                    docs.advanceIfNeeded(from);
+                }
+                while (docs.hasNext() && result.bookIds.size() < query.getSize()) {
+                    result.bookIds.add(bookIdByDoc[docs.next()]);
+                }
+                result.hasMore = docs.hasNext();
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // A book unknown here was deleted before the last rebuild; resume at the next book id, whose doc
+        // is in id order with the rest of the rebuilt docs
+        private int firstDocAfter(Long bookId) {
+            if (bookId == null) {
+                return 0;
+            }
+            Integer doc = docByBookId.get(bookId);
+            if (doc != null) {
+                return doc + 1;
+            }
+            Map.Entry<Long, Integer> next = docByBookId.higherEntry(bookId);
+            return next != null ? next.getValue() : nextDoc;
+        }
+    }
+
+    // One facet: a bitmap of docs per value, and each doc's value so it can be moved when the book changes
+    private static final class Facet {
+        private final List<FacetValue> values = new ArrayList<>();
+        private final Map<String, Integer> ordinalByKey = new HashMap<>();
+        private int[] ordinalByDoc = new int[0];
+
+        int value(String label) {
+            return ordinalByKey.computeIfAbsent(key(label), key -> {
+                values.add(new FacetValue(WHITESPACE.matcher(label.trim()).replaceAll(" ")));
+                return values.size() - 1;
+            });
+        }
+
+        void set(int doc, String label) {
+            if (doc >= ordinalByDoc.length) {
+                int length = ordinalByDoc.length;
+                ordinalByDoc = Arrays.copyOf(ordinalByDoc, Math.max(256, doc * 2));
+                Arrays.fill(ordinalByDoc, length, ordinalByDoc.length, -1);
+            }
+            int ordinal = label == null || label.isBlank() ? -1 : value(label);
+            int previous = ordinalByDoc[doc];
+            if (previous == ordinal) {
+                return;
+            }
+            if (previous >= 0) {
+                values.get(previous).docs.remove(doc);
+                values.get(previous).count--;
+            }
+            if (ordinal >= 0) {
+                values.get(ordinal).docs.add(doc);
+                values.get(ordinal).count++;
+            }
+            ordinalByDoc[doc] = ordinal;
+        }
+
+        // Docs having any of the given values; values never seen match nothing
+        RoaringBitmap union(Collection<String> labels) {
+            List<RoaringBitmap> selected = new ArrayList<>();
+            for (String label : labels) {
+                Integer ordinal = ordinalByKey.get(key(label));
+                if (ordinal != null) {
+                    selected.add(values.get(ordinal).docs);
+                }
+            }
+            return RoaringBitmap.or(selected.iterator());
+        }
+
+        /**
+         * The values with the most docs in context, best first, or every value in definition order
+         * when inOrder is set. Without any filter the context is every doc and the maintained counts
+         * are the answer. A context smaller than the number of values is counted doc by doc; a larger
+         * one by intersecting each value's bitmap with it.
+         */
+        List<FacetCount> count(RoaringBitmap context, boolean everything, int limit, boolean inOrder) {
+            int[] counts = null;
+            if (everything) {
+                counts = new int[values.size()];
+                for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+                    counts[ordinal] = values.get(ordinal).count;
+                }
+            } else if (context.getCardinality() < values.size()) {
+                counts = new int[values.size()];
+                for (IntIterator docs = context.getIntIterator(); docs.hasNext(); ) {
+                    int ordinal = ordinalByDoc[docs.next()];
+                    if (ordinal >= 0) {
+                        counts[ordinal]++;
+                    }
+                }
+            }
+
+            List<FacetCount> result = new ArrayList<>();
+            if (inOrder) {
+                for (int ordinal = 0; ordinal < values.size(); ordinal++) {
+                    FacetValue value = values.get(ordinal);
+                    result.add(new FacetCount(value.label, counts != null ? counts[ordinal] : RoaringBitmap.andCardinality(value.docs, context)));
+                }
+                return result;
+            }
+
+            TopK top = new TopK(limit);
+            for (int ordinal = 0; ordinal < values.size(); ordinal++) {
+                FacetValue value = values.get(ordinal);
+                // A value cannot count more docs than it has, so most of a long tail is never intersected
+                if (value.count == 0 || value.count < top.threshold()) {
+                    continue;
+                }
+                int count = counts != null ? counts[ordinal] : RoaringBitmap.andCardinality(value.docs, context);
+                if (count > 0) {
+                    top.offer(ordinal, count);
+                }
+            }
+            float[] scores = new float[top.size()];
+            long[] ordinals = top.drain(scores);
+            for (int i = 0; i < ordinals.length; i++) {
+                result.add(new FacetCount(values.get((int) ordinals[i]).label, (int) scores[i]));
+            }
+            return result;
+        }
+
+        private static String key(String label) {
+            return WHITESPACE.matcher(label.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class FacetValue {
+        final String label;
+        final RoaringBitmap docs = new RoaringBitmap();
+        // Size of docs, kept as books change so unfiltered counts need no bitmap work
+        int count;
+
+        FacetValue(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * What to browse: optional search text, the selected values of each facet, and a page of the
+     * matches after the cursor book id.
+     */
+    public static class FacetQuery {
+        private String text;
+        private final Map<String, List<String>> selected = new HashMap<>();
+        private int size = 20;
+        private Long afterBookId;
+        private int facetLimit = 20;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public List<String> getSelected(String facet) {
+            return selected.getOrDefault(facet, List.of());
+        }
+
+        public void select(String facet, List<String> values) {
+            if (values != null && !values.isEmpty()) {
+                selected.put(facet, values);
+            }
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public Long getAfterBookId() {
+            return afterBookId;
+        }
+
+        public void setAfterBookId(Long afterBookId) {
+            this.afterBookId = afterBookId;
+        }
+
+        public int getFacetLimit() {
+            return facetLimit;
+        }
+
+        public void setFacetLimit(int facetLimit) {
+            this.facetLimit = facetLimit;
+        }
+    }
+
+    public static class FacetResult {
+        private int total;
+        private final List<Long> bookIds = new ArrayList<>();
+        private boolean hasMore;
+        private final Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Long> getBookIds() {
+            return bookIds;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        public Map<String, List<FacetCount>> getFacets() {
+            return facets;
+        }
+    }
+
+    public static class FacetCount {
+        private final String value;
+        private final int count;
+
+        public FacetCount(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
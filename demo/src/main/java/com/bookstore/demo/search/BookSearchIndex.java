@@ -0,0 +1,605 @@
+package com.bookstore.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.repository.BookRepository;
+
+/**
+ * In-process inverted index over book title, author and category.
+ * <p>
+ * Every query token must match (AND semantics). A token matches an indexed term
+ * exactly or as a prefix; exact matches and title hits rank highest. The index is
+ * rebuilt from the database at startup and kept current through {@link BookChangedEvent}.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final byte TITLE = 1;
+    private static final byte AUTHOR = 2;
+    private static final byte CATEGORY = 4;
+
+    // Score of a posting indexed by its field mask: title 3, author 2, category 1
+    private static final float[] FIELD_WEIGHTS = new float[8];
+    static {
+        for (int mask = 0; mask < FIELD_WEIGHTS.length; mask++) {
+            FIELD_WEIGHTS[mask] = ((mask & TITLE) != 0 ? 3f : 0f)
+                    + ((mask & AUTHOR) != 0 ? 2f : 0f)
+                    + ((mask & CATEGORY) != 0 ? 1f : 0f);
+        }
+    }
+
+    private static final float PREFIX_FACTOR = 0.5f;
+    // Most terms a query prefix is scored by one by one; the rest of its range is merged into one posting list
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private volatile IndexState state = new IndexState();
+
+    // Non-null while a rebuild runs; changes seen meanwhile are replayed onto the new index
+    private List<BookChangedEvent> pendingChanges;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        IndexState fresh = new IndexState();
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+        }
+
+        try {
+            Long lastId = 0L;
+            List<Book> batch;
+            do {
+                batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Book book : batch) {
+                    fresh.index(book);
+                    lastId = book.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (BookChangedEvent change : pendingChanges) {
+                apply(fresh, change);
+            }
+            pendingChanges = null;
+            state = fresh;
+        }
+        log.info("Search index rebuilt with {} books in {} ms", fresh.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        if (pendingChanges != null) {
+            pendingChanges.add(event);
+        }
+        apply(state, event);
+    }
+
+    public synchronized void index(Book book) {
+        state.index(book);
+    }
+
+    public synchronized void remove(Long bookId) {
+        state.remove(bookId);
+    }
+
+    public int size() {
+        return state.size();
+    }
+
+    /**
+     * Returns the ids of the best matching books, most relevant first.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = Tokenizer.tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        return state.search(tokens, limit);
+    }
+
+    /**
+     * Returns the ids of every book matching the query, unranked, for callers that filter or count them.
+     */
+    public long[] matchAll(String query) {
+        List<String> tokens = Tokenizer.tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty()) {
+            return new long[0];
+        }
+        return state.matchAll(tokens);
+    }
+
+    private static void apply(IndexState target, BookChangedEvent event) {
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            target.remove(event.getBook().getId());
+        } else {
+            target.index(event.getBook());
+        }
+    }
+
+    private static final class IndexState {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, PostingList> terms = new TreeMap<>();
+        private final Map<Long, Integer> docByBookId = new HashMap<>();
+        private long[] bookIdByDoc = new long[256];
+        // Postings each doc was added to, so an update can undo them without a reverse scan
+        private PostingList[][] postingsByDoc = new PostingList[256][];
+        private int nextDoc;
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return docByBookId.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void index(Book book) {
+            Map<String, Byte> fieldsByTerm = new HashMap<>();
+            collect(fieldsByTerm, book.getTitle(), TITLE);
+            collect(fieldsByTerm, book.getAuthor(), AUTHOR);
+            collect(fieldsByTerm, book.getCategory(), CATEGORY);
+
+            lock.writeLock().lock();
+            try {
+                Integer existing = docByBookId.get(book.getId());
+                int doc;
+                if (existing != null) {
+                    doc = existing;
+                    // Terms the book keeps are updated in place below; taking it out of a long posting list
+                    // and putting it back would shift the list twice for every re-indexed book
+                    unindex(doc, fieldsByTerm);
+                } else {
+                    doc = nextDoc++;
+                    if (doc == bookIdByDoc.length) {
+                        bookIdByDoc = Arrays.copyOf(bookIdByDoc, doc * 2);
+                        postingsByDoc = Arrays.copyOf(postingsByDoc, doc * 2);
+                    }
+                    bookIdByDoc[doc] = book.getId();
+                    docByBookId.put(book.getId(), doc);
+                }
+
+                PostingList[] postings = new PostingList[fieldsByTerm.size()];
+                int i = 0;
+                for (Map.Entry<String, Byte> entry : fieldsByTerm.entrySet()) {
+                    PostingList posting = terms.computeIfAbsent(entry.getKey(), PostingList::new);
+                    posting.add(doc, entry.getValue());
+                    postings[i++] = posting;
+                }
+                postingsByDoc[doc] = postings;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long bookId) {
+            lock.writeLock().lock();
+            try {
+                Integer doc = docByBookId.remove(bookId);
+                if (doc != null) {
+                    unindex(doc, Map.of());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Removes the doc from the postings of every term not in keptTerms
+        private void unindex(int doc, Map<String, Byte> keptTerms) {
+            PostingList[] postings = postingsByDoc[doc];
+            if (postings == null) {
+                return;
+            }
+            for (PostingList posting : postings) {
+                if (keptTerms.containsKey(posting.term)) {
+                    continue;
+                }
+                posting.remove(doc);
+                if (posting.size == 0) {
+                    terms.remove(posting.term);
+                }
+            }
+            postingsByDoc[doc] = null;
+        }
+
+        private static void collect(Map<String, Byte> fieldsByTerm, String text, byte field) {
+            for (String token : Tokenizer.tokenize(text)) {
+                fieldsByTerm.merge(token, field, (a, b) -> (byte) (a | b));
+            }
+        }
+
+        List<Long> search(List<String> tokens, int limit) {
+            lock.readLock().lock();
+            try {
+                Hits hits = match(tokens);
+                if (hits == null) {
+                    return List.of();
+                }
+                int[] top = hits.top(limit);
+                List<Long> bookIds = new ArrayList<>(top.length);
+                for (int index : top) {
+                    bookIds.add(bookIdByDoc[hits.docs[index]]);
+                }
+                return bookIds;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long[] matchAll(List<String> tokens) {
+            lock.readLock().lock();
+            try {
+                Hits hits = match(tokens);
+                if (hits == null) {
+                    return new long[0];
+                }
+                long[] bookIds = new long[hits.size];
+                for (int i = 0; i < hits.size; i++) {
+                    bookIds[i] = bookIdByDoc[hits.docs[i]];
+                }
+                return bookIds;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Docs matching every token, or null if some token matches nothing; callers hold the read lock
+        private Hits match(List<String> tokens) {
+            List<Clause> clauses = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Clause clause = expand(token);
+                if (clause.count == 0) {
+                    return null;
+                }
+                clauses.add(clause);
+            }
+
+            // Start from the most selective token and narrow down with the rest
+            clauses.sort(Comparator.comparingLong(clause -> clause.cost));
+            Hits hits = clauses.get(0).materialize();
+            for (int i = 1; i < clauses.size() && hits.size > 0; i++) {
+                hits = clauses.get(i).intersect(hits);
+            }
+            return hits;
+        }
+
+        private Clause expand(String token) {
+            Clause clause = new Clause();
+            PostingList exact = terms.get(token);
+            if (exact != null) {
+                clause.add(exact, 1f);
+            }
+            List<PostingList> prefixed = new ArrayList<>(terms.subMap(token, false, token + Character.MAX_VALUE, false).values());
+            if (prefixed.size() <= MAX_PREFIX_EXPANSIONS) {
+                for (PostingList posting : prefixed) {
+                    clause.add(posting, PREFIX_FACTOR);
+                }
+                return clause;
+            }
+
+            // A short prefix like "th": the terms in most books keep their own postings, and the long tail
+            // is merged into one, so every book under the prefix still matches, as with LIKE '%th%'
+            prefixed.sort(Comparator.comparingInt((PostingList posting) -> posting.size).reversed());
+            for (PostingList posting : prefixed.subList(0, MAX_PREFIX_EXPANSIONS - 1)) {
+                clause.add(posting, PREFIX_FACTOR);
+            }
+            clause.add(PostingList.union(prefixed.subList(MAX_PREFIX_EXPANSIONS - 1, prefixed.size())), PREFIX_FACTOR);
+            return clause;
+        }
+    }
+
+    // Doc ids sorted ascending, with the fields each doc matched the term in
+    private static final class PostingList {
+        private final String term;
+        private int[] docs = new int[2];
+        private byte[] fields = new byte[2];
+        private int size;
+
+        PostingList(String term) {
+            this.term = term;
+        }
+
+        // One list of every doc in the given lists, with the fields a doc matched in any of them; not indexed
+        static PostingList union(List<PostingList> lists) {
+            int total = 0;
+            for (PostingList list : lists) {
+                total += list.size;
+            }
+            // Doc and fields packed into one sortable long
+            long[] entries = new long[total];
+            int n = 0;
+            for (PostingList list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    entries[n++] = (long) list.docs[i] << 8 | list.fields[i];
+                }
+            }
+            Arrays.sort(entries);
+
+            PostingList merged = new PostingList(null);
+            merged.docs = new int[Math.max(total, 2)];
+            merged.fields = new byte[Math.max(total, 2)];
+            for (long entry : entries) {
+                int doc = (int) (entry >>> 8);
+                byte field = (byte) entry;
+                if (merged.size > 0 && merged.docs[merged.size - 1] == doc) {
+                    merged.fields[merged.size - 1] |= field;
+                } else {
+                    merged.docs[merged.size] = doc;
+                    merged.fields[merged.size] = field;
+                    merged.size++;
+                }
+            }
+            return merged;
+        }
+
+        void add(int doc, byte field) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index >= 0) {
+                // Re-indexed doc: the new fields replace the old
+                fields[index] = field;
+                return;
+            }
+            index = -index - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            System.arraycopy(fields, index, fields, index + 1, size - index);
+            docs[index] = doc;
+            fields[index] = field;
+            size++;
+        }
+
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            System.arraycopy(fields, index + 1, fields, index, size - index - 1);
+            size--;
+        }
+
+        // Adds this term's score to every target doc it contains; targets must be sorted
+        void accumulate(int[] targets, int targetCount, float factor, float[] into) {
+            if ((long) targetCount * 8 >= size) {
+                // Similar-sized lists: a plain merge walk is cheapest
+                int i = 0;
+                int j = 0;
+                while (i < targetCount && j < size) {
+                    int target = targets[i];
+                    int doc = docs[j];
+                    if (target == doc) {
+                        into[i] += factor * FIELD_WEIGHTS[fields[j]];
+                    }
+                    // Advance without data-dependent branches; the interleaving is random
+                    i += target <= doc ? 1 : 0;
+                    j += doc <= target ? 1 : 0;
+                }
+                return;
+            }
+
+            // Few targets against a long list: gallop ahead instead of walking every posting
+            int j = 0;
+            for (int i = 0; i < targetCount && j < size; i++) {
+                j = seek(targets[i], j);
+                if (j < size && docs[j] == targets[i]) {
+                    into[i] += factor * FIELD_WEIGHTS[fields[j]];
+                }
+            }
+        }
+
+        // First index at or after 'from' whose doc is >= the target
+        private int seek(int doc, int from) {
+            if (from >= size || docs[from] >= doc) {
+                return from;
+            }
+            int low = from;
+            int high = from + 1;
+            int step = 1;
+            while (high < size && docs[high] < doc) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            int index = Arrays.binarySearch(docs, low + 1, Math.min(high, size), doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    // All indexed terms one query token expanded to
+    private static final class Clause {
+        private final PostingList[] postings = new PostingList[MAX_PREFIX_EXPANSIONS + 1];
+        private final float[] factors = new float[MAX_PREFIX_EXPANSIONS + 1];
+        private int count;
+        private long cost;
+
+        void add(PostingList posting, float factor) {
+            postings[count] = posting;
+            factors[count] = factor;
+            count++;
+            cost += posting.size;
+        }
+
+        Hits materialize() {
+            // Union the postings smallest-first, so a dominant list is only copied once
+            PriorityQueue<Hits> queue = new PriorityQueue<>(count, Comparator.comparingInt(hits -> hits.size));
+            for (int p = 0; p < count; p++) {
+                PostingList posting = postings[p];
+                Hits hits = new Hits(posting.size);
+                for (int i = 0; i < posting.size; i++) {
+                    hits.append(posting.docs[i], factors[p] * FIELD_WEIGHTS[posting.fields[i]]);
+                }
+                queue.add(hits);
+            }
+            while (queue.size() > 1) {
+                queue.add(queue.poll().union(queue.poll()));
+            }
+            return queue.poll();
+        }
+
+        // Narrows the candidates in place to the docs this clause matches too
+        Hits intersect(Hits candidates) {
+            float[] matched = new float[candidates.size];
+            for (int p = 0; p < count; p++) {
+                postings[p].accumulate(candidates.docs, candidates.size, factors[p], matched);
+            }
+            int kept = 0;
+            for (int i = 0; i < candidates.size; i++) {
+                if (matched[i] > 0f) {
+                    candidates.docs[kept] = candidates.docs[i];
+                    candidates.scores[kept] = candidates.scores[i] + matched[i];
+                    kept++;
+                }
+            }
+            candidates.size = kept;
+            return candidates;
+        }
+    }
+
+    // Matching docs in ascending doc order with their accumulated scores
+    private static final class Hits {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        Hits(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void append(int doc, float score) {
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        Hits union(Hits other) {
+            Hits result = new Hits(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    result.append(docs[i], scores[i]);
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    result.append(other.docs[j], other.scores[j]);
+                    j++;
+                } else {
+                    result.append(docs[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            for (; i < size; i++) {
+                result.append(docs[i], scores[i]);
+            }
+            for (; j < other.size; j++) {
+                result.append(other.docs[j], other.scores[j]);
+            }
+            return result;
+        }
+
+        // Indexes of the best entries, best first; ties go to the older (lower) doc
+        int[] top(int limit) {
+            int k = Math.min(limit, size);
+            int[] heap = new int[k];
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (heapSize < k) {
+                    heap[heapSize] = i;
+                    siftUp(heap, heapSize++);
+                } else if (better(i, heap[0])) {
+                    heap[0] = i;
+                    siftDown(heap, heapSize);
+                }
+            }
+
+            int[] ranked = new int[k];
+            while (heapSize > 0) {
+                ranked[--heapSize] = heap[0];
+                heap[0] = heap[heapSize];
+                siftDown(heap, heapSize);
+            }
+            return ranked;
+        }
+
+        private boolean better(int a, int b) {
+            return scores[a] > scores[b] || (scores[a] == scores[b] && docs[a] < docs[b]);
+        }
+
+        // Min-heap with the worst entry at the root
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!better(heap[parent], heap[i])) {
+                    break;
+                }
+                swap(heap, parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int heapSize) {
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= heapSize) {
+                    break;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < heapSize && better(heap[left], heap[right])) {
+                    worst = right;
+                }
+                if (!better(heap[i], heap[worst])) {
+                    break;
+                }
+                swap(heap, i, worst);
+                i = worst;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
@@ -0,0 +1,704 @@
+package com.bookstore.demo.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.event.BookChangedEvent;
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.util.LongFloatHashMap;
+
+/**
+ * Typeahead suggestions over book titles and authors, most popular first.
+ * <p>
+ * Every distinct title and author is one suggestion, scored by the books that carry it: a point per
+ * book plus a point per order the book was bought in, archived orders included. A suggestion is keyed from the start of each of
+ * its words, so "potter" completes to "Harry Potter", and the keys are held in a radix trie laid out in
+ * parallel primitive arrays. Each trie node keeps the best score below it, so the top suggestions for a
+ * prefix are found best first and only the branches that can still place are visited, however large the
+ * catalog is.
+ * <p>
+ * Like {@link BookSearchIndex}, the trie is rebuilt from the database at startup and kept current
+ * through {@link BookChangedEvent}; placed orders, delivered from the order outbox, raise the scores of
+ * the books bought. Keys of removed suggestions leave empty nodes behind until the next rebuild.
+ */
+@Component
+public class BookSuggestIndex implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSuggestIndex.class);
+
+    public static final String TITLE = "title";
+    public static final String AUTHOR = "author";
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+    // Keys per suggestion: one from its first word, the rest from later words
+    private static final int MAX_KEY_WORDS = 6;
+    // Later words shorter than this, like "of" or "a", do not start a key
+    private static final int MIN_KEY_WORD_LENGTH = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile SuggestState state = new SuggestState();
+
+    // Non-null while a rebuild runs; changes seen meanwhile are replayed onto the new trie
+    private List<BookChangedEvent> pendingChanges;
+    private List<OrderPlacedEvent> pendingOrders;
+    // Ids of the orders counted in the scores, so an outbox delivery of one the rebuild read, or a redelivery, is skipped
+    private Roaring64Bitmap countedOrders = new Roaring64Bitmap();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        long start = System.nanoTime();
+        SuggestState fresh = new SuggestState();
+        synchronized (this) {
+            pendingChanges = new ArrayList<>();
+            pendingOrders = new ArrayList<>();
+        }
+
+        // Ids are not committed in order, so the orders read are remembered by id, not by the highest one
+        Roaring64Bitmap freshOrders = new Roaring64Bitmap();
+        try {
+            LongFloatHashMap ordersByBook = new LongFloatHashMap();
+            jdbcTemplate.query("SELECT order_id, book_id FROM order_items",
+                (RowCallbackHandler) rs -> {
+                    freshOrders.addLong(rs.getLong(1));
+                    ordersByBook.add(rs.getLong(2), 1);
+                });
+            jdbcTemplate.query("SELECT id, items FROM order_archive",
+                (RowCallbackHandler) rs -> {
+                    freshOrders.addLong(rs.getLong(1));
+                    OrderArchive.unpackItems(rs.getString(2),
+                        (bookId, quantity, unitPrice, totalPrice) -> ordersByBook.add(bookId, 1));
+                });
+
+            long lastId = 0;
+            List<Book> batch;
+            do {
+                batch = jdbcTemplate.query("SELECT id, title, author FROM books WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY",
+                    (rs, rowNum) -> {
+                        Book book = new Book(rs.getString("title"), rs.getString("author"), null, null, null, null);
+                        book.setId(rs.getLong("id"));
+                        return book;
+                    }, lastId, REBUILD_BATCH_SIZE);
+                for (Book book : batch) {
+                    fresh.index(book, 1 + ordersByBook.get(book.getId()));
+                    lastId = book.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingChanges = null;
+                pendingOrders = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            for (BookChangedEvent change : pendingChanges) {
+                apply(fresh, change);
+            }
+            for (OrderPlacedEvent order : pendingOrders) {
+                if (firstDelivery(freshOrders, order)) {
+                    fresh.addOrder(order.getBookIds());
+                }
+            }
+            pendingChanges = null;
+            pendingOrders = null;
+            countedOrders = freshOrders;
+            state = fresh;
+        }
+        log.info("Suggestions rebuilt with {} suggestions from {} books in {} ms", fresh.suggestionCount(), fresh.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        if (pendingChanges != null) {
+            pendingChanges.add(event);
+        }
+        apply(state, event);
+    }
+
+    @Override
+    public String consumerName() {
+        return "suggestions";
+    }
+
+    @Override
+    public synchronized void onOrderPlaced(OrderPlacedEvent event) {
+        if (!firstDelivery(countedOrders, event)) {
+            return;
+        }
+        if (pendingOrders != null) {
+            pendingOrders.add(event);
+        }
+        state.addOrder(event.getBookIds());
+    }
+
+    public synchronized void index(Book book) {
+        state.index(book, 1);
+    }
+
+    public synchronized void remove(Long bookId) {
+        state.remove(bookId);
+    }
+
+    public int size() {
+        return state.size();
+    }
+
+    /**
+     * The best titles and authors with a word starting with the query, most popular first. Every word
+     * of the query but the last must be typed in full.
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        List<String> tokens = Tokenizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String prefix = String.join(" ", tokens);
+        // A trailing space means the last word is complete too
+        if (Character.isWhitespace(query.charAt(query.length() - 1))) {
+            prefix += " ";
+        }
+        return state.suggest(prefix, limit);
+    }
+
+    // Marks the order counted; false if it already was
+    private static boolean firstDelivery(Roaring64Bitmap counted, OrderPlacedEvent order) {
+        Long orderId = order.getOrderId();
+        if (orderId == null) {
+            return true;
+        }
+        if (counted.contains(orderId)) {
+            return false;
+        }
+        counted.addLong(orderId);
+        return true;
+    }
+
+    private static void apply(SuggestState target, BookChangedEvent event) {
+        if (event.getChangeType() == BookChangedEvent.ChangeType.DELETED) {
+            target.remove(event.getBook().getId());
+        } else {
+            target.index(event.getBook(), 1);
+        }
+    }
+
+    // The keys a suggestion is found by: its normalized text from the first word and from later words
+    static List<String> keys(String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size() && keys.size() < MAX_KEY_WORDS; i++) {
+            if (i == 0 || tokens.get(i).length() >= MIN_KEY_WORD_LENGTH) {
+                keys.add(String.join(" ", tokens.subList(i, tokens.size())));
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    public static class Suggestion {
+        private final String text;
+        private final String type;
+
+        public Suggestion(String text, String type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+
+    // The suggestions a book contributes its popularity to
+    private static final class BookEntry {
+        int title = -1;
+        int author = -1;
+        float popularity;
+    }
+
+    private static final class SuggestState {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, BookEntry> books = new HashMap<>();
+
+        // Suggestions by id; ids of removed suggestions are reused
+        private final Map<String, Integer> suggestionByKey = new HashMap<>();
+        private String[] keysById = new String[256];
+        private String[] texts = new String[256];
+        private String[] types = new String[256];
+        private float[] scores = new float[256];
+        private int[] bookCounts = new int[256];
+        private int[][] leaves = new int[256][];
+        private int[] freeSuggestions = new int[16];
+        private int freeCount;
+        private int nextSuggestion;
+
+        private final Trie trie = new Trie();
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return books.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int suggestionCount() {
+            lock.readLock().lock();
+            try {
+                return suggestionByKey.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void index(Book book, float popularity) {
+            lock.writeLock().lock();
+            try {
+                BookEntry entry = books.get(book.getId());
+                if (entry == null) {
+                    entry = new BookEntry();
+                    entry.popularity = popularity;
+                    books.put(book.getId(), entry);
+                }
+                entry.title = move(entry.title, TITLE, book.getTitle(), entry.popularity);
+                entry.author = move(entry.author, AUTHOR, book.getAuthor(), entry.popularity);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long bookId) {
+            lock.writeLock().lock();
+            try {
+                BookEntry entry = books.remove(bookId);
+                if (entry != null) {
+                    release(entry.title, entry.popularity);
+                    release(entry.author, entry.popularity);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void addOrder(List<Long> bookIds) {
+            lock.writeLock().lock();
+            try {
+                for (Long bookId : bookIds) {
+                    BookEntry entry = books.get(bookId);
+                    if (entry == null) {
+                        continue;
+                    }
+                    entry.popularity += 1;
+                    rescore(entry.title, 1);
+                    rescore(entry.author, 1);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Suggestion> suggest(String prefix, int limit) {
+            lock.readLock().lock();
+            try {
+                List<Suggestion> result = new ArrayList<>(limit);
+                Set<Integer> seen = new HashSet<>();
+                // One suggestion can be reached through several of its keys
+                trie.best(prefix, leaf -> {
+                    int suggestion = trie.suggestionOf(leaf);
+                    if (seen.add(suggestion)) {
+                        result.add(new Suggestion(texts[suggestion], types[suggestion]));
+                    }
+                    return result.size() < limit;
+                });
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Moves a book's popularity from its current suggestion of a type to the one for the new text
+        private int move(int current, String type, String text, float popularity) {
+            String key = text == null ? null : type + ":" + String.join(" ", Tokenizer.tokenize(text));
+            if (current >= 0 && keysById[current].equals(key)) {
+                return current;
+            }
+            release(current, popularity);
+            if (key == null || key.length() == type.length() + 1) {
+                return -1;
+            }
+
+            Integer existing = suggestionByKey.get(key);
+            int suggestion = existing != null ? existing : create(key, type, text);
+            bookCounts[suggestion]++;
+            rescore(suggestion, popularity);
+            return suggestion;
+        }
+
+        private int create(String key, String type, String text) {
+            int suggestion;
+            if (freeCount > 0) {
+                suggestion = freeSuggestions[--freeCount];
+            } else {
+                suggestion = nextSuggestion++;
+                if (suggestion == texts.length) {
+                    keysById = Arrays.copyOf(keysById, suggestion * 2);
+                    texts = Arrays.copyOf(texts, suggestion * 2);
+                    types = Arrays.copyOf(types, suggestion * 2);
+                    scores = Arrays.copyOf(scores, suggestion * 2);
+                    bookCounts = Arrays.copyOf(bookCounts, suggestion * 2);
+                    leaves = Arrays.copyOf(leaves, suggestion * 2);
+                }
+            }
+            suggestionByKey.put(key, suggestion);
+            keysById[suggestion] = key;
+            texts[suggestion] = text.trim().replaceAll("\\s+", " ");
+            types[suggestion] = type;
+            scores[suggestion] = 0;
+            bookCounts[suggestion] = 0;
+
+            List<String> keys = keys(text);
+            leaves[suggestion] = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                leaves[suggestion][i] = trie.insert(keys.get(i), suggestion, 0);
+            }
+            return suggestion;
+        }
+
+        private void release(int suggestion, float popularity) {
+            if (suggestion < 0) {
+                return;
+            }
+            if (--bookCounts[suggestion] > 0) {
+                rescore(suggestion, -popularity);
+                return;
+            }
+            for (int leaf : leaves[suggestion]) {
+                trie.clear(leaf);
+            }
+            suggestionByKey.remove(keysById[suggestion]);
+            keysById[suggestion] = null;
+            texts[suggestion] = null;
+            leaves[suggestion] = null;
+            if (freeCount == freeSuggestions.length) {
+                freeSuggestions = Arrays.copyOf(freeSuggestions, freeCount * 2);
+            }
+            freeSuggestions[freeCount++] = suggestion;
+        }
+
+        private void rescore(int suggestion, float delta) {
+            if (suggestion < 0) {
+                return;
+            }
+            scores[suggestion] += delta;
+            for (int leaf : leaves[suggestion]) {
+                trie.score(leaf, scores[suggestion]);
+            }
+        }
+    }
+
+    interface LeafVisitor {
+        // Returns false to stop the walk
+        boolean visit(int leaf);
+    }
+
+    /**
+     * Radix trie over char keys, one node per array slot. Edge labels are slices of a shared char pool,
+     * and every node records the best leaf score in its subtree. Each key ends in a terminator and the
+     * id of its suggestion, so keys shared by several suggestions still get a leaf each.
+     */
+    static final class Trie {
+        private static final char TERMINATOR = '\0';
+        private static final int ROOT = 0;
+
+        private char[] labels = new char[1024];
+        private int labelsUsed;
+
+        private int[] labelStart = new int[256];
+        private int[] labelLength = new int[256];
+        private int[] parent = new int[256];
+        private int[] firstChild = new int[256];
+        private int[] nextSibling = new int[256];
+        private float[] best = new float[256];
+        // Suggestion of a leaf node, -1 for inner nodes and cleared leaves
+        private int[] suggestion = new int[256];
+        private int nodes;
+
+        Trie() {
+            newNode(-1, 0, 0);
+            best[ROOT] = Float.NEGATIVE_INFINITY;
+        }
+
+        int suggestionOf(int leaf) {
+            return suggestion[leaf];
+        }
+
+        /**
+         * Adds the key for the suggestion and returns its leaf node, which keeps its index for good.
+         */
+        int insert(String key, int suggestionId, float score) {
+            String full = key + TERMINATOR + (char) (suggestionId >>> 16) + (char) suggestionId;
+            int node = ROOT;
+            int pos = 0;
+            while (true) {
+                int child = child(node, full.charAt(pos));
+                if (child < 0) {
+                    int leaf = newNode(node, append(full, pos), full.length() - pos);
+                    suggestion[leaf] = suggestionId;
+                    score(leaf, score);
+                    return leaf;
+                }
+                int matched = 1;
+                while (matched < labelLength[child] && pos + matched < full.length()
+                        && labels[labelStart[child] + matched] == full.charAt(pos + matched)) {
+                    matched++;
+                }
+                if (matched < labelLength[child]) {
+                    child = split(child, matched);
+                }
+                pos += matched;
+                if (pos == full.length()) {
+                    // The leaf of a removed suggestion whose id has been reused for the same key
+                    suggestion[child] = suggestionId;
+                    score(child, score);
+                    return child;
+                }
+                node = child;
+            }
+        }
+
+        void clear(int leaf) {
+            suggestion[leaf] = -1;
+            score(leaf, Float.NEGATIVE_INFINITY);
+        }
+
+        // Sets a leaf's score and carries the change up to every ancestor whose best it alters
+        void score(int leaf, float score) {
+            float previous = best[leaf];
+            best[leaf] = score;
+            int node = parent[leaf];
+            if (score >= previous) {
+                while (node >= 0 && best[node] < score) {
+                    best[node] = score;
+                    node = parent[node];
+                }
+                return;
+            }
+            while (node >= 0) {
+                float max = Float.NEGATIVE_INFINITY;
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    max = Math.max(max, best[child]);
+                }
+                if (max == best[node]) {
+                    return;
+                }
+                best[node] = max;
+                node = parent[node];
+            }
+        }
+
+        /**
+         * Visits the live leaves under the prefix, best score first, until the visitor stops.
+         */
+        void best(String prefix, LeafVisitor visitor) {
+            int node = find(prefix);
+            if (node < 0) {
+                return;
+            }
+            NodeHeap heap = new NodeHeap(best);
+            heap.push(node);
+            while (!heap.isEmpty()) {
+                node = heap.pop();
+                if (best[node] == Float.NEGATIVE_INFINITY) {
+                    continue;
+                }
+                if (suggestion[node] >= 0) {
+                    if (!visitor.visit(node)) {
+                        return;
+                    }
+                    continue;
+                }
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    if (best[child] != Float.NEGATIVE_INFINITY) {
+                        heap.push(child);
+                    }
+                }
+            }
+        }
+
+        // The node whose subtree holds every key starting with the prefix, or -1
+        private int find(String prefix) {
+            int node = ROOT;
+            int pos = 0;
+            while (pos < prefix.length()) {
+                int child = child(node, prefix.charAt(pos));
+                if (child < 0) {
+                    return -1;
+                }
+                int length = Math.min(labelLength[child], prefix.length() - pos);
+                for (int i = 1; i < length; i++) {
+                    if (labels[labelStart[child] + i] != prefix.charAt(pos + i)) {
+                        return -1;
+                    }
+                }
+                pos += length;
+                node = child;
+            }
+            return node;
+        }
+
+        private int child(int node, char first) {
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (labels[labelStart[child]] == first) {
+                    return child;
+                }
+            }
+            return -1;
+        }
+
+        // Cuts a node's label after 'at' chars; the head becomes a new parent so the node keeps its index
+        private int split(int node, int at) {
+            int head = newNode(-1, labelStart[node], at);
+            int owner = parent[node];
+            parent[head] = owner;
+            nextSibling[head] = nextSibling[node];
+            if (firstChild[owner] == node) {
+                firstChild[owner] = head;
+            } else {
+                int previous = firstChild[owner];
+                while (nextSibling[previous] != node) {
+                    previous = nextSibling[previous];
+                }
+                nextSibling[previous] = head;
+            }
+            firstChild[head] = node;
+            nextSibling[node] = -1;
+            parent[node] = head;
+            labelStart[node] += at;
+            labelLength[node] -= at;
+            best[head] = best[node];
+            return head;
+        }
+
+        private int append(String text, int from) {
+            int length = text.length() - from;
+            if (labelsUsed + length > labels.length) {
+                labels = Arrays.copyOf(labels, Math.max(labels.length * 2, labelsUsed + length));
+            }
+            text.getChars(from, text.length(), labels, labelsUsed);
+            int start = labelsUsed;
+            labelsUsed += length;
+            return start;
+        }
+
+        private int newNode(int owner, int start, int length) {
+            int node = nodes++;
+            if (node == labelStart.length) {
+                int capacity = node * 2;
+                labelStart = Arrays.copyOf(labelStart, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                best = Arrays.copyOf(best, capacity);
+                suggestion = Arrays.copyOf(suggestion, capacity);
+            }
+            labelStart[node] = start;
+            labelLength[node] = length;
+            parent[node] = owner;
+            firstChild[node] = -1;
+            nextSibling[node] = -1;
+            best[node] = Float.NEGATIVE_INFINITY;
+            suggestion[node] = -1;
+            if (owner >= 0) {
+                nextSibling[node] = firstChild[owner];
+                firstChild[owner] = node;
+            }
+            return node;
+        }
+    }
+
+    // Max-heap of node indexes ordered by their best score
+    private static final class NodeHeap {
+        private final float[] best;
+        private int[] heap = new int[32];
+        private int size;
+
+        NodeHeap(float[] best) {
+            this.best = best;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int node) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (best[heap[up]] >= best[node]) {
+                    break;
+                }
+                heap[i] = heap[up];
+                i = up;
+            }
+            heap[i] = node;
+        }
+
+        int pop() {
+            int top = heap[0];
+            int last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && best[heap[child + 1]] > best[heap[child]]) {
+                    child++;
+                }
+                if (best[last] >= best[heap[child]]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
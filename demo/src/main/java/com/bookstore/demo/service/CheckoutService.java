@@ -0,0 +1,151 @@
+package com.bookstore.demo.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.CartItem;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.outbox.OrderOutbox;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.CartItemRepository;
+import com.bookstore.demo.repository.OrderRepository;
+
+/**
+ * Turns a user's cart into an order in one transaction: the order row, stock reservations, a
+ * JDBC batch of order items and a single bulk delete of the cart's flushed rows either all
+ * commit or all roll back, together with the order's entry in the {@link OrderOutbox}. Payment and
+ * everything else that follows an order runs from the outbox after commit, so checkout returns with
+ * the order still PENDING; it stays so until payment confirms it or its reservations expire.
+ */
+@Service
+public class CheckoutService {
+
+    private static final String INSERT_ORDER_ITEM =
+        "INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    /**
+     * Thrown when the cart is empty, a book is out of stock, or another checkout of the same cart
+     * is still running.
+     */
+    public static class CheckoutException extends RuntimeException {
+        public CheckoutException(String message) {
+            super(message);
+        }
+    }
+
+    @Transactional
+    public Order checkout(User user, String shippingAddress, String paymentMethod) {
+        List<CartItem> cartItems;
+        try {
+            cartItems = new ArrayList<>(cartStore.beginCheckout(user.getId()));
+        } catch (IllegalStateException e) {
+            throw new CheckoutException(e.getMessage());
+        }
+        List<Long> cartItemIds = cartItems.stream().map(CartItem::getId).toList();
+        // The claim on the cart is released however the transaction ends; ordered items go only on commit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cartStore.finishCheckout(user.getId(), cartItemIds, status == STATUS_COMMITTED);
+            }
+        });
+        if (cartItems.isEmpty()) {
+            throw new CheckoutException("Cart is empty");
+        }
+        // Reserving in book order keeps concurrent checkouts from taking stock locks in opposite orders
+        cartItems.sort(Comparator.comparing(item -> item.getBook().getId()));
+
+        // Price from the catalog as it is now, not as it was when the book was added
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(cartItems.stream().map(item -> item.getBook().getId()).toList())) {
+            books.put(book.getId(), book);
+        }
+
+        // Prices are doubles in the catalog; valueOf keeps their shortest decimal form exactly
+        List<Object[]> itemRows = new ArrayList<>(cartItems.size());
+        List<Long> bookIds = new ArrayList<>(cartItems.size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CartItem cartItem : cartItems) {
+            Book book = books.get(cartItem.getBook().getId());
+            if (book == null) {
+                throw new CheckoutException("Book no longer available: " + cartItem.getBook().getTitle());
+            }
+            // The catalog lists books without a price, but they cannot be sold
+            if (book.getPrice() == null) {
+                throw new CheckoutException("Book has no price: " + book.getTitle());
+            }
+            BigDecimal unitPrice = money(BigDecimal.valueOf(book.getPrice()));
+            BigDecimal totalPrice = unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
+            totalAmount = totalAmount.add(totalPrice);
+            itemRows.add(new Object[] { null, cartItem.getBook().getId(), cartItem.getQuantity(), unitPrice, totalPrice });
+            bookIds.add(cartItem.getBook().getId());
+        }
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setTotalAmount(totalAmount);
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setShippingAddress(shippingAddress);
+        Order savedOrder = orderRepository.save(order);
+
+        LocalDateTime expiresAt = inventoryService.reservationDeadline();
+        for (CartItem cartItem : cartItems) {
+            if (!inventoryService.reserve(savedOrder.getId(), cartItem.getBook().getId(), cartItem.getQuantity(), expiresAt)) {
+                throw new CheckoutException("Not enough stock for " + cartItem.getBook().getTitle());
+            }
+        }
+
+        for (Object[] row : itemRows) {
+            row[0] = savedOrder.getId();
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM, itemRows);
+
+        // Rows already flushed by the cart store go with the order; the in-memory cart follows after commit
+        cartItemRepository.deleteByIdIn(cartItemIds);
+
+        orderOutbox.append(new OrderPlacedEvent(savedOrder.getId(), user.getId(), bookIds, totalAmount, paymentMethod));
+        return savedOrder;
+    }
+
+    private static BigDecimal money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_EVEN);
+    }
+}
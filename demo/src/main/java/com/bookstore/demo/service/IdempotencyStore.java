@@ -0,0 +1,144 @@
+package com.bookstore.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Remembers the outcome of requests sent with an idempotency key, so a client retrying after a
+ * timeout gets the original response instead of repeating the work.
+ * <p>
+ * Keys are held in memory, at most {@code bookstore.idempotency.max-keys} of them, each for
+ * {@code bookstore.idempotency.ttl-minutes} after it was first used; when the store is full, the keys
+ * least likely to be retried are evicted first. A repeat that arrives while the first request is still running waits for
+ * its result. Each key is bound to a fingerprint of the request it was first used with, and reusing
+ * it for a different request is refused. Only results the caller chooses to keep are remembered, so a
+ * request that failed can be retried with the same key.
+ */
+@Component
+public class IdempotencyStore {
+
+    // How long a repeat waits for the first request with its key before giving up
+    private static final Duration IN_FLIGHT_WAIT = Duration.ofSeconds(30);
+
+    @Value("${bookstore.idempotency.max-keys:100000}")
+    private long maxKeys;
+
+    @Value("${bookstore.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, Entry> entries;
+    private Counter replays;
+
+    /**
+     * Thrown when a key is reused for a different request, or its first request is still running
+     * after the wait.
+     */
+    public static class IdempotencyException extends RuntimeException {
+        private final boolean inProgress;
+
+        public IdempotencyException(String message, boolean inProgress) {
+            super(message);
+            this.inProgress = inProgress;
+        }
+
+        public boolean isInProgress() {
+            return inProgress;
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+            .maximumSize(maxKeys)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .build();
+        replays = Counter.builder("bookstore.idempotency.replays")
+            .description("Requests answered from the idempotency store instead of being run again")
+            .register(meterRegistry);
+        meterRegistry.gauge("bookstore.idempotency.keys", entries, Cache::estimatedSize);
+    }
+
+    /**
+     * Runs the action unless the key has been seen before, in which case the first result is returned.
+     * Results failing the keep test are handed back but forgotten.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action, Predicate<T> keep) {
+        Entry mine = new Entry(fingerprint);
+        Entry first = entries.asMap().putIfAbsent(key, mine);
+        if (first != null) {
+            if (!first.fingerprint.equals(fingerprint)) {
+                throw new IdempotencyException("Idempotency key was already used for a different request", false);
+            }
+            T earlier = (T) await(first);
+            // A result the store does not keep was not a response it answered with
+            if (keep.test(earlier)) {
+                replays.increment();
+            }
+            return earlier;
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+        if (!keep.test(result)) {
+            entries.asMap().remove(key, mine);
+        }
+        mine.result.complete(result);
+        return result;
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    private static Object await(Entry entry) {
+        try {
+            return entry.result.get(IN_FLIGHT_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyException("A request with this idempotency key is still in progress", true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException("A request with this idempotency key is still in progress", true);
+        } catch (ExecutionException e) {
+            // The first request failed; a repeat that raced it fails the same way
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        }
+    }
+}
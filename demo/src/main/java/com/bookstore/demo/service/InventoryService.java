@@ -0,0 +1,250 @@
+package com.bookstore.demo.service;
+
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bookstore.demo.entity.InventoryBucket;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.StockReservation;
+
+/**
+ * Stock tracking with reservations: checkout reserves, confirming the order commits and
+ * cancelling it, or letting the hold expire, releases.
+ * <p>
+ * A tracked book's stock lives in {@link #BUCKETS} {@link InventoryBucket} rows. A reservation
+ * starts at a random bucket and decrements it with a conditional UPDATE that cannot go below
+ * zero, so buyers of the same title mostly lock different rows. Only when no single bucket can
+ * cover the quantity are all of the book's buckets locked and drained together, in bucket order.
+ * A single-bucket attempt that comes up short is rolled back to a savepoint, so a buyer never
+ * holds one bucket while waiting for another and two buyers cannot deadlock. Books without
+ * buckets are not tracked and never run out.
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    public static final int BUCKETS = 8;
+    private static final int EXPIRED_ORDERS_PER_RUN = 500;
+
+    private static final String TAKE =
+        "UPDATE inventory_buckets SET available = available - ? WHERE book_id = ? AND bucket = ? AND available >= ?";
+    private static final String GIVE_BACK =
+        "UPDATE inventory_buckets SET available = available + ? WHERE book_id = ? AND bucket = ?";
+    private static final String INSERT_RESERVATION =
+        "INSERT INTO stock_reservations (order_id, book_id, bucket, quantity, status, expires_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${bookstore.inventory.reservation-ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    public static class StockLevel {
+        private final Long bookId;
+        private final boolean tracked;
+        private final long available;
+        private final long reserved;
+
+        public StockLevel(Long bookId, boolean tracked, long available, long reserved) {
+            this.bookId = bookId;
+            this.tracked = tracked;
+            this.available = available;
+            this.reserved = reserved;
+        }
+
+        public Long getBookId() { return bookId; }
+        public boolean isTracked() { return tracked; }
+        public long getAvailable() { return available; }
+        public long getReserved() { return reserved; }
+    }
+
+    public LocalDateTime reservationDeadline() {
+        return LocalDateTime.now().plusMinutes(reservationTtlMinutes);
+    }
+
+    /**
+     * Reserves stock for an order. Returns false, leaving stock untouched, if the book is tracked
+     * and has fewer than {@code quantity} units available.
+     */
+    @Transactional
+    public boolean reserve(Long orderId, Long bookId, int quantity, LocalDateTime expiresAt) {
+        int start = ThreadLocalRandom.current().nextInt(BUCKETS);
+        if (tryTake(orderId, bookId, start, quantity, expiresAt)) {
+            return true;
+        }
+
+        // That bucket ran low: retry the others that looked like they could cover it
+        int[] available = new int[BUCKETS];
+        boolean tracked = false;
+        for (int[] bucket : jdbcTemplate.query("SELECT bucket, available FROM inventory_buckets WHERE book_id = ?",
+                (rs, row) -> new int[] { rs.getInt(1), rs.getInt(2) }, bookId)) {
+            available[bucket[0]] = bucket[1];
+            tracked = true;
+        }
+        if (!tracked) {
+            return true;
+        }
+        for (int i = 1; i < BUCKETS; i++) {
+            int bucket = (start + i) % BUCKETS;
+            if (available[bucket] >= quantity && tryTake(orderId, bookId, bucket, quantity, expiresAt)) {
+                return true;
+            }
+        }
+
+        // No single bucket covers the quantity: lock them all in a fixed order and take from several
+        List<int[]> buckets = jdbcTemplate.query(
+            "SELECT bucket, available FROM inventory_buckets WHERE book_id = ? ORDER BY bucket FOR UPDATE",
+            (rs, row) -> new int[] { rs.getInt(1), rs.getInt(2) }, bookId);
+        if (buckets.isEmpty()) {
+            return true;
+        }
+        if (buckets.stream().mapToLong(b -> b[1]).sum() < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (int[] bucket : buckets) {
+            int take = Math.min(remaining, bucket[1]);
+            if (take > 0) {
+                take(orderId, bookId, bucket[0], take, expiresAt);
+                remaining -= take;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves a pending order to CONFIRMED and makes its reservations permanent. Returns false if the
+     * order is not pending, for instance because its reservations already expired.
+     */
+    @Transactional
+    public boolean confirmOrder(Long orderId) {
+        if (!transitionOrder(orderId, Order.OrderStatus.CONFIRMED)) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE stock_reservations SET status = ? WHERE order_id = ? AND status = ?",
+            StockReservation.Status.COMMITTED.name(), orderId, StockReservation.Status.RESERVED.name());
+        return true;
+    }
+
+    /**
+     * Moves a pending order to CANCELLED and hands its reserved stock back. Returns false if the
+     * order is not pending.
+     */
+    @Transactional
+    public boolean cancelOrder(Long orderId) {
+        if (!transitionOrder(orderId, Order.OrderStatus.CANCELLED)) {
+            return false;
+        }
+        releaseReservations(orderId);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.inventory.expiry-check-interval-ms:30000}")
+    @Transactional
+    public int releaseExpired() {
+        // Not while payment is still due to be taken: a backlog in the outbox must not cancel orders that would be paid.
+        // A parked payment event (next_attempt_at NULL) is a payment that failed, and its order does expire
+        List<Long> orderIds = jdbcTemplate.queryForList(
+            "SELECT DISTINCT r.order_id FROM stock_reservations r WHERE r.status = ? AND r.expires_at < ? "
+                + "AND NOT EXISTS (SELECT 1 FROM order_outbox o WHERE o.order_id = r.order_id AND o.consumer = ? "
+                + "AND o.next_attempt_at IS NOT NULL) LIMIT " + EXPIRED_ORDERS_PER_RUN,
+            Long.class, StockReservation.Status.RESERVED.name(), Timestamp.valueOf(LocalDateTime.now()),
+            PaymentProcessor.CONSUMER_NAME);
+        int cancelled = 0;
+        for (Long orderId : orderIds) {
+            if (transitionOrder(orderId, Order.OrderStatus.CANCELLED)) {
+                cancelled++;
+            }
+            // Also frees holds whose order was removed or has already moved on
+            releaseReservations(orderId);
+        }
+        if (cancelled > 0) {
+            log.info("Cancelled {} orders whose stock reservations expired", cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Sets the sellable stock of a book, spread evenly over its buckets. Stock held by existing
+     * reservations is not included and not affected.
+     */
+    @Transactional
+    public void setStock(Long bookId, int quantity) {
+        jdbcTemplate.query("SELECT bucket FROM inventory_buckets WHERE book_id = ? ORDER BY bucket FOR UPDATE",
+            (rs, row) -> rs.getInt(1), bookId);
+        jdbcTemplate.update("DELETE FROM inventory_buckets WHERE book_id = ?", bookId);
+        List<Object[]> rows = new ArrayList<>(BUCKETS);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            rows.add(new Object[] { bookId, bucket, quantity / BUCKETS + (bucket < quantity % BUCKETS ? 1 : 0) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO inventory_buckets (book_id, bucket, available) VALUES (?, ?, ?)", rows);
+    }
+
+    @Transactional(readOnly = true)
+    public StockLevel getStock(Long bookId) {
+        List<Long> available = jdbcTemplate.queryForList(
+            "SELECT available FROM inventory_buckets WHERE book_id = ?", Long.class, bookId);
+        Long reserved = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations WHERE book_id = ? AND status = ?",
+            Long.class, bookId, StockReservation.Status.RESERVED.name());
+        return new StockLevel(bookId, !available.isEmpty(), available.stream().mapToLong(Long::longValue).sum(), reserved);
+    }
+
+    // An UPDATE that waited for the row and then found too little still holds its lock; the savepoint releases it.
+    // JPA transactions have no savepoints, so it is set on the transaction's JDBC connection
+    private boolean tryTake(Long orderId, Long bookId, int bucket, int quantity, LocalDateTime expiresAt) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            if (take(orderId, bookId, bucket, quantity, expiresAt)) {
+                connection.releaseSavepoint(savepoint);
+                return true;
+            }
+            connection.rollback(savepoint);
+            return false;
+        });
+    }
+
+    // Conditional decrement of one bucket, recording the reservation if it succeeded
+    private boolean take(Long orderId, Long bookId, int bucket, int quantity, LocalDateTime expiresAt) {
+        if (jdbcTemplate.update(TAKE, quantity, bookId, bucket, quantity) != 1) {
+            return false;
+        }
+        jdbcTemplate.update(INSERT_RESERVATION, orderId, bookId, bucket, quantity,
+            StockReservation.Status.RESERVED.name(), Timestamp.valueOf(expiresAt));
+        return true;
+    }
+
+    private boolean transitionOrder(Long orderId, Order.OrderStatus status) {
+        return jdbcTemplate.update("UPDATE orders SET status = ?, updated_at = ? WHERE id = ? AND status = ?",
+            status.name(), Timestamp.valueOf(LocalDateTime.now()), orderId, Order.OrderStatus.PENDING.name()) == 1;
+    }
+
+    private void releaseReservations(Long orderId) {
+        List<long[]> held = jdbcTemplate.query(
+            "SELECT id, book_id, bucket, quantity FROM stock_reservations WHERE order_id = ? AND status = ?",
+            (rs, row) -> new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4) },
+            orderId, StockReservation.Status.RESERVED.name());
+        for (long[] reservation : held) {
+            // The status flip decides who releases, so stock is never handed back twice
+            if (jdbcTemplate.update("UPDATE stock_reservations SET status = ? WHERE id = ? AND status = ?",
+                    StockReservation.Status.RELEASED.name(), reservation[0], StockReservation.Status.RESERVED.name()) == 1) {
+                jdbcTemplate.update(GIVE_BACK, reservation[3], reservation[1], reservation[2]);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.bookstore.demo.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.bookstore.demo.dto.OrderTransitionReport;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.repository.OrderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Moves orders through {@link Order.OrderStatus}, one at a time or in bulk, allowing only the
+ * transitions the status permits.
+ * <p>
+ * Confirming and cancelling change stock reservations as well, so they go through
+ * {@link InventoryService} and are not offered in bulk. The fulfilment steps after confirmation
+ * only change the status: a bulk run pages through the orders in the source status by id, in
+ * chunks of {@code bookstore.orders.transition-chunk-size}, and moves each chunk with one UPDATE
+ * over its id range in its own transaction. Memory stays at one chunk of ids however many orders
+ * there are, and other writers only ever wait for one chunk.
+ */
+@Service
+public class OrderStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusService.class);
+
+    private static final String TRANSITION_RANGE =
+        "UPDATE orders SET status = ?, updated_at = ? WHERE id > ? AND id <= ? AND status = ?";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bookstore.orders.transition-chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Thrown when an order cannot move to the requested status, or it changed while being moved.
+     */
+    public static class TransitionException extends RuntimeException {
+        public TransitionException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Moves one order to the given status. Returns false if there is no such order.
+     */
+    public boolean transition(Long orderId, Order.OrderStatus to) {
+        List<String> current = jdbcTemplate.queryForList("SELECT status FROM orders WHERE id = ?", String.class, orderId);
+        if (current.isEmpty()) {
+            return false;
+        }
+        Order.OrderStatus from = Order.OrderStatus.valueOf(current.get(0));
+        if (!from.canMoveTo(to)) {
+            throw new TransitionException("A " + from + " order cannot become " + to);
+        }
+
+        boolean moved;
+        if (to == Order.OrderStatus.CONFIRMED) {
+            moved = inventoryService.confirmOrder(orderId);
+        } else if (to == Order.OrderStatus.CANCELLED) {
+            moved = inventoryService.cancelOrder(orderId);
+        } else {
+            moved = jdbcTemplate.update("UPDATE orders SET status = ?, updated_at = ? WHERE id = ? AND status = ?",
+                to.name(), Timestamp.valueOf(LocalDateTime.now()), orderId, from.name()) == 1;
+        }
+        if (!moved) {
+            throw new TransitionException("Order " + orderId + " changed while moving to " + to);
+        }
+        transitions(from, to).increment();
+        return true;
+    }
+
+    /**
+     * Moves every order in {@code from} with an id above {@code afterId} to {@code to}, passing the
+     * report to {@code progress} after every chunk. The returned report is done; if a chunk fails,
+     * the chunks before it stay moved and the report says how far the run got.
+     */
+    public OrderTransitionReport transitionAll(Order.OrderStatus from, Order.OrderStatus to, long afterId,
+                                               Consumer<OrderTransitionReport> progress) {
+        checkBulkTransition(from, to);
+
+        long start = System.nanoTime();
+        OrderTransitionReport report = new OrderTransitionReport(from, to);
+        report.setLastOrderId(afterId);
+        report.setExpected(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE status = ? AND id > ?",
+            Long.class, from.name(), afterId));
+        Counter transitioned = transitions(from, to);
+        Timer chunkTimer = Timer.builder("bookstore.orders.transition.chunks")
+            .description("Time to move one chunk of a bulk status transition")
+            .tag("from", from.name())
+            .tag("to", to.name())
+            .register(meterRegistry);
+
+        try {
+            List<Long> ids = orderRepository.findIdsByStatusAfter(from, afterId, Limit.of(chunkSize));
+            while (!ids.isEmpty()) {
+                long lastId = report.getLastOrderId();
+                long upTo = ids.get(ids.size() - 1);
+                // Orders in the range that left the status since the page was read are skipped by the status check
+                int moved = chunkTimer.record(() -> jdbcTemplate.update(TRANSITION_RANGE,
+                    to.name(), Timestamp.valueOf(LocalDateTime.now()), lastId, upTo, from.name()));
+                transitioned.increment(moved);
+                report.setTransitioned(report.getTransitioned() + moved);
+                report.setChunks(report.getChunks() + 1);
+                report.setLastOrderId(upTo);
+                report.setSeconds(elapsedSeconds(start));
+                progress.accept(report);
+                ids = ids.size() < chunkSize ? List.of() : orderRepository.findIdsByStatusAfter(from, upTo, Limit.of(chunkSize));
+            }
+        } catch (RuntimeException e) {
+            report.setFailure("Transition stopped: " + e.getMessage());
+            log.warn("Moving {} orders to {} stopped after order {}", from, to, report.getLastOrderId(), e);
+        }
+        report.setSeconds(elapsedSeconds(start));
+        report.setDone(true);
+        log.info("Moved {} orders from {} to {} in {} chunks, {} s ({} orders/s)", report.getTransitioned(), from, to,
+            report.getChunks(), String.format("%.1f", report.getSeconds()), String.format("%.0f", report.getOrdersPerSecond()));
+        return report;
+    }
+
+    /**
+     * Throws unless orders can be moved from {@code from} to {@code to} in bulk.
+     */
+    public void checkBulkTransition(Order.OrderStatus from, Order.OrderStatus to) {
+        if (!from.canMoveTo(to)) {
+            throw new TransitionException("A " + from + " order cannot become " + to);
+        }
+        if (to == Order.OrderStatus.CONFIRMED || to == Order.OrderStatus.CANCELLED) {
+            throw new TransitionException("Orders are confirmed and cancelled one at a time, with their stock reservations");
+        }
+    }
+
+    private Counter transitions(Order.OrderStatus from, Order.OrderStatus to) {
+        return Counter.builder("bookstore.orders.transitions")
+            .description("Orders moved from one status to another")
+            .tag("from", from.name())
+            .tag("to", to.name())
+            .register(meterRegistry);
+    }
+
+    private static double elapsedSeconds(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
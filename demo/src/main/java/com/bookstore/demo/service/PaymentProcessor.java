@@ -0,0 +1,89 @@
+package com.bookstore.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+
+/**
+ * Takes payment for placed orders off the checkout path: the mock provider is called once the
+ * order has committed, and a successful payment confirms the order, which makes its stock
+ * reservations permanent. Orders that were cancelled or expired in the meantime stay as they are.
+ */
+@Component
+public class PaymentProcessor implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    static final String CONSUMER_NAME = "payment";
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Value("${bookstore.payment.latency-ms:0}")
+    private long paymentLatencyMs;
+
+    @Override
+    public String consumerName() {
+        return CONSUMER_NAME;
+    }
+
+    @Override
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        awaitPaymentProvider();
+        confirm(event);
+    }
+
+    // Provider calls for the whole batch overlap; confirmations then go one at a time, so a batch holds one connection
+    @Override
+    public void onOrdersPlaced(List<OrderPlacedEvent> events) {
+        if (paymentLatencyMs > 0) {
+            try (ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> payments = new ArrayList<>(events.size());
+                for (int i = 0; i < events.size(); i++) {
+                    payments.add(calls.submit(this::awaitPaymentProvider));
+                }
+                for (Future<?> payment : payments) {
+                    payment.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting on the payment provider", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        for (OrderPlacedEvent event : events) {
+            confirm(event);
+        }
+    }
+
+    private void confirm(OrderPlacedEvent event) {
+        if (!inventoryService.confirmOrder(event.getOrderId())) {
+            log.info("Payment for order {} arrived after it stopped being pending", event.getOrderId());
+        }
+    }
+
+    // Stands in for the blocking call to a payment provider
+    private void awaitPaymentProvider() {
+        if (paymentLatencyMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(paymentLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
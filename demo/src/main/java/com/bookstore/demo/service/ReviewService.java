@@ -0,0 +1,141 @@
+package com.bookstore.demo.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.BookRatingStats;
+import com.bookstore.demo.entity.Review;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.BookActivityEvent;
+import com.bookstore.demo.repository.BookRatingStatsRepository;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.ReviewRepository;
+
+/**
+ * Review writes together with the per-book {@link BookRatingStats} they affect. Each write
+ * locks the book row first, so concurrent reviews of one book apply their deltas one at a time
+ * and the first review of a book cannot race another into creating the stats row.
+ */
+@Service
+public class ReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewService.class);
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookRatingStatsRepository ratingStatsRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public static boolean isValidRating(Integer rating) {
+        return rating != null && rating >= 1 && rating <= 5;
+    }
+
+    @Transactional
+    public Review addReview(User user, Book book, Integer rating, String comment) {
+        BookRatingStats stats = lockStats(book.getId());
+        Review review = reviewRepository.save(new Review(user, book, rating, comment));
+        stats.addRating(rating);
+        eventPublisher.publishEvent(new BookActivityEvent(book.getId(), BookActivityEvent.ActivityType.REVIEWED, rating));
+        return review;
+    }
+
+    /**
+     * Changes a review's rating and comment. Empty if the review no longer exists.
+     */
+    @Transactional
+    public Optional<Review> updateReview(Long reviewId, Integer rating, String comment) {
+        Optional<Review> locked = lockReview(reviewId);
+        if (locked.isEmpty()) {
+            return Optional.empty();
+        }
+        Review review = locked.get();
+        BookRatingStats stats = statsOf(review.getBook().getId());
+        stats.removeRating(review.getRating());
+        stats.addRating(rating);
+        review.setRating(rating);
+        review.setComment(comment);
+        return Optional.of(reviewRepository.save(review));
+    }
+
+    /**
+     * Deletes a review. Returns false if it was already gone, in which case the stats are untouched.
+     */
+    @Transactional
+    public boolean deleteReview(Long reviewId) {
+        Optional<Review> locked = lockReview(reviewId);
+        if (locked.isEmpty()) {
+            return false;
+        }
+        Review review = locked.get();
+        BookRatingStats stats = statsOf(review.getBook().getId());
+        stats.removeRating(review.getRating());
+        reviewRepository.delete(review);
+        return true;
+    }
+
+    // Used before a user is deleted, since the cascade would otherwise drop reviews behind the stats' back
+    @Transactional
+    public void deleteReviewsByUser(Long userId) {
+        for (Long reviewId : reviewRepository.findIdsByUserId(userId)) {
+            deleteReview(reviewId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public BookRatingStats getStats(Long bookId) {
+        return ratingStatsRepository.findById(bookId).orElseGet(() -> new BookRatingStats(bookId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookRatingStats> getStats(List<Long> bookIds) {
+        return ratingStatsRepository.findAllById(bookIds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillStats() {
+        if (ratingStatsRepository.count() == 0 && reviewRepository.count() > 0) {
+            int books = ratingStatsRepository.insertFromReviews();
+            log.info("Backfilled rating stats for {} books", books);
+        }
+    }
+
+    // Locks the review's book, then reads the review, so its rating is the one the stats hold and not one a
+    // concurrent update or delete has since replaced
+    private Optional<Review> lockReview(Long reviewId) {
+        Optional<Long> bookId = reviewRepository.findBookIdById(reviewId);
+        if (bookId.isEmpty()) {
+            return Optional.empty();
+        }
+        bookRepository.findByIdForUpdate(bookId.get());
+        return reviewRepository.findById(reviewId);
+    }
+
+    private BookRatingStats lockStats(Long bookId) {
+        bookRepository.findByIdForUpdate(bookId);
+        return statsOf(bookId);
+    }
+
+    // Only with the book locked
+    private BookRatingStats statsOf(Long bookId) {
+        return ratingStatsRepository.findById(bookId)
+            .orElseGet(() -> ratingStatsRepository.save(new BookRatingStats(bookId)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.bookstore.demo.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.repository.UserRepository;
+
+/**
+ * Deletes users together with everything that refers to them, in one transaction. Reviews go
+ * through {@link ReviewService} so the rating stats follow, pending orders are cancelled so their
+ * reserved stock comes back, and the tables without a foreign key to {@code users} or
+ * {@code orders} are cleared by hand; the JPA cascade takes the orders, order items and cart rows.
+ */
+@Service
+public class UserService {
+
+    private static final String USER_ORDERS = "SELECT id FROM orders WHERE user_id = ?";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private OrderArchive orderArchive;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Deletes the user. Returns false if there is no such user.
+     */
+    @Transactional
+    public boolean deleteUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            return false;
+        }
+        reviewService.deleteReviewsByUser(userId);
+
+        List<Long> pending = jdbcTemplate.queryForList(USER_ORDERS + " AND status = ?", Long.class, userId,
+            Order.OrderStatus.PENDING.name());
+        for (Long orderId : pending) {
+            inventoryService.cancelOrder(orderId);
+        }
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE order_id IN (" + USER_ORDERS + ")", userId);
+        jdbcTemplate.update("DELETE FROM order_outbox WHERE order_id IN (" + USER_ORDERS + ")", userId);
+        orderArchive.deleteByUser(userId);
+        userRepository.deleteById(userId);
+
+        // The in-memory cart goes only once its rows are gone, so a rollback leaves the user as they were
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cartStore.discard(userId);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bookstore.demo.util;
+
+/**
+ * Open-addressing map from primitive long keys to float values. Avoids the boxing and
+ * per-entry objects of {@code HashMap<Long, Float>}; not thread-safe, no removal.
+ */
+public class LongFloatHashMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, float value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private float[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongFloatHashMap() {
+        this(8);
+    }
+
+    public LongFloatHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return used[indexOf(key)];
+    }
+
+    // Returns 0 when the key is absent
+    public float get(long key) {
+        int index = indexOf(key);
+        return used[index] ? values[index] : 0f;
+    }
+
+    public void put(long key, float value) {
+        int index = indexOf(key);
+        values[index] = value;
+        if (!used[index]) {
+            insertAt(index, key);
+        }
+    }
+
+    public float add(long key, float delta) {
+        int index = indexOf(key);
+        if (!used[index]) {
+            values[index] = delta;
+            insertAt(index, key);
+            return delta;
+        }
+        return values[index] += delta;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void insertAt(int index, long key) {
+        keys[index] = key;
+        used[index] = true;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash();
+        }
+    }
+
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                used[index] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new float[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,77 @@
+package com.bookstore.demo.util;
+
+/**
+ * Open-addressing map from primitive long keys to int values, for dense indexes of sparse ids;
+ * the int-valued counterpart of {@link LongFloatHashMap}. Not thread-safe, no removal.
+ */
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public LongIntHashMap() {
+        this(8);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Returns -1 when the key is absent
+    public int get(long key) {
+        int index = indexOf(key);
+        return used[index] ? values[index] : -1;
+    }
+
+    public void put(long key, int value) {
+        int index = indexOf(key);
+        values[index] = value;
+        if (!used[index]) {
+            keys[index] = key;
+            used[index] = true;
+            if (++size > keys.length * LOAD_FACTOR) {
+                rehash();
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        int index = LongFloatHashMap.mix(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+                used[index] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,106 @@
+package com.bookstore.demo.util;
+
+/**
+ * Keeps the k highest-scoring (id, score) pairs seen so far in a primitive min-heap.
+ * Equal scores are ranked by the lower id.
+ */
+public class TopK {
+
+    private final long[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopK(int k) {
+        ids = new long[Math.max(0, k)];
+        scores = new float[Math.max(0, k)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(long id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && better(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    // Lowest score currently retained, or NEGATIVE_INFINITY while the heap is not yet full
+    public float threshold() {
+        return size < ids.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Drains the heap into ids ordered best first; the optional scores array receives
+     * the matching scores. The instance is empty afterwards.
+     */
+    public long[] drain(float[] scoresOut) {
+        long[] ranked = new long[size];
+        while (size > 0) {
+            int last = size - 1;
+            ranked[last] = ids[0];
+            if (scoresOut != null) {
+                scoresOut[last] = scores[0];
+            }
+            ids[0] = ids[last];
+            scores[0] = scores[last];
+            size--;
+            siftDown(0);
+        }
+        return ranked;
+    }
+
+    public long[] drain() {
+        return drain(null);
+    }
+
+    private static boolean better(long idA, float scoreA, long idB, float scoreB) {
+        return scoreA > scoreB || (scoreA == scoreB && idA < idB);
+    }
+
+    // The worst entry sits at the root
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(ids[parent], scores[parent], ids[i], scores[i])) {
+                break;
+            }
+            swap(parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(ids[left], scores[left], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (!better(ids[i], scores[i], ids[worst], scores[worst])) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,102 @@
+-- Schema as mapped by the entities when migrations were introduced
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    phone VARCHAR(255),
+    address VARCHAR(255),
+    created_at TIMESTAMP(6)
+);
+
+CREATE TABLE books (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title VARCHAR(255),
+    author VARCHAR(255),
+    category VARCHAR(255),
+    price FLOAT(53),
+    description VARCHAR(255),
+    image_url VARCHAR(255)
+);
+
+CREATE INDEX idx_books_price_id ON books (price, id);
+CREATE INDEX idx_books_title_id ON books (title, id);
+
+CREATE TABLE cart_items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    quantity INTEGER,
+    added_at TIMESTAMP(6),
+    CONSTRAINT fk_cart_items_user FOREIGN KEY (user_id) REFERENCES users,
+    CONSTRAINT fk_cart_items_book FOREIGN KEY (book_id) REFERENCES books
+);
+
+-- Cart item ids are allocated by the application in blocks of 100 from this sequence (one value
+-- per block), so several instances on one database never hand out the same id
+CREATE SEQUENCE cart_items_seq START WITH 1 INCREMENT BY 100;
+
+CREATE TABLE orders (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    total_amount NUMERIC(12, 2),
+    status ENUM ('CANCELLED', 'CONFIRMED', 'DELIVERED', 'PENDING', 'PROCESSING', 'SHIPPED'),
+    shipping_address VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE order_items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    quantity INTEGER CHECK (quantity >= 1),
+    unit_price NUMERIC(12, 2),
+    total_price NUMERIC(12, 2),
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders,
+    CONSTRAINT fk_order_items_book FOREIGN KEY (book_id) REFERENCES books
+);
+
+CREATE TABLE reviews (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    rating INTEGER,
+    comment TEXT,
+    created_at TIMESTAMP(6),
+    CONSTRAINT fk_reviews_user FOREIGN KEY (user_id) REFERENCES users,
+    CONSTRAINT fk_reviews_book FOREIGN KEY (book_id) REFERENCES books
+);
+
+CREATE TABLE book_rating_stats (
+    book_id BIGINT PRIMARY KEY,
+    rating_sum BIGINT NOT NULL,
+    review_count BIGINT NOT NULL,
+    one_star BIGINT NOT NULL,
+    two_star BIGINT NOT NULL,
+    three_star BIGINT NOT NULL,
+    four_star BIGINT NOT NULL,
+    five_star BIGINT NOT NULL
+);
+
+CREATE TABLE inventory_buckets (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    bucket INTEGER NOT NULL,
+    available INTEGER NOT NULL,
+    CONSTRAINT uk_inventory_book_bucket UNIQUE (book_id, bucket)
+);
+
+CREATE TABLE stock_reservations (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    book_id BIGINT NOT NULL,
+    bucket INTEGER NOT NULL,
+    quantity INTEGER NOT NULL,
+    status ENUM ('COMMITTED', 'RELEASED', 'RESERVED') NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_reservations_order ON stock_reservations (order_id);
+CREATE INDEX idx_reservations_status_expiry ON stock_reservations (status, expires_at);
@@ -0,0 +1,36 @@
+-- Indexes on the columns the repository finders and the cart store filter by.
+--
+-- H2 quietly indexes every foreign key column that has no index yet, so these lookups were not
+-- table scans in H2, but they relied on unnamed indexes that other databases would not create.
+-- The constraints are dropped first and added back afterwards, so each one adopts the named index
+-- rather than keeping a second index on the same column that every insert would also maintain.
+-- Composite (user_id, book_id) and (user_id, created_at) indexes were tried and left out: H2's
+-- planner kept picking the single-column ones, and they only made inserts slower.
+
+ALTER TABLE cart_items DROP CONSTRAINT fk_cart_items_user;
+ALTER TABLE orders DROP CONSTRAINT fk_orders_user;
+ALTER TABLE order_items DROP CONSTRAINT fk_order_items_order;
+ALTER TABLE reviews DROP CONSTRAINT fk_reviews_book;
+ALTER TABLE reviews DROP CONSTRAINT fk_reviews_user;
+
+-- CartStore loads a cart by user (findByUserIdWithBook), and its write-back deletes by user
+CREATE INDEX idx_cart_items_user ON cart_items (user_id);
+
+-- Order history (findByUser, findByUserIdOrderByCreatedAtDesc); a user has only a few orders to sort
+CREATE INDEX idx_orders_user ON orders (user_id);
+
+-- Items of an order when the order is loaded
+CREATE INDEX idx_order_items_order ON order_items (order_id);
+
+-- Reviews of a book (findByBookId); also the one-review-per-book check (findByUserAndBook), since a
+-- book has fewer reviews than a user
+CREATE INDEX idx_reviews_book ON reviews (book_id);
+
+-- Reviews by a user (findByUserId)
+CREATE INDEX idx_reviews_user ON reviews (user_id);
+
+ALTER TABLE cart_items ADD CONSTRAINT fk_cart_items_user FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE orders ADD CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE order_items ADD CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders;
+ALTER TABLE reviews ADD CONSTRAINT fk_reviews_book FOREIGN KEY (book_id) REFERENCES books;
+ALTER TABLE reviews ADD CONSTRAINT fk_reviews_user FOREIGN KEY (user_id) REFERENCES users;
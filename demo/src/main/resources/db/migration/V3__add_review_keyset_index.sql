@@ -0,0 +1,8 @@
+-- Streams a book's reviews in keyset batches (findViewsByBookIdAfter): with the id after the book,
+-- each batch seeks to the last id seen and reads only its own rows, already in order. On book_id
+-- alone H2 read every review of the book again for each batch.
+--
+-- idx_reviews_book stays: H2 will not back the foreign key with a two-column index and would
+-- create an unnamed one on book_id instead.
+
+CREATE INDEX idx_reviews_book_id ON reviews (book_id, id);
@@ -0,0 +1,6 @@
+-- Catalog feeds identify books by ISBN (stored as ISBN-13), and the bulk import upserts on it.
+-- Books created through the API or before this migration have none; NULLs do not collide.
+-- The constraint's index also serves the import's per-chunk lookups by ISBN.
+
+ALTER TABLE books ADD COLUMN isbn VARCHAR(13);
+ALTER TABLE books ADD CONSTRAINT uk_books_isbn UNIQUE (isbn);
@@ -0,0 +1,18 @@
+-- Order events waiting for delivery to in-process consumers (payment, recommendations, suggestions,
+-- analytics). Checkout inserts one row per consumer in the order's transaction, so an event exists
+-- exactly when its order committed; the dispatcher deletes a row once its consumer handled it.
+-- A NULL next_attempt_at marks a row parked after too many failed attempts.
+
+CREATE TABLE order_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    consumer VARCHAR(40) NOT NULL,
+    order_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    attempts INTEGER NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    last_error VARCHAR(500)
+);
+
+-- The dispatcher's poll: a consumer's rows that are due, oldest first
+CREATE INDEX idx_outbox_consumer_due ON order_outbox (consumer, next_attempt_at);
@@ -0,0 +1,5 @@
+-- Bulk status transitions page through the orders in one status by id, then update each page as
+-- an id range. With status first and id second, both the page lookup and the update's status
+-- check are range scans of this index rather than scans of the whole orders table.
+
+CREATE INDEX idx_orders_status ON orders (status, id);
@@ -0,0 +1,21 @@
+-- Finished orders older than bookstore.archive.order-age-days, moved out of orders so the hot
+-- tables only hold recent orders. Each order keeps its id and becomes one row, its items packed
+-- into the items column. archive_month (yyyymm of created_at) is the partition key: a month of
+-- archive is removed with one range delete on its index, and on a database with declarative
+-- partitioning the table would be PARTITION BY RANGE (archive_month).
+
+CREATE TABLE order_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    total_amount NUMERIC(12, 2),
+    status ENUM ('CANCELLED', 'CONFIRMED', 'DELIVERED', 'PENDING', 'PROCESSING', 'SHIPPED'),
+    shipping_address VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    archive_month INTEGER NOT NULL,
+    items TEXT NOT NULL
+);
+
+-- Older pages of a user's order history, newest first
+CREATE INDEX idx_order_archive_user ON order_archive (user_id, created_at, id);
+CREATE INDEX idx_order_archive_month ON order_archive (archive_month);
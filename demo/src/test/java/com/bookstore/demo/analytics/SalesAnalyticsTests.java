@@ -0,0 +1,147 @@
+package com.bookstore.demo.analytics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+// Leaves of a few rows, so the reports go through the fork-join split even on this small dataset
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:analyticstest", "bookstore.analytics.min-leaf-rows=4" })
+class SalesAnalyticsTests {
+
+	private static final LocalDate DAY = LocalDate.of(2021, 3, 10);
+
+	@Autowired
+	private SalesAnalytics salesAnalytics;
+
+	@Autowired
+	private OrderArchive orderArchive;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void reportsCountLiveAndArchivedOrdersButNotCancelledOnes() {
+		User user = userRepository.save(new User("Sales Test", UUID.randomUUID() + "@example.com", null, null));
+		Book novel = bookRepository.save(new Book("Sales Novel", "Sales Author", "Sales Fiction", 12.5, null, null));
+		Book atlas = bookRepository.save(new Book("Sales Atlas", "Sales Author", "Sales Travel", 40.0, null, null));
+		order(user, Order.OrderStatus.DELIVERED, DAY.atTime(9, 0), novel, 3, "12.50", atlas, 1, "40.00");
+		order(user, Order.OrderStatus.DELIVERED, DAY.plusDays(1).atTime(9, 0), novel, 2, "12.50", atlas, 2, "40.00");
+		order(user, Order.OrderStatus.CANCELLED, DAY.atTime(10, 0), atlas, 50, "40.00", novel, 50, "12.50");
+		order(user, Order.OrderStatus.DELIVERED, DAY.minusYears(1).atTime(9, 0), novel, 4, "10.00", atlas, 1, "40.00");
+		orderArchive.archiveOrdersBefore(DAY.minusMonths(6).atStartOfDay());
+
+		salesAnalytics.rebuild();
+
+		List<SalesAnalytics.BookSales> top = salesAnalytics.topSellers(DAY.minusYears(2), DAY.plusDays(1), 2);
+		assertThat(top).extracting(SalesAnalytics.BookSales::getBookId).containsExactly(novel.getId(), atlas.getId());
+		assertThat(top.get(0).getUnits()).isEqualTo(9);
+		assertThat(top.get(0).getRevenue()).isEqualByComparingTo("102.50");
+		assertThat(top.get(1).getUnits()).isEqualTo(4);
+
+		assertThat(salesAnalytics.revenueByCategory(DAY, DAY))
+			.extracting(SalesAnalytics.CategorySales::getCategory, SalesAnalytics.CategorySales::getRevenue)
+			.containsExactly(tuple("Sales Travel", new BigDecimal("40.00")),
+				tuple("Sales Fiction", new BigDecimal("37.50")));
+
+		List<SalesAnalytics.DaySales> days = salesAnalytics.revenueByDay(DAY.minusDays(1), DAY.plusDays(1));
+		assertThat(days).extracting(SalesAnalytics.DaySales::getDay).containsExactly(DAY.minusDays(1), DAY, DAY.plusDays(1));
+		assertThat(days).extracting(SalesAnalytics.DaySales::getUnits).containsExactly(0L, 4L, 4L);
+		assertThat(days.get(2).getRevenue()).isEqualByComparingTo("105.00");
+	}
+
+	@Test
+	void newOrdersAreAppendedOnceWithoutARebuild() {
+		User user = userRepository.save(new User("Sales Append", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Appended Book", "Sales Author", "Sales Poetry", 8.0, null, null));
+		LocalDate day = LocalDate.of(2019, 7, 1);
+		Long seen = order(user, Order.OrderStatus.DELIVERED, day.atTime(9, 0), book, 1, "8.00", null, 0, null);
+		salesAnalytics.rebuild();
+
+		Long placed = order(user, Order.OrderStatus.PENDING, day.atTime(12, 0), book, 2, "8.00", null, 0, null);
+		salesAnalytics.onOrdersPlaced(List.of(event(seen, user, book), event(placed, user, book)));
+
+		assertThat(salesAnalytics.revenueByCategory(day, day))
+			.singleElement()
+			.satisfies(category -> {
+				assertThat(category.getCategory()).isEqualTo("Sales Poetry");
+				assertThat(category.getUnits()).isEqualTo(3);
+				assertThat(category.getRevenue()).isEqualByComparingTo("24.00");
+			});
+	}
+
+	@Test
+	void anOrderWithALowerIdThanTheRebuildSawIsAppendedOnce() {
+		User user = userRepository.save(new User("Sales Late", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Late Book", "Sales Author", "Sales Drama", 5.0, null, null));
+		LocalDate day = LocalDate.of(2018, 2, 1);
+		// Gets the lower id, but its lines commit only after the rebuild read a higher one
+		Long late = orderRow(user, Order.OrderStatus.PENDING, day.atTime(9, 0));
+		order(user, Order.OrderStatus.DELIVERED, day.atTime(10, 0), book, 1, "5.00", null, 0, null);
+		salesAnalytics.rebuild();
+		item(late, book, 2, "5.00");
+
+		salesAnalytics.onOrdersPlaced(List.of(event(late, user, book)));
+		// Redelivered by the outbox
+		salesAnalytics.onOrdersPlaced(List.of(event(late, user, book)));
+
+		assertThat(salesAnalytics.revenueByCategory(day, day))
+			.singleElement()
+			.satisfies(category -> {
+				assertThat(category.getUnits()).isEqualTo(3);
+				assertThat(category.getRevenue()).isEqualByComparingTo("15.00");
+			});
+	}
+
+	private OrderPlacedEvent event(Long orderId, User user, Book book) {
+		return new OrderPlacedEvent(orderId, user.getId(), List.of(book.getId()));
+	}
+
+	private Long order(User user, Order.OrderStatus status, LocalDateTime createdAt, Book first, int firstQuantity,
+			String firstPrice, Book second, int secondQuantity, String secondPrice) {
+		Long orderId = orderRow(user, status, createdAt);
+		item(orderId, first, firstQuantity, firstPrice);
+		if (second != null) {
+			item(orderId, second, secondQuantity, secondPrice);
+		}
+		return orderId;
+	}
+
+	private Long orderRow(User user, Order.OrderStatus status, LocalDateTime createdAt) {
+		Timestamp at = Timestamp.valueOf(createdAt);
+		jdbcTemplate.update("INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+				user.getId(), BigDecimal.ZERO, status.name(), at, at);
+		return jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders WHERE user_id = ?", Long.class, user.getId());
+	}
+
+	private void item(Long orderId, Book book, int quantity, String unitPrice) {
+		BigDecimal price = new BigDecimal(unitPrice);
+		jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?)",
+				orderId, book.getId(), quantity, price, price.multiply(BigDecimal.valueOf(quantity)));
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.bookstore.demo.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.controller.OrderController;
+import com.bookstore.demo.controller.UserController;
+import com.bookstore.demo.dto.OrderSummary;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.recommendation.RecommendationEngine;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.search.BookSuggestIndex;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:archivetest", "bookstore.archive.chunk-size=2" })
+class OrderArchiveTests {
+
+	private static final LocalDateTime CUTOFF = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+	@Autowired
+	private OrderArchive orderArchive;
+
+	@Autowired
+	private OrderController orderController;
+
+	@Autowired
+	private UserController userController;
+
+	@Autowired
+	private RecommendationEngine recommendationEngine;
+
+	@Autowired
+	private BookSuggestIndex bookSuggestIndex;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void onlyOldFinishedOrdersMoveToTheArchive() {
+		User user = userRepository.save(new User("Archive Test", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Archived Book", "Archive Author", "Fiction", 5.0, null, null));
+		Long delivered = order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 1, 15, 9, 0));
+		Long cancelled = order(user, book, Order.OrderStatus.CANCELLED, LocalDateTime.of(2020, 2, 15, 9, 0));
+		Long deliveredLater = order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2021, 3, 15, 9, 0));
+		Long pending = order(user, book, Order.OrderStatus.PENDING, LocalDateTime.of(2020, 1, 20, 9, 0));
+		Long recent = order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.now());
+
+		orderArchive.archiveOrdersBefore(CUTOFF);
+
+		assertThat(jdbcTemplate.queryForList("SELECT id FROM orders WHERE user_id = ? ORDER BY id", Long.class, user.getId()))
+			.containsExactly(pending, recent);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE order_id IN (?, ?, ?)", Long.class,
+				delivered, cancelled, deliveredLater)).isZero();
+		assertThat(jdbcTemplate.queryForList("SELECT archive_month FROM order_archive WHERE user_id = ? ORDER BY id",
+				Integer.class, user.getId())).containsExactly(202001, 202002, 202103);
+		assertThat(jdbcTemplate.queryForObject("SELECT items FROM order_archive WHERE id = ?", String.class, delivered))
+			.isEqualTo(book.getId() + ":2:5.00:10.00");
+		// The newest archived order, not the cutoff
+		assertThat(orderArchive.getHorizon()).isAfterOrEqualTo(LocalDateTime.of(2021, 3, 15, 9, 0)).isBefore(CUTOFF);
+	}
+
+	@Test
+	void historyPagesContinueFromLiveOrdersIntoTheArchive() {
+		User user = userRepository.save(new User("Archive History", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Archived History Book", "Archive Author", "Fiction", 5.0, null, null));
+		List<Long> expected = new ArrayList<>();
+		expected.add(order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.now()));
+		expected.add(order(user, book, Order.OrderStatus.PENDING, LocalDateTime.of(2022, 6, 1, 9, 0)));
+		expected.add(order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2022, 5, 1, 9, 0)));
+		// Same time as a live order, so the page order across the two tables is settled by id
+		expected.add(1, order(user, book, Order.OrderStatus.CANCELLED, LocalDateTime.of(2022, 6, 1, 9, 0)));
+		expected.add(order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2021, 5, 1, 9, 0)));
+		expected.add(order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 5, 1, 9, 0)));
+
+		orderArchive.archiveOrdersBefore(CUTOFF);
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			OrderController.OrderHistoryPage page = orderController.getUserOrders(user.getId(), 2, cursor).getBody();
+			for (OrderSummary order : page.getItems()) {
+				seen.add(order.getId());
+				assertThat(order.getItems()).singleElement().satisfies(line -> {
+					assertThat(line.getTitle()).isEqualTo("Archived History Book");
+					assertThat(line.getQuantity()).isEqualTo(2);
+					assertThat(line.getTotalPrice()).isEqualByComparingTo(new BigDecimal("10.00"));
+				});
+			}
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	void deletingAUserPurgesTheirArchivedOrders() {
+		User user = userRepository.save(new User("Archive Deleted", UUID.randomUUID() + "@example.com", null, null));
+		User other = userRepository.save(new User("Archive Kept", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Archived Deleted Book", "Archive Author", "Fiction", 5.0, null, null));
+		order(user, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 4, 1, 9, 0));
+		order(user, book, Order.OrderStatus.CANCELLED, LocalDateTime.of(2021, 4, 1, 9, 0));
+		Long kept = order(other, book, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 4, 1, 9, 0));
+		orderArchive.archiveOrdersBefore(CUTOFF);
+
+		assertThat(userController.deleteUser(user.getId()).getStatusCode().value()).isEqualTo(200);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_archive WHERE user_id = ?", Long.class, user.getId()))
+			.isZero();
+		assertThat(jdbcTemplate.queryForList("SELECT id FROM order_archive WHERE user_id = ?", Long.class, other.getId()))
+			.containsExactly(kept);
+	}
+
+	@Test
+	void archivedOrdersStillCountWhenRecommendationsAndSuggestionsAreRebuilt() {
+		User buyer = userRepository.save(new User("Archive Buyer", UUID.randomUUID() + "@example.com", null, null));
+		User reader = userRepository.save(new User("Archive Reader", UUID.randomUUID() + "@example.com", null, null));
+		Book live = bookRepository.save(new Book("Zyzzyva Live", "Archive Author", "Fiction", 5.0, null, null));
+		Book archived = bookRepository.save(new Book("Zyzzyva Archived", "Archive Author", "Fiction", 5.0, null, null));
+		// Bought together long ago, and the archived book three times as often as the live one
+		Long together = order(buyer, live, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 7, 1, 9, 0));
+		jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, 2, 5.00, 10.00)",
+				together, archived.getId());
+		order(buyer, archived, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 8, 1, 9, 0));
+		order(buyer, archived, Order.OrderStatus.DELIVERED, LocalDateTime.of(2020, 9, 1, 9, 0));
+		order(reader, live, Order.OrderStatus.DELIVERED, LocalDateTime.now());
+		orderArchive.archiveOrdersBefore(CUTOFF);
+
+		recommendationEngine.rebuild();
+		bookSuggestIndex.rebuild();
+
+		assertThat(recommendationEngine.recommend(reader.getId(), 1)).containsExactly(archived.getId());
+		assertThat(bookSuggestIndex.suggest("zyzzyva", 2)).extracting(BookSuggestIndex.Suggestion::getText)
+			.containsExactly("Zyzzyva Archived", "Zyzzyva Live");
+	}
+
+	private Long order(User user, Book book, Order.OrderStatus status, LocalDateTime createdAt) {
+		Timestamp at = Timestamp.valueOf(createdAt);
+		jdbcTemplate.update("INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+				user.getId(), new BigDecimal("10.00"), status.name(), at, at);
+		Long orderId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders WHERE user_id = ?", Long.class, user.getId());
+		jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, 2, 5.00, 10.00)",
+				orderId, book.getId());
+		return orderId;
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.bookstore.demo.cart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.CartItem;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+// The periodic flush is pushed out so each test decides when carts reach the database, and failed writes retry at once
+@SpringBootTest(properties = { "bookstore.cart.flush-interval-ms=3600000", "bookstore.cart.write-retry-backoff-ms=0" })
+class CartStoreTests {
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void changesAreServedFromMemoryAndWrittenBehind() {
+		Long userId = newUser();
+		Book first = newBook();
+		Book second = newBook();
+
+		cartStore.add(userId, first, 1);
+		CartItem raised = cartStore.add(userId, first, 2).get();
+		cartStore.add(userId, second, 5);
+
+		assertThat(raised.getQuantity()).isEqualTo(3);
+		assertThat(cartStore.getItems(userId)).extracting(CartItem::getQuantity).containsExactly(3, 5);
+		assertThat(rows(userId)).isEmpty();
+
+		cartStore.flushAll();
+
+		assertThat(rows(userId)).containsExactly(Map.of("ID", raised.getId(), "QUANTITY", 3),
+				Map.of("ID", cartStore.getItems(userId).get(1).getId(), "QUANTITY", 5));
+	}
+
+	@Test
+	void flushedCartIsReloadedWithTheSameItems() {
+		Long userId = newUser();
+		CartItem item = cartStore.add(userId, newBook(), 4).get();
+		cartStore.flushAll();
+
+		cartStore.evictIdle(0);
+
+		assertThat(cartStore.getItems(userId)).singleElement().satisfies(reloaded -> {
+			assertThat(reloaded.getId()).isEqualTo(item.getId());
+			assertThat(reloaded.getQuantity()).isEqualTo(4);
+		});
+	}
+
+	@Test
+	void unflushedCartsAreNeverEvicted() {
+		Long userId = newUser();
+		CartItem item = cartStore.add(userId, newBook(), 1).get();
+		cartStore.flushAll();
+		cartStore.setQuantity(userId, item.getId(), 9);
+
+		cartStore.evictIdle(0);
+
+		assertThat(cartStore.getItems(userId)).extracting(CartItem::getQuantity).containsExactly(9);
+		cartStore.flushAll();
+		assertThat(rows(userId)).containsExactly(Map.of("ID", item.getId(), "QUANTITY", 9));
+	}
+
+	@Test
+	void removalsAndClearsAreWrittenBehind() {
+		Long userId = newUser();
+		CartItem kept = cartStore.add(userId, newBook(), 1).get();
+		CartItem removed = cartStore.add(userId, newBook(), 1).get();
+		cartStore.flushAll();
+
+		assertThat(cartStore.remove(userId, removed.getId())).isTrue();
+		cartStore.flushAll();
+		assertThat(rows(userId)).containsExactly(Map.of("ID", kept.getId(), "QUANTITY", 1));
+
+		cartStore.clear(userId);
+		cartStore.flushAll();
+		assertThat(rows(userId)).isEmpty();
+	}
+
+	@Test
+	void cartThatCannotBeWrittenStaysDirtyWithoutHoldingBackOthers() {
+		Long poisoned = newUser();
+		Long healthy = newUser();
+		Book vanishing = newBook();
+		cartStore.add(poisoned, vanishing, 1);
+		cartStore.add(healthy, newBook(), 1);
+		// Deleted behind the application's back, so the cart still references it
+		jdbcTemplate.update("DELETE FROM books WHERE id = ?", vanishing.getId());
+
+		cartStore.flushAll();
+
+		assertThat(rows(healthy)).hasSize(1);
+		assertThat(cartStore.dirtyCount()).isEqualTo(1);
+		cartStore.discard(poisoned);
+		assertThat(cartStore.dirtyCount()).isZero();
+	}
+
+	@Test
+	void cartThatKeepsFailingIsDroppedAfterTheLastAttempt() {
+		Long userId = newUser();
+		Book kept = newBook();
+		cartStore.add(userId, kept, 1);
+		cartStore.flushAll();
+		Book vanishing = newBook();
+		cartStore.add(userId, vanishing, 1);
+		jdbcTemplate.update("DELETE FROM books WHERE id = ?", vanishing.getId());
+
+		for (int attempt = 1; attempt < 5; attempt++) {
+			cartStore.flush();
+			assertThat(cartStore.dirtyCount()).isEqualTo(1);
+		}
+		cartStore.flush();
+
+		assertThat(cartStore.dirtyCount()).isZero();
+		// Reloaded as last written
+		assertThat(cartStore.getItems(userId)).extracting(item -> item.getBook().getId()).containsExactly(kept.getId());
+	}
+
+	@Test
+	void itemIdsAreReservedFromTheSharedSequence() {
+		long first = cartStore.allocateItemIds(CartStore.ID_BLOCK_SIZE);
+		// Another instance on the same database reserving its own block
+		Long other = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR cart_items_seq", Long.class);
+		long next = cartStore.allocateItemIds(1);
+
+		assertThat(other).isGreaterThanOrEqualTo(first + CartStore.ID_BLOCK_SIZE);
+		assertThat(next).isGreaterThanOrEqualTo(other + CartStore.ID_BLOCK_SIZE);
+	}
+
+	@Test
+	void concurrentChangesToManyCartsAreNotLost() throws Exception {
+		int users = 50;
+		int threads = 16;
+		int addsPerThread = 500;
+		List<Long> userIds = new ArrayList<>();
+		for (int u = 0; u < users; u++) {
+			userIds.add(newUser());
+		}
+		Book book = newBook();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int offset = t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < addsPerThread; i++) {
+						cartStore.add(userIds.get((offset + i) % users), book, 1);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		cartStore.flushAll();
+
+		long total = 0;
+		for (Long userId : userIds) {
+			total += cartStore.getItems(userId).get(0).getQuantity();
+			assertThat(rows(userId)).hasSize(1);
+		}
+		assertThat(total).isEqualTo((long) threads * addsPerThread);
+	}
+
+	private List<Map<String, Object>> rows(Long userId) {
+		return jdbcTemplate.queryForList("SELECT id, quantity FROM cart_items WHERE user_id = ? ORDER BY id", userId);
+	}
+
+	private Long newUser() {
+		return userRepository.save(new User("Cart Test", UUID.randomUUID() + "@example.com", null, null)).getId();
+	}
+
+	private Book newBook() {
+		return bookRepository.save(new Book("Cart Book", "Author", "Fiction", 9.99, null, null));
+	}
+
+}
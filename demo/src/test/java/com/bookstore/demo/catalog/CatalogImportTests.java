@@ -0,0 +1,136 @@
+package com.bookstore.demo.catalog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.dto.CatalogImportReport;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.search.BookSearchIndex;
+
+@SpringBootTest(properties = {
+		"bookstore.catalog.import-batch-size=2",
+		"spring.jpa.show-sql=false" })
+class CatalogImportTests {
+
+	@Autowired
+	private CatalogImporter importer;
+
+	@Autowired
+	private CatalogExporter exporter;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookSearchIndex searchIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void csvRowsAreUpsertedByIsbnAndBadRowsReportedByLine() {
+		String feed = """
+			isbn,title,author,category,price,description,image_url
+			978-0-306-40615-7,Quarkwise Harbor,Ada Feedwright,Fiction,12.50,"Ships, storms and
+			a lighthouse",
+			0-306-40615-2,Quarkwise Harbor,Ada Feedwright,Fiction,13.00,,
+			9780306406158,Bad Checksum,Someone,Fiction,9.99,,
+			9781861972712,No Price,Someone,Fiction,,,
+			9781861972712,Quarkwise Garden,Ben Feedwright,,free,,
+			9780131103627,Quarkwise Compilers,Cy Feedwright,Science,45,,
+			""";
+		List<CatalogImportReport> progress = new ArrayList<>();
+
+		CatalogImportReport report = importer.importBooks(stream(feed), CatalogFormat.CSV, progress::add);
+
+		assertThat(report.isDone()).isTrue();
+		assertThat(report.getFailure()).isNull();
+		assertThat(report.getRows()).isEqualTo(6);
+		assertThat(report.getRejected()).isEqualTo(3);
+		assertThat(report.getErrors()).extracting(CatalogImportReport.RowError::getLine).containsExactly(5L, 6L, 7L);
+		assertThat(report.getErrors().get(0).getMessage()).contains("not a valid ISBN");
+		assertThat(report.getErrors().get(1).getMessage()).isEqualTo("price is required");
+		assertThat(report.getErrors().get(2).getMessage()).contains("not a number");
+		// The ISBN-10 row is the same book as the first, so it updates it
+		assertThat(report.getInserted() + report.getUpdated()).isEqualTo(3);
+		assertThat(progress).isNotEmpty();
+
+		Book harbor = bookByIsbn("9780306406157");
+		assertThat(harbor.getPrice()).isEqualTo(13.00);
+		assertThat(harbor.getDescription()).isNull();
+		assertThat(searchIndex.search("quarkwise", 10)).contains(harbor.getId(), bookByIsbn("9780131103627").getId());
+	}
+
+	@Test
+	void updatesReplaceCachedBooks() {
+		importer.importBooks(stream("""
+			{"isbn":"9780262033848","title":"Cached Algorithms","author":"Dee Feedwright","price":80}
+			"""), CatalogFormat.NDJSON, report -> { });
+		Long id = bookByIsbn("9780262033848").getId();
+		assertThat(bookRepository.findById(id).get().getPrice()).isEqualTo(80.0);
+
+		CatalogImportReport report = importer.importBooks(stream("""
+			{"isbn":"978-0-262-03384-8","title":"Cached Algorithms","author":"Dee Feedwright","price":"75.5","imageUrl":null}
+			not json
+			["isbn"]
+			"""), CatalogFormat.NDJSON, progress -> { });
+
+		assertThat(report.getUpdated()).isEqualTo(1);
+		assertThat(report.getErrors()).extracting(CatalogImportReport.RowError::getLine).containsExactly(2L, 3L);
+		assertThat(bookRepository.findById(id).get().getPrice()).isEqualTo(75.5);
+	}
+
+	@Test
+	void exportedCatalogReimportsAsUpdatesOnly() throws Exception {
+		importer.importBooks(stream("""
+			isbn,title,author,price
+			9780201633610,Exported Patterns,Eve Feedwright,39.99
+			9780132350884,"Exported, Clean",Fay Feedwright,29.99
+			"""), CatalogFormat.CSV, report -> { });
+		long withIsbn = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books WHERE isbn IS NOT NULL", Long.class);
+		long books = bookRepository.count();
+
+		for (CatalogFormat format : CatalogFormat.values()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			exporter.export(out, format);
+
+			CatalogImportReport report = importer.importBooks(new ByteArrayInputStream(out.toByteArray()), format, progress -> { });
+
+			assertThat(report.getRows()).isEqualTo(books);
+			assertThat(report.getInserted()).isZero();
+			assertThat(report.getUpdated()).isEqualTo(withIsbn);
+			// Books added through the API have no ISBN to be matched on
+			assertThat(report.getRejected()).isEqualTo(books - withIsbn);
+		}
+		assertThat(bookByIsbn("9780132350884").getTitle()).isEqualTo("Exported, Clean");
+	}
+
+	@Test
+	void feedWithoutRequiredColumnsFails() {
+		CatalogImportReport report = importer.importBooks(stream("title,author\nOnly,Columns\n"), CatalogFormat.CSV, progress -> { });
+
+		assertThat(report.isDone()).isTrue();
+		assertThat(report.getFailure()).contains("isbn, title, author, price");
+		assertThat(report.getRows()).isZero();
+	}
+
+	private Book bookByIsbn(String isbn) {
+		Long id = jdbcTemplate.queryForObject("SELECT id FROM books WHERE isbn = ?", Long.class, isbn);
+		return bookRepository.findById(id).orElseThrow();
+	}
+
+	private static ByteArrayInputStream stream(String feed) {
+		return new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,50 @@
+package com.bookstore.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusOutputFormat;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private PrometheusScrapeEndpoint scrapeEndpoint;
+
+	@Test
+	void scrapeHasEndpointAndRepositoryHistogramsWithPoolAndHibernateStatistics() throws Exception {
+		Book book = bookRepository.save(new Book("Measured Book", "Author", "Fiction", 10.00, null, null));
+		mockMvc.perform(get("/api/books/{id}", book.getId())).andExpect(status().isOk());
+		mockMvc.perform(get("/api/reviews/book/{bookId}", book.getId())).andExpect(status().isOk());
+
+		String scrape = new String(scrapeEndpoint.scrape(PrometheusOutputFormat.CONTENT_TYPE_004, null).getBody(),
+			StandardCharsets.UTF_8);
+
+		assertThat(scrape).containsPattern("http_server_requests_seconds_bucket\\{[^}]*uri=\"/api/books/\\{id}\"");
+		assertThat(scrape).containsPattern("http_server_requests_seconds_count\\{[^}]*uri=\"/api/reviews/book/\\{bookId}\"");
+		assertThat(scrape).containsPattern(
+			"spring_data_repository_invocations_seconds_bucket\\{[^}]*method=\"save\"[^}]*repository=\"BookRepository\"");
+		assertThat(scrape).contains("hikaricp_connections_active", "hibernate_statements_total", "hibernate_query_executions_total");
+	}
+}
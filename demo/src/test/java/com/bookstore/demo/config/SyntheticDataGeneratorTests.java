@@ -0,0 +1,83 @@
+package com.bookstore.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.CartItem;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+// A database of its own, so the generated rows do not leak into other test contexts
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:seedtest",
+		"spring.jpa.show-sql=false",
+		"bookstore.seed.books=2000",
+		"bookstore.seed.users=500",
+		"bookstore.seed.reviews=5000",
+		"bookstore.seed.orders=1000",
+		"bookstore.seed.carts=100",
+		"bookstore.seed.batch-size=300" })
+class SyntheticDataGeneratorTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void generatesTheConfiguredVolumesOnTopOfTheSamples() {
+		assertThat(count("SELECT COUNT(*) FROM books")).isEqualTo(2010);
+		assertThat(count("SELECT COUNT(*) FROM users")).isEqualTo(503);
+		assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(5000);
+		assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1000);
+		assertThat(count("SELECT COUNT(DISTINCT user_id) FROM cart_items")).isEqualTo(100);
+		assertThat(count("SELECT COUNT(*) FROM orders o WHERE total_amount <> "
+				+ "(SELECT SUM(total_price) FROM order_items i WHERE i.order_id = o.id)")).isZero();
+	}
+
+	@Test
+	void popularityIsSkewedTowardsAFewBooks() {
+		List<Long> perBook = jdbcTemplate.queryForList(
+				"SELECT COUNT(*) FROM reviews GROUP BY book_id ORDER BY COUNT(*) DESC", Long.class);
+
+		// Under Zipf with exponent 1 the top title alone draws over a tenth of all reviews
+		assertThat(perBook.get(0)).isGreaterThan(500L);
+		assertThat(perBook.get(perBook.size() / 2)).isLessThan(5L);
+	}
+
+	@Test
+	void writesAfterGenerationDoNotCollideWithGeneratedRows() {
+		Book book = bookRepository.save(new Book("After Seeding", "Author", "Fiction", 9.99, null, null));
+		User user = userRepository.save(new User("After Seeding", "after@example.com", null, null));
+		Long cartUser = jdbcTemplate.queryForObject("SELECT MIN(user_id) FROM cart_items", Long.class);
+
+		CartItem added = cartStore.add(cartUser, book, 1).get();
+		cartStore.add(user.getId(), book, 1);
+		cartStore.flushAll();
+
+		assertThat(book.getId()).isGreaterThan(2010L);
+		assertThat(cartStore.getItems(cartUser)).hasSizeGreaterThan(1).extracting(CartItem::getId).doesNotHaveDuplicates();
+		assertThat(count("SELECT COUNT(*) FROM cart_items WHERE id = " + added.getId())).isEqualTo(1);
+	}
+
+	private long count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Long.class);
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.bookstore.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+		"spring.threads.virtual.enabled=true",
+		"bookstore.threads.pinned-threshold-ms=20",
+		"spring.jpa.show-sql=false" })
+class VirtualThreadPinningMonitorTests {
+
+	@Autowired
+	private VirtualThreadPinningMonitor monitor;
+
+	@Test
+	void reportsAVirtualThreadBlockingInsideAMonitor() throws Exception {
+		long before = monitor.getPinnedCount();
+		Object lock = new Object();
+
+		Thread.ofVirtual().start(() -> {
+			synchronized (lock) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}).join();
+
+		// JFR hands events to the stream about once a second
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (monitor.getPinnedCount() == before && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+		}
+		assertThat(monitor.getPinnedCount()).isGreaterThan(before);
+	}
+}
@@ -0,0 +1,123 @@
+package com.bookstore.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Its own catalog, so every walk can be compared with the whole table
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bookpagetest")
+class BookPageTests {
+
+	@Autowired
+	private BookController bookController;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	// Added once; the seeded catalog is there as well
+	@BeforeEach
+	void booksWithTiesAndMissingValues() {
+		if (bookRepository.findAll().stream().noneMatch(book -> "Page Author".equals(book.getAuthor()))) {
+			for (int i = 0; i < 12; i++) {
+				// Shared prices and titles, and some books with neither
+				Double price = i % 4 == 0 ? null : 5.0 * (i % 3);
+				String title = i % 5 == 0 ? null : "Paged " + (i % 4);
+				bookRepository.save(new Book(title, "Page Author", "Fiction", price, null, null));
+			}
+		}
+	}
+
+	@Test
+	void cursorsWalkEveryBookOnceInEachSortOrder() {
+		Comparator<Book> byId = Comparator.comparing(Book::getId);
+		Comparator<Book> byPrice = Comparator.comparing(Book::getPrice, Comparator.nullsLast(Comparator.naturalOrder()));
+		Comparator<Book> byTitle = Comparator.comparing(Book::getTitle, Comparator.nullsLast(Comparator.naturalOrder()));
+		List<Book> all = bookRepository.findAll();
+
+		assertThat(walk("id", "asc")).isEqualTo(ids(all, byId));
+		assertThat(walk("id", "desc")).isEqualTo(ids(all, byId.reversed()));
+		assertThat(walk("price", "asc")).isEqualTo(ids(all, byPrice.thenComparing(byId)));
+		assertThat(walk("price", "desc")).isEqualTo(ids(all, descendingWithNullsLast(Book::getPrice)));
+		assertThat(walk("title", "asc")).isEqualTo(ids(all, byTitle.thenComparing(byId)));
+		assertThat(walk("title", "desc")).isEqualTo(ids(all, descendingWithNullsLast(Book::getTitle)));
+	}
+
+	@Test
+	void malformedCursorsAreRejected() {
+		String priceCursor = encode("price|1|5.0");
+
+		assertThat(page("id", "asc", "not base64!").getStatusCode().value()).isEqualTo(400);
+		assertThat(page("id", "asc", encode("id")).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("title", "asc", priceCursor).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("price", "asc", encode("price|one|5.0")).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("price", "asc", encode("price|1|cheap")).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("price", "sideways", null).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("isbn", "asc", null).getStatusCode().value()).isEqualTo(400);
+		assertThat(page("price", "asc", priceCursor).getStatusCode().value()).isEqualTo(200);
+	}
+
+	@Test
+	void streamWritesOneLinePerBookInIdOrder() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		bookController.streamBooks().getBody().writeTo(out);
+
+		List<Long> streamed = new ArrayList<>();
+		for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+			if (!line.isBlank()) {
+				streamed.add(objectMapper.readValue(line, Book.class).getId());
+			}
+		}
+		assertThat(streamed).isEqualTo(ids(bookRepository.findAll(), Comparator.comparing(Book::getId)));
+	}
+
+	// Values descending, then the books without one; ties by id descending in both parts
+	private static <T extends Comparable<T>> Comparator<Book> descendingWithNullsLast(Function<Book, T> key) {
+		return Comparator.comparing(key, Comparator.nullsFirst(Comparator.<T>naturalOrder()))
+			.thenComparing(Book::getId)
+			.reversed();
+	}
+
+	private List<Long> walk(String sort, String direction) {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			BookController.BookPage page = page(sort, direction, cursor).getBody();
+			assertThat(page.getItems()).hasSizeLessThanOrEqualTo(5);
+			page.getItems().forEach(book -> ids.add(book.getId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return ids;
+	}
+
+	private ResponseEntity<BookController.BookPage> page(String sort, String direction, String cursor) {
+		return bookController.getBookPage(sort, direction, 5, cursor);
+	}
+
+	private static List<Long> ids(List<Book> books, Comparator<Book> order) {
+		return books.stream().sorted(order).map(Book::getId).toList();
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.bookstore.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class CheckoutIdempotencyTests {
+
+	@Autowired
+	private OrderController orderController;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void retriesWithTheSameKeyGetTheFirstResponse() throws Exception {
+		User user = userWithCart();
+		String key = UUID.randomUUID().toString();
+		double replaysBefore = replays();
+
+		// The retries race the first checkout, and some arrive while it is still running
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<ResponseEntity<?>> responses = new ArrayList<>();
+		try {
+			List<Callable<ResponseEntity<?>>> attempts = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				attempts.add(() -> orderController.checkout(user.getId(), key, request("upi")));
+			}
+			for (Future<ResponseEntity<?>> attempt : executor.invokeAll(attempts)) {
+				responses.add(attempt.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		responses.add(orderController.checkout(user.getId(), key, request("upi")));
+
+		assertThat(responses).allSatisfy(response -> assertThat(response.getStatusCode().value()).isEqualTo(200));
+		Object first = responses.get(0).getBody();
+		assertThat(responses).allSatisfy(response -> assertThat(response.getBody()).isSameAs(first));
+		assertThat(ordersOf(user)).isEqualTo(1);
+		assertThat(replays() - replaysBefore).isEqualTo(4);
+	}
+
+	@Test
+	void keyReusedForADifferentRequestIsRefused() {
+		User user = userWithCart();
+		String key = UUID.randomUUID().toString();
+		orderController.checkout(user.getId(), key, request("upi"));
+
+		ResponseEntity<?> response = orderController.checkout(user.getId(), key, request("cod"));
+
+		assertThat(response.getStatusCode().value()).isEqualTo(422);
+		// The same key from another user is a different key
+		User other = userWithCart();
+		assertThat(orderController.checkout(other.getId(), key, request("cod")).getStatusCode().value()).isEqualTo(200);
+	}
+
+	@Test
+	void failedCheckoutCanBeRetriedWithItsKey() {
+		User user = userRepository.save(new User("Idempotency Test", UUID.randomUUID() + "@example.com", null, null));
+		String key = UUID.randomUUID().toString();
+		double replaysBefore = replays();
+
+		assertThat(orderController.checkout(user.getId(), key, request("cod")).getStatusCode().value()).isEqualTo(400);
+		addBook(user);
+		ResponseEntity<?> response = orderController.checkout(user.getId(), key, request("cod"));
+
+		assertThat(response.getStatusCode().value()).isEqualTo(200);
+		assertThat(ordersOf(user)).isEqualTo(1);
+		// Run again, not replayed
+		assertThat(replays()).isEqualTo(replaysBefore);
+	}
+
+	@Test
+	void paymentReferencesAreUniquePerOrder() {
+		Set<String> references = new HashSet<>();
+		for (int i = 0; i < 3; i++) {
+			User user = userWithCart();
+			OrderController.CheckoutResponse response =
+				(OrderController.CheckoutResponse) orderController.checkout(user.getId(), null, request("upi")).getBody();
+			assertThat(response.getPaymentReference()).startsWith("UPI-" + response.getOrderId() + "-");
+			references.add(response.getPaymentReference());
+		}
+		assertThat(references).hasSize(3);
+	}
+
+	private User userWithCart() {
+		User user = userRepository.save(new User("Idempotency Test", UUID.randomUUID() + "@example.com", null, null));
+		addBook(user);
+		return user;
+	}
+
+	private void addBook(User user) {
+		Book book = bookRepository.save(new Book("Idempotent Book", "Author", "Fiction", 12.5, null, null));
+		cartStore.add(user.getId(), book, 2);
+	}
+
+	private long ordersOf(User user) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Long.class, user.getId());
+	}
+
+	private double replays() {
+		return meterRegistry.get("bookstore.idempotency.replays").counter().count();
+	}
+
+	private static OrderController.CheckoutRequest request(String paymentMethod) {
+		OrderController.CheckoutRequest request = new OrderController.CheckoutRequest();
+		request.setShippingAddress("1 Retry Road");
+		request.setMetadata(Map.of("paymentMethod", paymentMethod));
+		return request;
+	}
+}
@@ -0,0 +1,138 @@
+package com.bookstore.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.bookstore.demo.archive.OrderArchive;
+import com.bookstore.demo.dto.OrderSummary;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.OrderItem;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.OrderRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class OrderHistoryTests {
+
+	@Autowired
+	private OrderController orderController;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private OrderArchive orderArchive;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void pageLoadsOrdersItemsAndBooksInBoundedQueries() {
+		User user = userWithOrders(12, 4, LocalDateTime.of(2024, 1, 1, 12, 0));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+		userRepository.findById(user.getId());
+		long statements = statistics.getPrepareStatementCount();
+
+		OrderController.OrderHistoryPage page = orderController.getUserOrders(user.getId(), 10, null).getBody();
+
+		// One query for the orders and one for their items with book fields, however many there are
+		assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(2);
+		assertThat(page.getItems()).hasSize(10);
+		assertThat(page.getItems()).allSatisfy(order -> {
+			assertThat(order.getItems()).hasSize(4);
+			assertThat(order.getItems().get(0).getTitle()).startsWith("History Book");
+		});
+		assertThat(page.getNextCursor()).isNotNull();
+	}
+
+	@Test
+	void archiveRunThatMovesNothingKeepsHistoryOnTheHotTables() {
+		User user = userWithOrders(3, 1, LocalDateTime.of(2024, 1, 1, 12, 0));
+
+		// No order in this database is that old
+		assertThat(orderArchive.archiveOrdersBefore(LocalDateTime.of(1970, 1, 1, 0, 0))).isZero();
+
+		// A first page shorter than the page size only reads the archive when the horizon says it holds something
+		assertThat(orderArchive.getHorizon()).isEqualTo(LocalDateTime.MIN);
+		OrderController.OrderHistoryPage page = orderController.getUserOrders(user.getId(), 10, null).getBody();
+		assertThat(page.getItems()).hasSize(3);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void cursorWalksHistoryNewestFirstAcrossTies() {
+		// Pairs of orders share a timestamp, so pages can only split them correctly by id
+		User user = userWithOrders(9, 1, LocalDateTime.of(2024, 1, 1, 12, 0));
+
+		List<Long> seen = new ArrayList<>();
+		List<LocalDateTime> times = new ArrayList<>();
+		String cursor = null;
+		do {
+			OrderController.OrderHistoryPage page = orderController.getUserOrders(user.getId(), 4, cursor).getBody();
+			for (OrderSummary order : page.getItems()) {
+				seen.add(order.getId());
+				times.add(order.getCreatedAt());
+			}
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		List<Long> expected = orderRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).stream()
+			.sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed())
+			.map(Order::getId)
+			.toList();
+		assertThat(seen).containsExactlyElementsOf(expected);
+		assertThat(times).isSortedAccordingTo((a, b) -> b.compareTo(a));
+	}
+
+	@Test
+	void rejectsUnknownUsersAndBadCursors() {
+		User user = userWithOrders(1, 1, LocalDateTime.of(2024, 1, 1, 12, 0));
+
+		assertThat(orderController.getUserOrders(Long.MAX_VALUE, 10, null).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+		ResponseEntity<OrderController.OrderHistoryPage> badCursor = orderController.getUserOrders(user.getId(), 10, "not-a-cursor");
+		assertThat(badCursor.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	private User userWithOrders(int orders, int itemsPerOrder, LocalDateTime start) {
+		User user = userRepository.save(new User("History User", UUID.randomUUID() + "@example.com", null, null));
+		List<Book> books = new ArrayList<>();
+		for (int i = 0; i < itemsPerOrder; i++) {
+			books.add(bookRepository.save(new Book("History Book " + i, "Author", "Fiction", 10.0 + i, null, null)));
+		}
+		for (int i = 0; i < orders; i++) {
+			Order order = new Order(user, BigDecimal.ZERO, "1 History Lane");
+			order.setCreatedAt(start.plusHours(i / 2));
+			List<OrderItem> items = new ArrayList<>();
+			for (Book book : books) {
+				items.add(new OrderItem(order, book, 1, BigDecimal.valueOf(book.getPrice())));
+			}
+			order.setOrderItems(items);
+			orderRepository.save(order);
+		}
+		return user;
+	}
+}
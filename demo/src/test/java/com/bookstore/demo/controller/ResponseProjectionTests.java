@@ -0,0 +1,115 @@
+package com.bookstore.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.bookstore.demo.dto.CartItemRequest;
+import com.bookstore.demo.dto.CartLine;
+import com.bookstore.demo.dto.ReviewView;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.ReviewService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class ResponseProjectionTests {
+
+	@Autowired
+	private ReviewController reviewController;
+
+	@Autowired
+	private CartController cartController;
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void reviewsOfABookAreOneQueryWithoutTheReviewersDetails() throws Exception {
+		Book book = bookRepository.save(new Book("Projected Book", "Author", "Fiction", 12.50, null, null));
+		for (int i = 0; i < 5; i++) {
+			User user = userRepository.save(new User("Reviewer " + i, UUID.randomUUID() + "@example.com", "+1-555-0100", "1 Private Road"));
+			reviewService.addReview(user, book, 1 + i, "Comment " + i);
+		}
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+		long statements = statistics.getPrepareStatementCount();
+
+		List<ReviewView> reviews = reviewController.getReviewsByBook(book.getId()).getBody();
+
+		assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+		assertThat(reviews).extracting(ReviewView::getRating).containsExactly(1, 2, 3, 4, 5);
+		assertThat(reviews).extracting(ReviewView::getUserName).containsExactly("Reviewer 0", "Reviewer 1", "Reviewer 2", "Reviewer 3", "Reviewer 4");
+		assertThat(reviews).allSatisfy(review -> assertThat(review.getBookTitle()).isEqualTo("Projected Book"));
+		String json = objectMapper.writeValueAsString(reviews);
+		assertThat(json).doesNotContain("@example.com", "1 Private Road", "+1-555-0100");
+	}
+
+	@Test
+	void streamedReviewsAreOneJsonLineEachAcrossBatches() throws Exception {
+		Book book = bookRepository.save(new Book("Streamed Book", "Author", "Fiction", 8.00, null, null));
+		int reviews = 1200;
+		for (int i = 0; i < reviews; i++) {
+			User user = userRepository.save(new User("Streamer " + i, UUID.randomUUID() + "@example.com", null, null));
+			reviewService.addReview(user, book, 1 + i % 5, null);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reviewController.streamReviewsByBook(book.getId()).getBody().writeTo(out);
+
+		List<ReviewView> streamed = out.toString(StandardCharsets.UTF_8).lines()
+			.map(line -> {
+				try {
+					return objectMapper.readValue(line, ReviewView.class);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			})
+			.toList();
+		assertThat(streamed).hasSize(reviews);
+		assertThat(streamed).extracting(ReviewView::getId).isSorted().doesNotHaveDuplicates();
+		assertThat(streamed).allSatisfy(review -> assertThat(review.getBookTitle()).isEqualTo("Streamed Book"));
+	}
+
+	@Test
+	void cartLinesCarryABookSummaryAndNotTheUser() throws Exception {
+		User user = userRepository.save(new User("Cart Owner", UUID.randomUUID() + "@example.com", "+1-555-0199", "2 Private Road"));
+		Book book = bookRepository.save(new Book("Cart Book", "Author", "Fiction", 9.99, "Long description", null));
+
+		CartLine added = cartController.addToCart(user.getId(), new CartItemRequest(book.getId(), 2)).getBody();
+		List<CartLine> cart = cartController.getCartItems(user.getId()).getBody();
+
+		assertThat(cart).singleElement().satisfies(line -> {
+			assertThat(line.getId()).isEqualTo(added.getId());
+			assertThat(line.getQuantity()).isEqualTo(2);
+			assertThat(line.getBook().getTitle()).isEqualTo("Cart Book");
+			assertThat(line.getBook().getPrice()).isEqualTo(9.99);
+		});
+		String json = objectMapper.writeValueAsString(cart);
+		assertThat(json).doesNotContain("Cart Owner", "2 Private Road", "Long description");
+	}
+}
@@ -0,0 +1,170 @@
+package com.bookstore.demo.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.OrderEventConsumer;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.OrderRepository;
+import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.CheckoutService;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:outboxtest", "bookstore.outbox.poll-interval-ms=20",
+		"bookstore.outbox.retry-backoff-ms=20", "bookstore.outbox.max-attempts=3" })
+class OrderOutboxTests {
+
+	@Autowired
+	private CheckoutService checkoutService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private FlakyConsumer flaky;
+
+	@Test
+	void paymentConfirmsTheOrderAfterCheckoutReturned() {
+		Order order = placeOrder(user());
+
+		assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+		await(() -> status(order) == Order.OrderStatus.CONFIRMED);
+		await(() -> rows(order).isEmpty());
+		assertThat(flaky.delivered).contains(order.getId());
+	}
+
+	@Test
+	void failingConsumerIsRetriedWithoutHoldingTheOthersBack() {
+		User user = user();
+		// One attempt short of being parked
+		flaky.refusals.put(user.getId(), 2);
+		Order order = placeOrder(user);
+
+		await(() -> status(order) == Order.OrderStatus.CONFIRMED);
+		await(() -> rows(order).isEmpty());
+		assertThat(flaky.refused).containsExactly(order.getId(), order.getId());
+		assertThat(flaky.delivered).contains(order.getId());
+	}
+
+	@Test
+	void eventIsParkedAfterTooManyFailures() {
+		User user = user();
+		flaky.refusals.put(user.getId(), Integer.MAX_VALUE);
+		Order order = placeOrder(user);
+
+		await(() -> attempts(order) == 3);
+		Map<String, Object> parked = jdbcTemplate.queryForMap(
+			"SELECT next_attempt_at, last_error FROM order_outbox WHERE order_id = ? AND consumer = ?", order.getId(),
+			flaky.consumerName());
+		assertThat(parked.get("NEXT_ATTEMPT_AT")).isNull();
+		assertThat((String) parked.get("LAST_ERROR")).contains("Refused order " + order.getId());
+		assertThat(flaky.delivered).doesNotContain(order.getId());
+	}
+
+	private User user() {
+		return userRepository.save(new User("Outbox Test", UUID.randomUUID() + "@example.com", null, null));
+	}
+
+	private Order placeOrder(User user) {
+		Book book = bookRepository.save(new Book("Outbox Book", "Author", "Fiction", 9.5, null, null));
+		cartStore.add(user.getId(), book, 1);
+		return checkoutService.checkout(user, "1 Outbox Row", "upi");
+	}
+
+	private Order.OrderStatus status(Order order) {
+		return orderRepository.findById(order.getId()).get().getStatus();
+	}
+
+	private Map<String, Object> rows(Order order) {
+		Map<String, Object> rows = new ConcurrentHashMap<>();
+		jdbcTemplate.query("SELECT consumer, attempts FROM order_outbox WHERE order_id = ?",
+			(RowCallbackHandler) rs -> rows.put(rs.getString(1), rs.getInt(2)), order.getId());
+		return rows;
+	}
+
+	private int attempts(Order order) {
+		Object attempts = rows(order).get(flaky.consumerName());
+		return attempts == null ? 0 : (Integer) attempts;
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition met in time").isLessThan(deadline);
+			try {
+				Thread.sleep(10);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	static class FlakyConsumer implements OrderEventConsumer {
+
+		// Users whose orders are refused, and how many more times; each lane delivers on one thread
+		final Map<Long, Integer> refusals = new ConcurrentHashMap<>();
+
+		final List<Long> refused = new CopyOnWriteArrayList<>();
+
+		final List<Long> delivered = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String consumerName() {
+			return "flaky";
+		}
+
+		@Override
+		public void onOrderPlaced(OrderPlacedEvent event) {
+			if (refusals.getOrDefault(event.getUserId(), 0) > 0) {
+				refusals.merge(event.getUserId(), -1, Integer::sum);
+				refused.add(event.getOrderId());
+				throw new IllegalStateException("Refused order " + event.getOrderId());
+			}
+			delivered.add(event.getOrderId());
+		}
+
+	}
+
+	@TestConfiguration
+	static class Config {
+
+		@Bean
+		FlakyConsumer flakyConsumer() {
+			return new FlakyConsumer();
+		}
+
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.bookstore.demo.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.repository.BookRepository;
+
+// A real servlet server on a random port, so the reactive server starts beside it
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:reactiveservertest", "bookstore.reactive.port=0", "management.server.port=0" })
+class ReactiveCatalogServerTests {
+
+	@Autowired
+	private ReactiveCatalogServer server;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Test
+	void servesTheCatalogOverHttpOnItsOwnPort() {
+		Book book = bookRepository.save(new Book("Netty Served", "Reactive Author", "Fiction", 7.25, null, null));
+		WebTestClient client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+
+		client.get().uri("/api/books/{id}", book.getId()).exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.title").isEqualTo("Netty Served");
+		client.get().uri("/api/books?limit=5").accept(MediaType.APPLICATION_NDJSON).exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON);
+		// Only the catalog reads are served here
+		client.get().uri("/api/orders").exchange().expectStatus().isNotFound();
+	}
+}
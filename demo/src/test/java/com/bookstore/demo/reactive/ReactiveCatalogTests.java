@@ -0,0 +1,134 @@
+package com.bookstore.demo.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+import com.bookstore.demo.service.ReviewService;
+
+// Rows written through JPA and JDBC are read back over R2DBC from the same in-memory database
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reactivetest")
+class ReactiveCatalogTests {
+
+	@Autowired
+	private ReactiveCatalogHandler handler;
+
+	@Autowired
+	private ReactiveCatalogServer server;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private WebTestClient client;
+
+	@BeforeEach
+	void setUp() {
+		client = WebTestClient.bindToRouterFunction(handler.routes()).handlerStrategies(server.handlerStrategies()).build();
+	}
+
+	@Test
+	void readsBooksByIdAndBySearch() {
+		Book book = bookRepository.save(new Book("Quokka Nights", "Reactive Author", "Fiction", 12.5, null, null));
+
+		client.get().uri("/api/books/{id}", book.getId()).exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.title").isEqualTo("Quokka Nights")
+			.jsonPath("$.price").isEqualTo(12.5);
+		client.get().uri("/api/books/{id}", -1).exchange().expectStatus().isNotFound();
+		client.get().uri("/api/books/stream").exchange().expectStatus().isBadRequest();
+
+		client.get().uri("/api/books?q=quokka").exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(1)
+			.jsonPath("$[0].id").isEqualTo(book.getId());
+		client.get().uri("/api/books?limit=1").exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(1);
+	}
+
+	@Test
+	void streamsEveryReviewOfABookAcrossBatches() {
+		Book book = bookRepository.save(new Book("Reactive Reviews", "Reactive Author", "Fiction", 9.0, null, null));
+		User user = userRepository.save(new User("Reactive Reader", UUID.randomUUID() + "@example.com", null, null));
+		// More than two batches
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < 1203; i++) {
+			rows.add(new Object[] { 1 + i % 5, "Review " + i, Timestamp.valueOf(LocalDateTime.now()), user.getId(), book.getId() });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO reviews (rating, comment, created_at, user_id, book_id) VALUES (?, ?, ?, ?, ?)", rows);
+
+		@SuppressWarnings("rawtypes")
+		List<Map> reviews = client.get().uri("/api/reviews/book/{bookId}", book.getId())
+			.accept(MediaType.APPLICATION_NDJSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+			.returnResult(Map.class)
+			.getResponseBody()
+			.collectList()
+			.block();
+
+		assertThat(reviews).hasSize(1203);
+		assertThat(reviews.get(0)).containsEntry("comment", "Review 0").containsEntry("userName", "Reactive Reader")
+			.containsEntry("bookTitle", "Reactive Reviews");
+		assertThat(reviews.get(1202)).containsEntry("comment", "Review 1202");
+	}
+
+	@Test
+	void servesTheSameStatsAsTheMvcEndpoint() {
+		Book book = bookRepository.save(new Book("Reactive Stats", "Reactive Author", "Fiction", 9.0, null, null));
+		reviewService.addReview(userRepository.save(new User("Stats One", UUID.randomUUID() + "@example.com", null, null)),
+			book, 5, "Great");
+		reviewService.addReview(userRepository.save(new User("Stats Two", UUID.randomUUID() + "@example.com", null, null)),
+			book, 2, "Meh");
+
+		client.get().uri("/api/reviews/book/{bookId}/stats", book.getId()).exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.averageRating").isEqualTo(3.5)
+			.jsonPath("$.reviewCount").isEqualTo(2)
+			.jsonPath("$.histogram").isEqualTo(List.of(0, 1, 0, 0, 1));
+
+		// No stats row yet
+		Book unreviewed = bookRepository.save(new Book("Reactive Unreviewed", "Reactive Author", "Fiction", 9.0, null, null));
+		client.get().uri("/api/reviews/book/{bookId}/stats", unreviewed.getId()).exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.reviewCount").isEqualTo(0)
+			.jsonPath("$.histogram").isEqualTo(List.of(0, 0, 0, 0, 0));
+	}
+
+	@Test
+	void noServerIsStartedWithoutARealServletServer() {
+		assertThat(server.getPort()).isEqualTo(-1);
+	}
+}
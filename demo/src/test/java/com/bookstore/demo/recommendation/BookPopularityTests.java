@@ -0,0 +1,123 @@
+package com.bookstore.demo.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.BookActivityEvent;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+// Quantities far above the seeded orders', so the books under test lead both lists
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:popularitytest")
+class BookPopularityTests {
+
+	@Autowired
+	private BookPopularity bookPopularity;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void recentOrdersOutweighOlderOnesAndCancelledOrdersDoNotCount() {
+		User user = userRepository.save(new User("Popularity Test", UUID.randomUUID() + "@example.com", null, null));
+		Book steady = bookRepository.save(new Book("Steady Seller", "Popular Author", "Fiction", 10.0, null, null));
+		Book faded = bookRepository.save(new Book("Faded Seller", "Popular Author", "Fiction", 10.0, null, null));
+		Book cancelled = bookRepository.save(new Book("Cancelled Seller", "Popular Author", "Fiction", 10.0, null, null));
+		LocalDateTime now = LocalDateTime.now();
+		order(user, Order.OrderStatus.DELIVERED, now.minusDays(1), steady, 50000);
+		// Three bestseller half-lives ago, so worth an eighth
+		order(user, Order.OrderStatus.DELIVERED, now.minusDays(90), faded, 80000);
+		order(user, Order.OrderStatus.CANCELLED, now.minusHours(1), cancelled, 90000);
+
+		bookPopularity.rebuild();
+
+		assertThat(bookPopularity.bestsellers(2)).containsExactly(steady.getId(), faded.getId());
+		assertThat(bookPopularity.trending(100)).doesNotContain(cancelled.getId());
+	}
+
+	@Test
+	void activityReranksTheListsWithoutARebuild() {
+		User user = userRepository.save(new User("Trending Test", UUID.randomUUID() + "@example.com", null, null));
+		Book carted = bookRepository.save(new Book("Carted Book", "Trending Author", "Fiction", 10.0, null, null));
+		Book ordered = bookRepository.save(new Book("Ordered Book", "Trending Author", "Fiction", 10.0, null, null));
+		bookPopularity.rebuild();
+
+		bookPopularity.onBookActivity(new BookActivityEvent(carted.getId(), BookActivityEvent.ActivityType.ADDED_TO_CART, 30000));
+		bookPopularity.onBookActivity(new BookActivityEvent(carted.getId(), BookActivityEvent.ActivityType.REVIEWED, 5));
+		assertThat(bookPopularity.trending(1)).containsExactly(carted.getId());
+		assertThat(bookPopularity.bestsellers(100)).doesNotContain(carted.getId());
+
+		// Worth 3 per copy in trending
+		Long orderId = order(user, Order.OrderStatus.PENDING, LocalDateTime.now(), ordered, 7000);
+		OrderPlacedEvent placed = new OrderPlacedEvent(orderId, user.getId(), List.of(ordered.getId()));
+		bookPopularity.onOrdersPlaced(List.of(placed));
+		assertThat(bookPopularity.trending(2)).containsExactly(carted.getId(), ordered.getId());
+		assertThat(bookPopularity.bestsellers(1)).containsExactly(ordered.getId());
+
+		bookPopularity.rebuild();
+		bookPopularity.onOrdersPlaced(List.of(placed));
+		// The cart add was only an event, so once rebuilt from the tables the order alone leads
+		assertThat(bookPopularity.trending(2)).startsWith(ordered.getId()).doesNotContain(carted.getId());
+	}
+
+	@Test
+	void anOrderWithALowerIdThanTheRebuildSawCountsOnce() {
+		User user = userRepository.save(new User("Late Order Test", UUID.randomUUID() + "@example.com", null, null));
+		Book late = bookRepository.save(new Book("Late Seller", "Popular Author", "Fiction", 10.0, null, null));
+		Book rival = bookRepository.save(new Book("Rival Seller", "Popular Author", "Fiction", 10.0, null, null));
+		// Nine half-lives ago, so both stay below the other tests' books
+		LocalDateTime at = LocalDateTime.now().minusDays(270);
+		// Gets the lower id, but its line commits only after the rebuild read a higher one
+		Long lateOrder = orderRow(user, Order.OrderStatus.DELIVERED, at);
+		order(user, Order.OrderStatus.DELIVERED, at.plusHours(1), rival, 200000);
+		bookPopularity.rebuild();
+		item(lateOrder, late, 150000);
+
+		OrderPlacedEvent placed = new OrderPlacedEvent(lateOrder, user.getId(), List.of(late.getId()));
+		bookPopularity.onOrdersPlaced(List.of(placed));
+		assertThat(bookPopularity.bestsellers(100)).containsSubsequence(rival.getId(), late.getId());
+		// Redelivered by the outbox; counted twice, it would overtake the rival
+		bookPopularity.onOrdersPlaced(List.of(placed));
+		assertThat(bookPopularity.bestsellers(100)).containsSubsequence(rival.getId(), late.getId());
+	}
+
+	private Long order(User user, Order.OrderStatus status, LocalDateTime createdAt, Book book, int quantity) {
+		Long orderId = orderRow(user, status, createdAt);
+		item(orderId, book, quantity);
+		return orderId;
+	}
+
+	private Long orderRow(User user, Order.OrderStatus status, LocalDateTime createdAt) {
+		Timestamp at = Timestamp.valueOf(createdAt);
+		jdbcTemplate.update("INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+				user.getId(), BigDecimal.ZERO, status.name(), at, at);
+		return jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders WHERE user_id = ?", Long.class, user.getId());
+	}
+
+	private void item(Long orderId, Book book, int quantity) {
+		BigDecimal price = BigDecimal.valueOf(book.getPrice());
+		jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?)",
+				orderId, book.getId(), quantity, price, price.multiply(BigDecimal.valueOf(quantity)));
+	}
+
+}
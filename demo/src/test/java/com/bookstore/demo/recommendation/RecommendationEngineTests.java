@@ -0,0 +1,122 @@
+package com.bookstore.demo.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.event.OrderPlacedEvent;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:recommendationtest")
+class RecommendationEngineTests {
+
+	@Autowired
+	private RecommendationEngine recommendationEngine;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void coPurchasesRankByCosineSimilarityTheSameAfterARebuildOrAnIncrementalUpdate() {
+		List<Long> books = books(5);
+		Long a = books.get(0);
+		Long b = books.get(1);
+		Long c = books.get(2);
+		Long d = books.get(3);
+		// B is bought with A twice; C and D once each, tied, so the lower id comes first
+		order(newUser(), a, b, c);
+		order(newUser(), a, b);
+		order(newUser(), a, d);
+		Long reader = newUser();
+		recommendationEngine.rebuild();
+		assertThat(recommendationEngine.recommend(reader, 3)).doesNotContain(b, c, d);
+
+		Long placed = order(reader, a);
+		recommendationEngine.onOrderPlaced(new OrderPlacedEvent(placed, reader, List.of(a)));
+		List<Long> incremental = recommendationEngine.recommend(reader, 3);
+
+		recommendationEngine.rebuild();
+		List<Long> rebuilt = recommendationEngine.recommend(reader, 3);
+
+		assertThat(incremental).containsExactly(b, c, d);
+		assertThat(rebuilt).isEqualTo(incremental);
+		// Already counted by the rebuild, so delivering it again changes nothing
+		recommendationEngine.onOrderPlaced(new OrderPlacedEvent(placed, reader, List.of(a)));
+		assertThat(recommendationEngine.recommend(reader, 3)).isEqualTo(rebuilt);
+	}
+
+	@Test
+	void orderWithALowerIdThanTheRebuildSawIsStillCounted() {
+		List<Long> books = books(2);
+		Long a = books.get(0);
+		Long b = books.get(1);
+		Long reader = newUser();
+		// The reader's order got the lower id but commits after the rebuild read a higher one
+		Long late = order(reader);
+		order(newUser(), a, b);
+		recommendationEngine.rebuild();
+		jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, 1, ?, ?)",
+				late, a, BigDecimal.TEN, BigDecimal.TEN);
+
+		recommendationEngine.onOrdersPlaced(List.of(new OrderPlacedEvent(late, reader, List.of(a))));
+
+		assertThat(recommendationEngine.recommend(reader, 5)).startsWith(b).doesNotContain(a);
+	}
+
+	@Test
+	void booksTheReaderAlreadyHasAreNotRecommended() {
+		List<Long> books = books(3);
+		Long reader = newUser();
+		order(newUser(), books.get(0), books.get(1), books.get(2));
+		order(reader, books.get(0), books.get(1));
+
+		recommendationEngine.rebuild();
+
+		assertThat(recommendationEngine.recommend(reader, 5)).startsWith(books.get(2))
+			.doesNotContain(books.get(0), books.get(1));
+	}
+
+	private List<Long> books(int count) {
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(bookRepository.save(new Book("Recommended " + i, "Author", "Fiction", 10.0, null, null)).getId());
+		}
+		return ids;
+	}
+
+	private Long newUser() {
+		return userRepository.save(new User("Recommendation Test", UUID.randomUUID() + "@example.com", null, null)).getId();
+	}
+
+	private Long order(Long userId, Long... bookIds) {
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		jdbcTemplate.update("INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, 'DELIVERED', ?, ?)",
+				userId, BigDecimal.TEN, now, now);
+		Long orderId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders WHERE user_id = ?", Long.class, userId);
+		for (Long bookId : bookIds) {
+			jdbcTemplate.update("INSERT INTO order_items (order_id, book_id, quantity, unit_price, total_price) VALUES (?, ?, 1, ?, ?)",
+					orderId, bookId, BigDecimal.TEN, BigDecimal.TEN);
+		}
+		return orderId;
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.bookstore.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class EntityCacheTests {
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Value("${spring.datasource.url}")
+	private String datasourceUrl;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+	}
+
+	@Test
+	void repeatedLookupsByIdDoNotReachTheDatabase() {
+		Book book = bookRepository.save(new Book("Cached Book", "Author", "Fiction", 12.50, null, null));
+		Long userId = userRepository.save(new User("Cached User", UUID.randomUUID() + "@example.com", null, null)).getId();
+
+		bookRepository.findById(book.getId());
+		userRepository.findById(userId);
+		long statements = statistics.getPrepareStatementCount();
+
+		assertThat(bookRepository.findById(book.getId())).get().extracting(Book::getTitle).isEqualTo("Cached Book");
+		assertThat(userRepository.findById(userId)).isPresent();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+	}
+
+	@Test
+	void writesThroughTheRepositoryAreVisibleToLaterReads() {
+		Book book = bookRepository.save(new Book("Old Title", "Author", "Fiction", 12.50, null, null));
+		bookRepository.findById(book.getId());
+
+		book.setTitle("New Title");
+		bookRepository.save(book);
+		assertThat(bookRepository.findById(book.getId())).get().extracting(Book::getTitle).isEqualTo("New Title");
+
+		bookRepository.deleteById(book.getId());
+		assertThat(bookRepository.findById(book.getId())).isEmpty();
+	}
+
+	@Test
+	void emailLookupIsCachedUntilUsersChange() {
+		String email = UUID.randomUUID() + "@example.com";
+		User user = userRepository.save(new User("Query Cached", email, null, null));
+
+		userRepository.findByEmail(email);
+		long statements = statistics.getPrepareStatementCount();
+		assertThat(userRepository.findByEmail(email)).isPresent();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+
+		user.setName("Renamed");
+		userRepository.save(user);
+		assertThat(userRepository.findByEmail(email)).get().extracting(User::getName).isEqualTo("Renamed");
+	}
+
+	@Test
+	void regionsBelongToThisContextsDatabase() {
+		JCacheRegionFactory regionFactory = (JCacheRegionFactory) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+			.getCache().getRegionFactory();
+
+		// Not the provider's default manager, which every context in the JVM would share
+		assertThat(regionFactory.getCacheManager().getURI()).hasToString(datasourceUrl);
+		assertThat(regionFactory.getCacheManager().getCache("books")).isNotNull();
+	}
+
+}
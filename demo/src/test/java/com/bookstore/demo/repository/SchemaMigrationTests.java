@@ -0,0 +1,75 @@
+package com.bookstore.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+// The persistent profile's Flyway schema, in memory: the context only starts if Hibernate validates the entities against it
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:migrationtest",
+		"spring.jpa.show-sql=false" })
+@ActiveProfiles("persistent")
+class SchemaMigrationTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private Flyway flyway;
+
+	@Test
+	void appliesEveryMigration() {
+		assertThat(flyway.info().pending()).isEmpty();
+		assertThat(flyway.info().current()).isNotNull();
+	}
+
+	@Test
+	void finderLookupsUseTheNamedIndexes() {
+		assertThat(plan("SELECT * FROM cart_items WHERE user_id = 1")).contains("IDX_CART_ITEMS_USER");
+		assertThat(plan("SELECT * FROM orders WHERE user_id = 1")).contains("IDX_ORDERS_USER");
+		assertThat(plan("SELECT * FROM order_items WHERE order_id = 1")).contains("IDX_ORDER_ITEMS_ORDER");
+		assertThat(plan("SELECT * FROM reviews WHERE book_id = 1")).contains("IDX_REVIEWS_BOOK");
+		assertThat(plan("SELECT * FROM reviews WHERE user_id = 1")).contains("IDX_REVIEWS_USER");
+	}
+
+	@Test
+	void reviewBatchesSeekAndReadInIndexOrder() {
+		assertThat(plan("SELECT * FROM reviews WHERE book_id = 1 AND id > 100 ORDER BY book_id, id FETCH FIRST 500 ROWS ONLY"))
+			.contains("IDX_REVIEWS_BOOK_ID")
+			.contains("index sorted */");
+	}
+
+	@Test
+	void catalogImportLooksBooksUpByIsbn() {
+		assertThat(plan("SELECT id, isbn FROM books WHERE isbn IN ('9780306406157', '9780131103627')")).contains("UK_BOOKS_ISBN");
+	}
+
+	@Test
+	void archivedHistoryPagesSeekByUser() {
+		assertThat(plan("SELECT id FROM order_archive WHERE user_id = 1 ORDER BY created_at DESC, id DESC FETCH FIRST 21 ROWS ONLY"))
+			.contains("IDX_ORDER_ARCHIVE_USER");
+	}
+
+	@Test
+	void noColumnIsIndexedTwice() {
+		List<String> duplicates = jdbcTemplate.queryForList(
+			"SELECT table_name || '.' || cols FROM (" +
+			"  SELECT i.table_name, i.index_name, LISTAGG(c.column_name, ',') WITHIN GROUP (ORDER BY c.ordinal_position) AS cols" +
+			"  FROM information_schema.indexes i JOIN information_schema.index_columns c" +
+			"    ON c.table_schema = i.table_schema AND c.table_name = i.table_name AND c.index_name = i.index_name" +
+			"  WHERE i.table_schema = 'PUBLIC' GROUP BY i.table_name, i.index_name)" +
+			" GROUP BY table_name, cols HAVING COUNT(*) > 1", String.class);
+		assertThat(duplicates).isEmpty();
+	}
+
+	private String plan(String sql) {
+		return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+	}
+}
@@ -0,0 +1,147 @@
+package com.bookstore.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.search.BookFacetIndex.FacetQuery;
+import com.bookstore.demo.search.BookFacetIndex.FacetResult;
+
+class BookFacetIndexTests {
+
+	private BookFacetIndex facets;
+	private BookSearchIndex searchIndex;
+
+	@BeforeEach
+	void setUp() {
+		facets = new BookFacetIndex();
+		searchIndex = new BookSearchIndex();
+		ReflectionTestUtils.setField(facets, "bookSearchIndex", searchIndex);
+		add(book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 15.99));
+		add(book(2L, "The Silmarillion", "J.R.R. Tolkien", " fantasy ", 24.00));
+		add(book(3L, "Harry Potter", "J.K. Rowling", "Fantasy", 9.99));
+		add(book(4L, "The Great Gatsby", "F. Scott Fitzgerald", "Fiction", 12.99));
+		add(book(5L, "Tender Is the Night", "F. Scott Fitzgerald", "Fiction", 120.00));
+		add(book(6L, "Untitled", "Anonymous", null, null));
+	}
+
+	@Test
+	void countsEveryFacetWithoutFilters() {
+		FacetResult result = facets.browse(new FacetQuery());
+
+		assertThat(result.getTotal()).isEqualTo(6);
+		// Free-text categories are one value whatever their case and spacing
+		assertThat(counts(result, BookFacetIndex.CATEGORY)).containsExactly(tuple("Fantasy", 3), tuple("Fiction", 2));
+		assertThat(counts(result, BookFacetIndex.AUTHOR)).containsExactly(tuple("J.R.R. Tolkien", 2),
+			tuple("F. Scott Fitzgerald", 2), tuple("J.K. Rowling", 1), tuple("Anonymous", 1));
+		assertThat(counts(result, BookFacetIndex.PRICE)).containsExactly(tuple("0-10", 1), tuple("10-20", 2),
+			tuple("20-30", 1), tuple("30-50", 0), tuple("50-100", 0), tuple("100+", 1));
+	}
+
+	@Test
+	void eachFacetIsCountedUnderTheOtherFacetsFilters() {
+		FacetQuery query = new FacetQuery();
+		query.select(BookFacetIndex.CATEGORY, List.of("FANTASY"));
+		query.select(BookFacetIndex.PRICE, List.of("10-20", "20-30"));
+
+		FacetResult result = facets.browse(query);
+
+		assertThat(result.getTotal()).isEqualTo(2);
+		assertThat(result.getBookIds()).containsExactly(1L, 2L);
+		// Categories under the price filter only, so the alternatives to Fantasy still show
+		assertThat(counts(result, BookFacetIndex.CATEGORY)).containsExactly(tuple("Fantasy", 2), tuple("Fiction", 1));
+		assertThat(counts(result, BookFacetIndex.AUTHOR)).containsExactly(tuple("J.R.R. Tolkien", 2));
+		assertThat(counts(result, BookFacetIndex.PRICE)).startsWith(tuple("0-10", 1), tuple("10-20", 1), tuple("20-30", 1));
+	}
+
+	@Test
+	void combinesSearchTextWithFacets() {
+		FacetQuery query = new FacetQuery();
+		query.setText("the");
+		query.select(BookFacetIndex.AUTHOR, List.of("F. Scott Fitzgerald"));
+
+		FacetResult result = facets.browse(query);
+
+		assertThat(result.getBookIds()).containsExactly(4L, 5L);
+		assertThat(counts(result, BookFacetIndex.AUTHOR)).containsExactly(tuple("J.R.R. Tolkien", 2), tuple("F. Scott Fitzgerald", 2));
+	}
+
+	@Test
+	void followsUpdatesAndDeletes() {
+		add(book(3L, "Harry Potter", "J.K. Rowling", "Children", 55.00));
+		facets.remove(1L);
+
+		FacetResult result = facets.browse(new FacetQuery());
+
+		assertThat(result.getTotal()).isEqualTo(5);
+		assertThat(counts(result, BookFacetIndex.CATEGORY)).containsExactly(tuple("Fiction", 2), tuple("Fantasy", 1), tuple("Children", 1));
+		assertThat(counts(result, BookFacetIndex.AUTHOR)).contains(tuple("J.R.R. Tolkien", 1));
+		assertThat(counts(result, BookFacetIndex.PRICE)).containsExactly(tuple("0-10", 0), tuple("10-20", 1),
+			tuple("20-30", 1), tuple("30-50", 0), tuple("50-100", 1), tuple("100+", 1));
+	}
+
+	@Test
+	void pagesThroughMatchesByBookId() {
+		FacetQuery query = new FacetQuery();
+		query.setSize(2);
+		query.setAfterBookId(2L);
+
+		FacetResult page = facets.browse(query);
+		assertThat(page.getBookIds()).containsExactly(3L, 4L);
+		assertThat(page.hasMore()).isTrue();
+
+		facets.remove(5L);
+		query.setAfterBookId(4L);
+		page = facets.browse(query);
+		assertThat(page.getBookIds()).containsExactly(6L);
+		assertThat(page.hasMore()).isFalse();
+	}
+
+	@Test
+	void pagesEveryBookOnceWhenBooksCommitOutOfIdOrder() {
+		// Created concurrently, the highest id committing first
+		add(book(9L, "Latest Id", "Anonymous", "Fiction", 5.00));
+		add(book(7L, "Earlier Id", "Anonymous", "Fiction", 5.00));
+		add(book(8L, "Later Id", "Anonymous", "Fiction", 5.00));
+		FacetQuery query = new FacetQuery();
+		query.setSize(1);
+
+		List<Long> seen = new ArrayList<>();
+		FacetResult page;
+		do {
+			page = facets.browse(query);
+			seen.addAll(page.getBookIds());
+			query.setAfterBookId(page.getBookIds().get(page.getBookIds().size() - 1));
+		} while (page.hasMore() && seen.size() < 20);
+
+		assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 9L, 7L, 8L);
+
+		// A cursor on a book deleted since still resumes after it
+		facets.remove(9L);
+		query.setAfterBookId(9L);
+		assertThat(facets.browse(query).getBookIds()).containsExactly(7L);
+	}
+
+	private void add(Book book) {
+		facets.index(book);
+		searchIndex.index(book);
+	}
+
+	private static List<Tuple> counts(FacetResult result, String facet) {
+		return result.getFacets().get(facet).stream().map(count -> tuple(count.getValue(), count.getCount())).toList();
+	}
+
+	static Book book(Long id, String title, String author, String category, Double price) {
+		Book book = new Book(title, author, category, price, null, null);
+		book.setId(id);
+		return book;
+	}
+}
@@ -0,0 +1,109 @@
+package com.bookstore.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.bookstore.demo.entity.Book;
+
+/**
+ * Latency check for the search index on a synthetic catalog. Skipped by default, run with
+ * {@code ./mvnw test -Dtest=BookSearchIndexBenchmarkTests -Dbenchmark=true [-Dbenchmark.books=1000000]}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BookSearchIndexBenchmarkTests {
+
+	private static final int VOCABULARY = 20_000;
+	private static final int AUTHORS = 50_000;
+	private static final String[] CATEGORIES = { "Fiction", "Fantasy", "Romance", "Thriller", "History",
+			"Science", "Biography", "Poetry", "Travel", "Cooking", "Philosophy", "Dystopian" };
+
+	@Test
+	void searchLatencyOnLargeCatalog() {
+		int books = Integer.getInteger("benchmark.books", 1_000_000);
+		int queries = Integer.getInteger("benchmark.queries", 20_000);
+		SplittableRandom random = new SplittableRandom(42);
+		String[] words = words(VOCABULARY, random);
+
+		BookSearchIndex index = new BookSearchIndex();
+		long start = System.nanoTime();
+		for (long id = 1; id <= books; id++) {
+			Book book = new Book(title(words, random), author(words, zipf(random, AUTHORS)),
+					CATEGORIES[random.nextInt(CATEGORIES.length)], 9.99, null, null);
+			book.setId(id);
+			index.index(book);
+		}
+		System.out.printf("Indexed %,d books in %,d ms%n", books, (System.nanoTime() - start) / 1_000_000);
+
+		String[] workload = new String[queries];
+		for (int i = 0; i < queries; i++) {
+			String first = words[zipf(random, VOCABULARY)];
+			switch (i % 4) {
+				case 0 -> workload[i] = first;
+				case 1 -> workload[i] = first.substring(0, Math.max(2, first.length() / 2));
+				case 2 -> workload[i] = first + " " + words[zipf(random, VOCABULARY)];
+				default -> workload[i] = first + " " + CATEGORIES[random.nextInt(CATEGORIES.length)].substring(0, 3);
+			}
+		}
+
+		// Warm up, then measure
+		for (int round = 0; round < 3; round++) {
+			for (String query : workload) {
+				index.search(query, 50);
+			}
+		}
+		long[] latencies = new long[queries];
+		for (int i = 0; i < queries; i++) {
+			long t = System.nanoTime();
+			index.search(workload[i], 50);
+			latencies[i] = System.nanoTime() - t;
+		}
+		Arrays.sort(latencies);
+		double p50 = latencies[queries / 2] / 1_000_000.0;
+		double p99 = latencies[(int) (queries * 0.99)] / 1_000_000.0;
+		double max = latencies[queries - 1] / 1_000_000.0;
+		System.out.printf("Search over %,d books: p50=%.3f ms p99=%.3f ms max=%.3f ms%n", books, p50, p99, max);
+
+		assertThat(p99).isLessThan(5.0);
+	}
+
+	private static String title(String[] words, SplittableRandom random) {
+		int length = 2 + random.nextInt(5);
+		StringBuilder title = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				title.append(' ');
+			}
+			title.append(words[zipf(random, words.length)]);
+		}
+		return title.toString();
+	}
+
+	// First and last name drawn from the tail of the vocabulary so authors stay distinct from title words
+	private static String author(String[] words, int rank) {
+		return words[VOCABULARY - 1 - rank % 1000] + " " + words[VOCABULARY / 2 + rank / 1000];
+	}
+
+	// Cheap Zipf-like skew: low ranks are drawn far more often than high ones
+	private static int zipf(SplittableRandom random, int n) {
+		return (int) Math.min(n - 1, Math.floor(Math.pow(n + 1, random.nextDouble())) - 1);
+	}
+
+	private static String[] words(int count, SplittableRandom random) {
+		String letters = "abcdefghijklmnopqrstuvwxyz";
+		String[] words = new String[count];
+		for (int i = 0; i < count; i++) {
+			int length = 3 + random.nextInt(7);
+			StringBuilder word = new StringBuilder();
+			for (int j = 0; j < length; j++) {
+				word.append(letters.charAt(random.nextInt(letters.length())));
+			}
+			words[i] = word.toString();
+		}
+		return words;
+	}
+}
@@ -0,0 +1,84 @@
+package com.bookstore.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.demo.entity.Book;
+
+class BookSearchIndexTests {
+
+	private BookSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new BookSearchIndex();
+		index.index(book(1L, "The Hobbit", "J.R.R. Tolkien", "Fantasy"));
+		index.index(book(2L, "Harry Potter and the Sorcerer's Stone", "J.K. Rowling", "Fantasy"));
+		index.index(book(3L, "The Great Gatsby", "F. Scott Fitzgerald", "Fiction"));
+		index.index(book(4L, "Fantasy Worlds", "Harold Potts", "Reference"));
+	}
+
+	@Test
+	void requiresEveryTokenToMatch() {
+		assertThat(index.search("harry potter", 10)).containsExactly(2L);
+		assertThat(index.search("hobbit gatsby", 10)).isEmpty();
+	}
+
+	@Test
+	void matchesPrefixesAndIgnoresCaseAndPunctuation() {
+		assertThat(index.search("SORCERER", 10)).containsExactly(2L);
+		assertThat(index.search("tolk", 10)).containsExactly(1L);
+	}
+
+	@Test
+	void ranksTitleAndExactMatchesFirst() {
+		// "fantasy" is in book 4's title but only in the category of books 1 and 2
+		assertThat(index.search("fantasy", 10)).containsExactly(4L, 1L, 2L);
+		assertThat(index.search("pott", 10)).containsExactly(2L, 4L);
+
+		index.index(book(5L, "Stonehenge", "Anon", "History"));
+		assertThat(index.search("stone", 10)).containsExactly(2L, 5L);
+	}
+
+	@Test
+	void honoursLimit() {
+		assertThat(index.search("the", 1)).containsExactly(1L);
+	}
+
+	@Test
+	void shortPrefixMatchesTermsPastTheExpansionCap() {
+		// 100 distinct terms under "zeta", more than a prefix is scored by one by one
+		for (long id = 100; id < 200; id++) {
+			index.index(book(id, String.format("Zeta%03d", id), "Anon", id == 199 ? "Reference" : "Poetry"));
+		}
+
+		assertThat(index.search("zeta", 200)).hasSize(100).contains(199L);
+		assertThat(index.matchAll("ze")).hasSize(100);
+		// The last term in key order, reached by intersecting with the more selective token
+		assertThat(index.search("zeta reference", 10)).containsExactly(199L);
+	}
+
+	@Test
+	void reindexesUpdatesAndDropsDeletes() {
+		index.index(book(3L, "Tender Is the Night", "F. Scott Fitzgerald", "Fiction"));
+		assertThat(index.search("gatsby", 10)).isEmpty();
+		assertThat(index.search("tender", 10)).containsExactly(3L);
+
+		// A term the book keeps takes the fields of the new version: "fantasy" drops from title to category
+		index.index(book(4L, "Worlds", "Harold Potts", "Fantasy"));
+		assertThat(index.search("fantasy", 10)).containsExactly(1L, 2L, 4L);
+		assertThat(index.search("worlds", 10)).containsExactly(4L);
+
+		index.remove(1L);
+		assertThat(index.search("hobbit", 10)).isEmpty();
+		assertThat(index.size()).isEqualTo(3);
+	}
+
+	static Book book(Long id, String title, String author, String category) {
+		Book book = new Book(title, author, category, 10.0, null, null);
+		book.setId(id);
+		return book;
+	}
+}
@@ -0,0 +1,149 @@
+package com.bookstore.demo.search;
+
+import static com.bookstore.demo.search.BookFacetIndexTests.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.demo.event.OrderPlacedEvent;
+
+class BookSuggestIndexTests {
+
+	private BookSuggestIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new BookSuggestIndex();
+		index.index(book(1L, "Harry Potter and the Philosopher's Stone", "J.K. Rowling", null, null));
+		index.index(book(2L, "Harry Potter and the Chamber of Secrets", "J.K. Rowling", null, null));
+		index.index(book(3L, "The Hobbit", "J.R.R. Tolkien", null, null));
+		index.index(book(4L, "Harriet the Spy", "Louise Fitzhugh", null, null));
+		index.index(book(5L, "Hard Times", "Charles Dickens", null, null));
+	}
+
+	@Test
+	void completesFromAnyWordMostPopularFirst() {
+		orders(4L, 4L, 4L);
+		orders(2L);
+
+		assertThat(suggestions("har")).containsExactly(tuple("Harriet the Spy", "title"),
+			tuple("Harry Potter and the Chamber of Secrets", "title"),
+			tuple("Harry Potter and the Philosopher's Stone", "title"), tuple("Hard Times", "title"));
+		// Later words start keys too, and authors are suggested alongside titles
+		assertThat(suggestions("tolk")).containsExactly(tuple("J.R.R. Tolkien", "author"));
+		assertThat(suggestions("ROWL")).containsExactly(tuple("J.K. Rowling", "author"));
+		assertThat(suggestions("potter and the c")).containsExactly(tuple("Harry Potter and the Chamber of Secrets", "title"));
+		assertThat(suggestions("harry ")).hasSize(2);
+		assertThat(suggestions("harr")).hasSize(3);
+		assertThat(index.suggest("h", 2)).hasSize(2);
+		assertThat(suggestions("xyz")).isEmpty();
+		assertThat(suggestions("  ")).isEmpty();
+	}
+
+	@Test
+	void authorsScoreEveryBookTheyWrote() {
+		index.index(book(6L, "Philosophy of Rowing", "Rowan Oak", null, null));
+
+		// Two books for Rowling, one for Oak
+		assertThat(suggestions("row")).startsWith(tuple("J.K. Rowling", "author"));
+		orders(6L, 6L);
+		// A book's orders count for its author as much as for its title
+		assertThat(suggestions("row").subList(0, 2)).containsExactlyInAnyOrder(tuple("Philosophy of Rowing", "title"),
+			tuple("Rowan Oak", "author"));
+		assertThat(suggestions("row").get(2)).isEqualTo(tuple("J.K. Rowling", "author"));
+	}
+
+	@Test
+	void followsRenamesAndDeletes() {
+		index.index(book(3L, "The Lord of the Rings", "J.R.R. Tolkien", null, null));
+		assertThat(suggestions("hob")).isEmpty();
+		assertThat(suggestions("lord")).containsExactly(tuple("The Lord of the Rings", "title"));
+
+		index.remove(1L);
+		assertThat(suggestions("rowling")).containsExactly(tuple("J.K. Rowling", "author"));
+		index.remove(2L);
+		assertThat(suggestions("rowling")).isEmpty();
+
+		// A new suggestion may reuse a removed one's slot in the trie
+		index.index(book(7L, "Rowling Hills", "Rowling", null, null));
+		assertThat(suggestions("rowling")).containsExactlyInAnyOrder(tuple("Rowling Hills", "title"), tuple("Rowling", "author"));
+	}
+
+	@Test
+	void matchesABruteForceRankingUnderRandomChanges() {
+		String[] words = { "red", "read", "reader", "rest", "river", "rover", "ro", "a", "the", "rivet" };
+		Random random = new Random(42);
+		Map<Long, String> titles = new HashMap<>();
+		Map<Long, Integer> orders = new HashMap<>();
+		index = new BookSuggestIndex();
+
+		for (int step = 0; step < 3000; step++) {
+			long bookId = 1 + random.nextInt(200);
+			int action = random.nextInt(10);
+			if (action < 6) {
+				String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+				titles.put(bookId, title);
+				index.index(book(bookId, title, null, null, null));
+			} else if (action < 8) {
+				titles.remove(bookId);
+				orders.remove(bookId);
+				index.remove(bookId);
+			} else if (titles.containsKey(bookId)) {
+				orders.merge(bookId, 1, Integer::sum);
+				index.onOrderPlaced(new OrderPlacedEvent(null, 1L, List.of(bookId)));
+			}
+
+			if (step % 100 == 99) {
+				Map<String, Integer> scoreByTitle = new HashMap<>();
+				titles.forEach((id, title) -> scoreByTitle.merge(title, 1 + orders.getOrDefault(id, 0), Integer::sum));
+				for (String prefix : List.of("r", "re", "rea", "ri", "riv", "river r", "ro", "t", "x")) {
+					// Ties may come back in any order, so rankings are compared by their scores
+					List<Integer> expected = scoreByTitle.entrySet().stream()
+						.filter(entry -> BookSuggestIndex.keys(entry.getKey()).stream().anyMatch(key -> key.startsWith(prefix)))
+						.map(Map.Entry::getValue)
+						.sorted(Comparator.reverseOrder())
+						.limit(5)
+						.toList();
+					assertThat(index.suggest(prefix, 5)).extracting(suggestion -> scoreByTitle.get(suggestion.getText()))
+						.as(prefix).isEqualTo(expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	void eachOrderCountsOnceWhateverOrderItsIdArrivesIn() {
+		orders(4L, 4L, 4L);
+		orders(2L);
+		index.onOrderPlaced(new OrderPlacedEvent(7L, 1L, List.of(5L)));
+		// A lower id delivered later, then redeliveries
+		index.onOrderPlaced(new OrderPlacedEvent(6L, 1L, List.of(5L)));
+		for (int i = 0; i < 3; i++) {
+			index.onOrderPlaced(new OrderPlacedEvent(7L, 1L, List.of(5L)));
+		}
+
+		// Two orders put Hard Times between the books with three and one
+		assertThat(suggestions("har")).containsExactly(tuple("Harriet the Spy", "title"), tuple("Hard Times", "title"),
+			tuple("Harry Potter and the Chamber of Secrets", "title"),
+			tuple("Harry Potter and the Philosopher's Stone", "title"));
+	}
+
+	private void orders(Long... bookIds) {
+		for (Long bookId : bookIds) {
+			index.onOrderPlaced(new OrderPlacedEvent(null, 1L, List.of(bookId)));
+		}
+	}
+
+	private List<Tuple> suggestions(String query) {
+		return index.suggest(query, 10).stream().map(suggestion -> tuple(suggestion.getText(), suggestion.getType())).toList();
+	}
+}
@@ -0,0 +1,104 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+/**
+ * Checkout throughput with many users checking out concurrently. Skipped by default, run with
+ * {@code ./mvnw test -Dtest=CheckoutServiceBenchmarkTests -Dbenchmark=true [-Dbenchmark.users=5000] [-Dbenchmark.threads=8]}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CheckoutServiceBenchmarkTests {
+
+	private static final int ITEMS_PER_CART = 5;
+
+	@Autowired
+	private CheckoutService checkoutService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void checkoutThroughputUnderConcurrentLoad() throws Exception {
+		int users = Integer.getInteger("benchmark.users", 5_000);
+		int threads = Integer.getInteger("benchmark.threads", 8);
+		// Books of their own, without stock levels, so the sample books' stock cannot run out mid-run
+		List<Book> books = new ArrayList<>();
+		for (int b = 0; b < 50; b++) {
+			books.add(new Book("Benchmark Book " + b, "Author", "Fiction", 9.99 + b, null, null));
+		}
+		books = bookRepository.saveAll(books);
+
+		List<User> shoppers = new ArrayList<>(users);
+		for (int u = 0; u < users; u++) {
+			shoppers.add(new User("Shopper " + u, "shopper" + u + "@bench.example.com", null, null));
+		}
+		shoppers = userRepository.saveAll(shoppers);
+		for (int u = 0; u < users; u++) {
+			for (int i = 0; i < ITEMS_PER_CART; i++) {
+				cartStore.add(shoppers.get(u).getId(), books.get((u + i) % books.size()), 1 + i % 3);
+			}
+		}
+		cartStore.flushAll();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long[] latencies = new long[users];
+		List<Future<?>> futures = new ArrayList<>(users);
+		long start = System.nanoTime();
+		for (int u = 0; u < users; u++) {
+			User shopper = shoppers.get(u);
+			int slot = u;
+			futures.add(executor.submit(() -> {
+				long begin = System.nanoTime();
+				checkoutService.checkout(shopper, "1 Benchmark Way", "cod");
+				latencies[slot] = System.nanoTime() - begin;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+
+		Arrays.sort(latencies);
+		System.out.printf("%,d checkouts of %d items on %d threads in %,d ms: %,.0f orders/s, p50 %.2f ms, p99 %.2f ms%n",
+				users, ITEMS_PER_CART, threads, elapsed / 1_000_000, users / (elapsed / 1e9),
+				latencies[users / 2] / 1e6, latencies[(int) (users * 0.99)] / 1e6);
+
+		cartStore.flushAll();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items", Long.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN users u ON u.id = o.user_id "
+						+ "WHERE u.email LIKE '%@bench.example.com'", Long.class))
+			.isEqualTo((long) users * ITEMS_PER_CART);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+@SpringBootTest
+class CheckoutServiceTests {
+
+	@Autowired
+	private CheckoutService checkoutService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void checkoutWritesOrderItemsAndClearsCart() {
+		User user = userWithCart(0.1, 3, 0.2, 1, 19.99, 7);
+
+		Order order = checkoutService.checkout(user, "1 Test Lane", "cod");
+
+		// 0.30 + 0.20 + 139.93, which double arithmetic gets wrong
+		assertThat(order.getTotalAmount()).isEqualByComparingTo(new BigDecimal("140.43"));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items WHERE order_id = ?", Long.class,
+				order.getId())).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject("SELECT SUM(total_price) FROM order_items WHERE order_id = ?",
+				BigDecimal.class, order.getId())).isEqualByComparingTo(order.getTotalAmount());
+		assertThat(cartStore.getItems(user.getId())).isEmpty();
+	}
+
+	@Test
+	void emptyCartIsRejected() {
+		User user = userWithCart();
+
+		assertThatThrownBy(() -> checkoutService.checkout(user, "1 Test Lane", "cod"))
+			.isInstanceOf(CheckoutService.CheckoutException.class);
+	}
+
+	@Test
+	void bookWithoutPriceIsRejectedAndNothingIsPlaced() {
+		User user = userWithCart(9.5, 1);
+		Book priceless = bookRepository.save(new Book("Priceless Book", "Author", "Fiction", null, null, null));
+		cartStore.add(user.getId(), priceless, 1);
+
+		assertThatThrownBy(() -> checkoutService.checkout(user, "1 Test Lane", "cod"))
+			.isInstanceOf(CheckoutService.CheckoutException.class)
+			.hasMessageContaining("has no price");
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Long.class,
+				user.getId())).isZero();
+		// The claim on the cart is released with the rollback, so the cart can be fixed and checked out again
+		assertThat(cartStore.getItems(user.getId())).hasSize(2);
+	}
+
+	@Test
+	void concurrentCheckoutsOfOneCartPlaceOneOrder() throws Exception {
+		User user = userWithCart(5.0, 1, 7.5, 2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Callable<Order>> attempts = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				attempts.add(() -> checkoutService.checkout(user, "1 Test Lane", "cod"));
+			}
+			int placed = 0;
+			for (Future<Order> attempt : executor.invokeAll(attempts)) {
+				try {
+					attempt.get();
+					placed++;
+				}
+				catch (Exception e) {
+					// Losers find the cart already claimed or, once the winner committed, empty
+				}
+			}
+			assertThat(placed).isEqualTo(1);
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Long.class,
+				user.getId())).isEqualTo(1);
+	}
+
+	// Alternating price, quantity pairs
+	private User userWithCart(double... pricesAndQuantities) {
+		User user = userRepository.save(new User("Checkout Test", UUID.randomUUID() + "@example.com", null, null));
+		for (int i = 0; i < pricesAndQuantities.length; i += 2) {
+			Book book = bookRepository.save(new Book("Checkout Book " + i, "Author", "Fiction", pricesAndQuantities[i],
+					null, null));
+			cartStore.add(user.getId(), book, (int) pricesAndQuantities[i + 1]);
+		}
+		return user;
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.OrderRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+@SpringBootTest
+class InventoryServiceTests {
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final AtomicLong orderIds = new AtomicLong(1_000_000);
+
+	@Test
+	void hundredsOfBuyersOfOneTitleNeverOversell() throws Exception {
+		int stock = 300;
+		int buyers = 400;
+		Long bookId = bookWithStock(stock);
+		LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(5);
+
+		ExecutorService executor = Executors.newFixedThreadPool(buyers);
+		CountDownLatch go = new CountDownLatch(1);
+		List<Future<Integer>> attempts = new ArrayList<>();
+		try {
+			for (int i = 0; i < buyers; i++) {
+				int quantity = 1 + i % 3;
+				Callable<Integer> buyer = () -> {
+					go.await();
+					return inventoryService.reserve(orderIds.incrementAndGet(), bookId, quantity, expiresAt) ? quantity : 0;
+				};
+				attempts.add(executor.submit(buyer));
+			}
+			go.countDown();
+			int sold = 0;
+			for (Future<Integer> attempt : attempts) {
+				sold += attempt.get();
+			}
+
+			InventoryService.StockLevel level = inventoryService.getStock(bookId);
+			assertThat(sold).isLessThanOrEqualTo(stock);
+			assertThat(level.getReserved()).isEqualTo(sold);
+			assertThat(level.getAvailable()).isEqualTo(stock - sold);
+			// Demand exceeds supply several times over, so only a remainder smaller than the largest order may be left
+			assertThat(level.getAvailable()).isLessThan(3);
+			assertThat(jdbcTemplate.queryForObject("SELECT MIN(available) FROM inventory_buckets WHERE book_id = ?",
+					Integer.class, bookId)).isGreaterThanOrEqualTo(0);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void untrackedBooksAreNotLimited() {
+		Book book = bookRepository.save(new Book("Untracked", "Author", "Fiction", 10.0, null, null));
+
+		assertThat(inventoryService.reserve(orderIds.incrementAndGet(), book.getId(), 1_000, LocalDateTime.now())).isTrue();
+		assertThat(inventoryService.getStock(book.getId()).isTracked()).isFalse();
+	}
+
+	@Test
+	void reservationLargerThanAnyBucketDrainsSeveral() {
+		Long bookId = bookWithStock(20);
+
+		assertThat(inventoryService.reserve(orderIds.incrementAndGet(), bookId, 18, LocalDateTime.now().plusMinutes(5))).isTrue();
+		assertThat(inventoryService.reserve(orderIds.incrementAndGet(), bookId, 3, LocalDateTime.now().plusMinutes(5))).isFalse();
+		assertThat(inventoryService.getStock(bookId).getAvailable()).isEqualTo(2);
+	}
+
+	@Test
+	void confirmedOrdersKeepStockAndExpiredOnesReleaseIt() {
+		Long bookId = bookWithStock(10);
+		Order confirmed = pendingOrder();
+		Order abandoned = pendingOrder();
+		inventoryService.reserve(confirmed.getId(), bookId, 4, LocalDateTime.now().minusMinutes(1));
+		inventoryService.reserve(abandoned.getId(), bookId, 5, LocalDateTime.now().minusMinutes(1));
+
+		assertThat(inventoryService.confirmOrder(confirmed.getId())).isTrue();
+		inventoryService.releaseExpired();
+
+		assertThat(orderRepository.findById(confirmed.getId()).get().getStatus()).isEqualTo(Order.OrderStatus.CONFIRMED);
+		assertThat(orderRepository.findById(abandoned.getId()).get().getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+		assertThat(inventoryService.getStock(bookId).getAvailable()).isEqualTo(6);
+		assertThat(inventoryService.getStock(bookId).getReserved()).isZero();
+		assertThat(inventoryService.confirmOrder(abandoned.getId())).isFalse();
+	}
+
+	@Test
+	void ordersAwaitingPaymentDoNotExpireUntilThePaymentFails() {
+		Long bookId = bookWithStock(10);
+		Order awaiting = pendingOrder();
+		Order failed = pendingOrder();
+		inventoryService.reserve(awaiting.getId(), bookId, 2, LocalDateTime.now().minusMinutes(1));
+		inventoryService.reserve(failed.getId(), bookId, 3, LocalDateTime.now().minusMinutes(1));
+		// Still queued for the payment consumer, and parked after its last failed attempt
+		paymentEvent(awaiting.getId(), LocalDateTime.now().plusMinutes(5));
+		paymentEvent(failed.getId(), null);
+
+		inventoryService.releaseExpired();
+
+		assertThat(orderRepository.findById(awaiting.getId()).get().getStatus()).isEqualTo(Order.OrderStatus.PENDING);
+		assertThat(orderRepository.findById(failed.getId()).get().getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+		assertThat(inventoryService.confirmOrder(awaiting.getId())).isTrue();
+		jdbcTemplate.update("DELETE FROM order_outbox WHERE order_id IN (?, ?)", awaiting.getId(), failed.getId());
+	}
+
+	private void paymentEvent(Long orderId, LocalDateTime nextAttemptAt) {
+		jdbcTemplate.update("INSERT INTO order_outbox (consumer, order_id, payload, attempts, created_at, next_attempt_at) "
+				+ "VALUES ('payment', ?, '{}', 1, ?, ?)", orderId, Timestamp.valueOf(LocalDateTime.now()),
+				nextAttemptAt == null ? null : Timestamp.valueOf(nextAttemptAt));
+	}
+
+	private Long bookWithStock(int stock) {
+		Book book = bookRepository.save(new Book("Flash Sale", "Author", "Fiction", 10.0, null, null));
+		inventoryService.setStock(book.getId(), stock);
+		return book.getId();
+	}
+
+	private Order pendingOrder() {
+		User user = userRepository.save(new User("Inventory Test", UUID.randomUUID() + "@example.com", null, null));
+		Order order = new Order();
+		order.setUser(user);
+		return orderRepository.save(order);
+	}
+
+}
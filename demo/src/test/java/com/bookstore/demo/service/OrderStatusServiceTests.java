@@ -0,0 +1,116 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.dto.OrderTransitionReport;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.UserRepository;
+
+@SpringBootTest(properties = { "spring.datasource.url=jdbc:h2:mem:orderstatustest",
+		"bookstore.orders.transition-chunk-size=1000" })
+class OrderStatusServiceTests {
+
+	@Autowired
+	private OrderStatusService orderStatusService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void singleOrdersOnlyMakePermittedMoves() {
+		Long orderId = orders(Order.OrderStatus.CONFIRMED, 1).get(0);
+
+		assertThat(orderStatusService.transition(orderId, Order.OrderStatus.PROCESSING)).isTrue();
+		assertThatThrownBy(() -> orderStatusService.transition(orderId, Order.OrderStatus.DELIVERED))
+			.isInstanceOf(OrderStatusService.TransitionException.class);
+		assertThatThrownBy(() -> orderStatusService.transition(orderId, Order.OrderStatus.CANCELLED))
+			.isInstanceOf(OrderStatusService.TransitionException.class);
+		assertThat(orderStatusService.transition(orderId, Order.OrderStatus.SHIPPED)).isTrue();
+		assertThat(status(orderId)).isEqualTo(Order.OrderStatus.SHIPPED);
+		assertThat(orderStatusService.transition(-1L, Order.OrderStatus.SHIPPED)).isFalse();
+	}
+
+	@Test
+	void bulkRunMovesEveryOrderInChunks() {
+		List<Long> confirmed = orders(Order.OrderStatus.CONFIRMED, 2500);
+		List<Long> pending = orders(Order.OrderStatus.PENDING, 10);
+		List<OrderTransitionReport> progress = new ArrayList<>();
+		List<Long> lastIds = new ArrayList<>();
+
+		OrderTransitionReport report = orderStatusService.transitionAll(Order.OrderStatus.CONFIRMED,
+				Order.OrderStatus.PROCESSING, 0, chunk -> {
+					progress.add(chunk);
+					lastIds.add(chunk.getLastOrderId());
+				});
+
+		assertThat(report.isDone()).isTrue();
+		assertThat(report.getFailure()).isNull();
+		assertThat(report.getExpected()).isEqualTo(2500);
+		assertThat(report.getTransitioned()).isEqualTo(2500);
+		assertThat(report.getChunks()).isEqualTo(3);
+		assertThat(lastIds).isSorted().endsWith(confirmed.get(confirmed.size() - 1));
+		assertThat(progress).hasSize(3);
+		assertThat(count(Order.OrderStatus.PROCESSING)).isEqualTo(2500);
+		assertThat(count(Order.OrderStatus.CONFIRMED)).isZero();
+		assertThat(pending).allSatisfy(id -> assertThat(status(id)).isEqualTo(Order.OrderStatus.PENDING));
+	}
+
+	@Test
+	void bulkRunResumesAfterAnOrderAndRefusesStockChanges() {
+		List<Long> shipped = orders(Order.OrderStatus.SHIPPED, 20);
+
+		OrderTransitionReport report = orderStatusService.transitionAll(Order.OrderStatus.SHIPPED,
+				Order.OrderStatus.DELIVERED, shipped.get(9), chunk -> {
+				});
+
+		assertThat(report.getTransitioned()).isEqualTo(10);
+		assertThat(status(shipped.get(9))).isEqualTo(Order.OrderStatus.SHIPPED);
+		assertThat(status(shipped.get(10))).isEqualTo(Order.OrderStatus.DELIVERED);
+		assertThatThrownBy(() -> orderStatusService.transitionAll(Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED,
+				0, chunk -> {
+				}))
+			.isInstanceOf(OrderStatusService.TransitionException.class);
+		assertThatThrownBy(() -> orderStatusService.transitionAll(Order.OrderStatus.SHIPPED, Order.OrderStatus.PROCESSING,
+				0, chunk -> {
+				}))
+			.isInstanceOf(OrderStatusService.TransitionException.class);
+	}
+
+	private List<Long> orders(Order.OrderStatus status, int count) {
+		User user = userRepository.save(new User("Status Test", UUID.randomUUID() + "@example.com", null, null));
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rows.add(new Object[] { user.getId(), 10, status.name(), now, now });
+		}
+		jdbcTemplate.batchUpdate(
+				"INSERT INTO orders (user_id, total_amount, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", rows);
+		return jdbcTemplate.queryForList("SELECT id FROM orders WHERE user_id = ? ORDER BY id", Long.class, user.getId());
+	}
+
+	private Order.OrderStatus status(Long orderId) {
+		return Order.OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class,
+				orderId));
+	}
+
+	private long count(Order.OrderStatus status) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE status = ?", Long.class, status.name());
+	}
+
+}
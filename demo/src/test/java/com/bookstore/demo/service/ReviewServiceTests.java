@@ -0,0 +1,143 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.controller.ReviewController;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.BookRatingStats;
+import com.bookstore.demo.entity.Review;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+// Its own database, as the backfill test empties the stats table
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:reviewtest")
+class ReviewServiceTests {
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private ReviewController reviewController;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void statsFollowAddsUpdatesAndDeletes() {
+		Book book = newBook();
+		Review five = reviewService.addReview(newUser(), book, 5, "Loved it");
+		Review three = reviewService.addReview(newUser(), book, 3, "Fine");
+		reviewService.addReview(newUser(), book, 4, "Good");
+
+		assertThat(reviewService.updateReview(three.getId(), 1, "Changed my mind")).isPresent();
+		assertThat(reviewService.deleteReview(five.getId())).isTrue();
+
+		BookRatingStats stats = reviewService.getStats(book.getId());
+		assertThat(stats.getReviewCount()).isEqualTo(2);
+		assertThat(stats.getAverageRating()).isEqualTo(2.5);
+		assertThat(stats.getHistogram()).containsExactly(1L, 0L, 0L, 1L, 0L);
+
+		// A review that is gone leaves the stats alone
+		assertThat(reviewService.deleteReview(five.getId())).isFalse();
+		assertThat(reviewService.updateReview(five.getId(), 2, null)).isEmpty();
+		assertThat(reviewService.getStats(book.getId()).getHistogram()).containsExactly(1L, 0L, 0L, 1L, 0L);
+	}
+
+	@Test
+	void concurrentDeletesOfOneReviewCountItOnce() throws Exception {
+		Book book = newBook();
+		reviewService.addReview(newUser(), book, 2, null);
+		Review deleted = reviewService.addReview(newUser(), book, 5, null);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Boolean> results = new ArrayList<>();
+		try {
+			List<Callable<Boolean>> deletes = Collections.nCopies(threads, () -> reviewService.deleteReview(deleted.getId()));
+			for (Future<Boolean> future : executor.invokeAll(deletes)) {
+				results.add(future.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertThat(results).containsOnlyOnce(true);
+		BookRatingStats stats = reviewService.getStats(book.getId());
+		assertThat(stats.getReviewCount()).isEqualTo(1);
+		assertThat(stats.getHistogram()).containsExactly(0L, 1L, 0L, 0L, 0L);
+	}
+
+	@Test
+	void backfillRebuildsStatsFromReviews() {
+		Book book = newBook();
+		reviewService.addReview(newUser(), book, 4, null);
+		reviewService.addReview(newUser(), book, 5, null);
+		reviewService.addReview(newUser(), book, 5, null);
+		jdbcTemplate.update("DELETE FROM book_rating_stats");
+
+		reviewService.backfillStats();
+
+		BookRatingStats stats = reviewService.getStats(book.getId());
+		assertThat(stats.getReviewCount()).isEqualTo(3);
+		assertThat(stats.getRatingSum()).isEqualTo(14);
+		assertThat(stats.getHistogram()).containsExactly(0L, 0L, 0L, 1L, 2L);
+	}
+
+	@Test
+	void batchStatsKeepTheRequestedOrderAndReportZerosForUnreviewedBooks() {
+		Book reviewed = newBook();
+		Book unreviewed = newBook();
+		reviewService.addReview(newUser(), reviewed, 3, null);
+		reviewService.addReview(newUser(), reviewed, 4, null);
+
+		ResponseEntity<Map<Long, ReviewController.ReviewStats>> response =
+				reviewController.getReviewStatsBatch(List.of(unreviewed.getId(), reviewed.getId()));
+
+		assertThat(response.getBody().keySet()).containsExactly(unreviewed.getId(), reviewed.getId());
+		ReviewController.ReviewStats empty = response.getBody().get(unreviewed.getId());
+		assertThat(empty.getReviewCount()).isZero();
+		assertThat(empty.getHistogram()).containsExactly(0L, 0L, 0L, 0L, 0L);
+		ReviewController.ReviewStats stats = response.getBody().get(reviewed.getId());
+		assertThat(stats.getAverageRating()).isEqualTo(3.5);
+		assertThat(stats.getHistogram()).containsExactly(0L, 0L, 1L, 1L, 0L);
+
+		List<Long> tooMany = new ArrayList<>();
+		for (long id = 1; id <= 501; id++) {
+			tooMany.add(id);
+		}
+		assertThat(reviewController.getReviewStatsBatch(tooMany).getStatusCode().value()).isEqualTo(400);
+	}
+
+	private User newUser() {
+		return userRepository.save(new User("Review Test", UUID.randomUUID() + "@example.com", null, null));
+	}
+
+	private Book newBook() {
+		return bookRepository.save(new Book("Reviewed Book", "Author", "Fiction", 15.0, null, null));
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.bookstore.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.demo.cart.CartStore;
+import com.bookstore.demo.entity.Book;
+import com.bookstore.demo.entity.Order;
+import com.bookstore.demo.entity.User;
+import com.bookstore.demo.repository.BookRepository;
+import com.bookstore.demo.repository.OrderRepository;
+import com.bookstore.demo.repository.UserRepository;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:usertest")
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CartStore cartStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deletingAUserTakesTheirOrdersReservationsAndEventsAlong() {
+		User user = userRepository.save(new User("Deleted User", UUID.randomUUID() + "@example.com", null, null));
+		Book book = bookRepository.save(new Book("Deleted User Book", "Author", "Fiction", 8.0, null, null));
+		inventoryService.setStock(book.getId(), 10);
+		reviewService.addReview(user, book, 5, "Great");
+		cartStore.add(user.getId(), book, 1);
+		// Placed by hand rather than checked out, so payment cannot confirm it first
+		Order order = new Order();
+		order.setUser(user);
+		order.setTotalAmount(new BigDecimal("24.00"));
+		order.setStatus(Order.OrderStatus.PENDING);
+		order = orderRepository.save(order);
+		assertThat(inventoryService.reserve(order.getId(), book.getId(), 3, inventoryService.reservationDeadline())).isTrue();
+		jdbcTemplate.update("INSERT INTO order_outbox (consumer, order_id, payload, attempts, created_at) VALUES (?, ?, ?, 0, ?)",
+				"unregistered", order.getId(), "{}", LocalDateTime.now());
+
+		assertThat(userService.deleteUser(user.getId())).isTrue();
+
+		assertThat(userRepository.existsById(user.getId())).isFalse();
+		assertThat(count("SELECT COUNT(*) FROM orders WHERE user_id = ?", user.getId())).isZero();
+		assertThat(count("SELECT COUNT(*) FROM stock_reservations WHERE order_id = ?", order.getId())).isZero();
+		assertThat(count("SELECT COUNT(*) FROM order_outbox WHERE order_id = ?", order.getId())).isZero();
+		assertThat(count("SELECT COUNT(*) FROM cart_items WHERE user_id = ?", user.getId())).isZero();
+		assertThat(cartStore.getItems(user.getId())).isEmpty();
+		assertThat(reviewService.getStats(book.getId()).getReviewCount()).isZero();
+		// The pending order was cancelled first, so its stock is for sale again
+		assertThat(inventoryService.getStock(book.getId()).getAvailable()).isEqualTo(10);
+	}
+
+	@Test
+	void deletingAMissingUserChangesNothing() {
+		assertThat(userService.deleteUser(-1L)).isFalse();
+	}
+
+	private long count(String sql, Long id) {
+		return jdbcTemplate.queryForObject(sql, Long.class, id);
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.bookstore.demo.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class LongHashMapTests {
+
+	@Test
+	void absentKeysReadAsEmpty() {
+		LongFloatHashMap floats = new LongFloatHashMap();
+		LongObjectHashMap<String> objects = new LongObjectHashMap<>();
+		LongIntHashMap ints = new LongIntHashMap();
+
+		assertThat(floats.get(42)).isZero();
+		assertThat(floats.containsKey(42)).isFalse();
+		assertThat(objects.get(42)).isNull();
+		assertThat(ints.get(42)).isEqualTo(-1);
+		assertThat(floats.size() + objects.size() + ints.size()).isZero();
+	}
+
+	@Test
+	void addAndPutOnAbsentAndPresentKeys() {
+		LongFloatHashMap map = new LongFloatHashMap();
+
+		assertThat(map.add(7, 1.5f)).isEqualTo(1.5f);
+		assertThat(map.add(7, 2f)).isEqualTo(3.5f);
+		map.put(8, 4f);
+		map.put(8, 5f);
+		// Zero is a stored value, not an absent key
+		map.put(0, 0f);
+
+		assertThat(map.get(7)).isEqualTo(3.5f);
+		assertThat(map.get(8)).isEqualTo(5f);
+		assertThat(map.containsKey(0)).isTrue();
+		assertThat(map.size()).isEqualTo(3);
+	}
+
+	@Test
+	void collidingKeysKeepTheirOwnValues() {
+		// Keys that all hash to the same slot of a small table, so each one probes past the others
+		List<Long> colliding = new ArrayList<>();
+		int mask = 15;
+		int slot = LongFloatHashMap.mix(1) & mask;
+		for (long key = 1; colliding.size() < 5; key++) {
+			if ((LongFloatHashMap.mix(key) & mask) == slot) {
+				colliding.add(key);
+			}
+		}
+		LongFloatHashMap floats = new LongFloatHashMap(8);
+		LongObjectHashMap<String> objects = new LongObjectHashMap<>(8);
+		LongIntHashMap ints = new LongIntHashMap(8);
+		for (int i = 0; i < colliding.size(); i++) {
+			floats.put(colliding.get(i), i);
+			objects.put(colliding.get(i), "v" + i);
+			ints.put(colliding.get(i), i);
+		}
+
+		for (int i = 0; i < colliding.size(); i++) {
+			assertThat(floats.get(colliding.get(i))).isEqualTo(i);
+			assertThat(objects.get(colliding.get(i))).isEqualTo("v" + i);
+			assertThat(ints.get(colliding.get(i))).isEqualTo(i);
+		}
+		assertThat(floats.containsKey(colliding.get(colliding.size() - 1) + 1000)).isFalse();
+	}
+
+	@Test
+	void growingPastTheLoadFactorKeepsEveryEntry() {
+		LongFloatHashMap floats = new LongFloatHashMap();
+		LongObjectHashMap<Long> objects = new LongObjectHashMap<>();
+		LongIntHashMap ints = new LongIntHashMap();
+		int entries = 10_000;
+		for (int i = 0; i < entries; i++) {
+			// Spread-out and negative keys, several rehashes from the default capacity
+			long key = i * 1_000_003L - 5_000_000L;
+			floats.add(key, i);
+			objects.put(key, key);
+			ints.put(key, i);
+		}
+
+		assertThat(floats.size()).isEqualTo(entries);
+		assertThat(objects.size()).isEqualTo(entries);
+		assertThat(ints.size()).isEqualTo(entries);
+		Map<Long, Float> seen = new HashMap<>();
+		floats.forEach(seen::put);
+		assertThat(seen).hasSize(entries);
+		for (int i = 0; i < entries; i++) {
+			long key = i * 1_000_003L - 5_000_000L;
+			assertThat(seen.get(key)).isEqualTo(i);
+			assertThat(objects.get(key)).isEqualTo(key);
+			assertThat(ints.get(key)).isEqualTo(i);
+		}
+	}
+
+	@Test
+	void computeIfAbsentCreatesOnceAndNullValuesAreRejected() {
+		LongObjectHashMap<List<Long>> map = new LongObjectHashMap<>();
+
+		map.computeIfAbsent(3, key -> new ArrayList<>()).add(1L);
+		map.computeIfAbsent(3, key -> new ArrayList<>()).add(2L);
+
+		assertThat(map.get(3)).containsExactly(1L, 2L);
+		assertThat(map.put(3, List.of())).containsExactly(1L, 2L);
+		assertThat(map.size()).isEqualTo(1);
+		assertThatThrownBy(() -> map.put(4, null)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
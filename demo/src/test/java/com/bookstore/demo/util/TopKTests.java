@@ -0,0 +1,56 @@
+package com.bookstore.demo.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TopKTests {
+
+	@Test
+	void keepsTheHighestScoresBestFirst() {
+		TopK top = new TopK(3);
+		float[] offered = { 0.5f, 2f, 9f, 1f, 7f, 3f };
+		for (int i = 0; i < offered.length; i++) {
+			top.offer(i + 1, offered[i]);
+		}
+
+		float[] scores = new float[top.size()];
+		assertThat(top.drain(scores)).containsExactly(3L, 5L, 6L);
+		assertThat(scores).containsExactly(9f, 7f, 3f);
+		assertThat(top.size()).isZero();
+	}
+
+	@Test
+	void equalScoresGoToTheLowerId() {
+		TopK top = new TopK(2);
+		top.offer(30, 1f);
+		top.offer(10, 1f);
+		top.offer(20, 1f);
+		top.offer(5, 0.5f);
+
+		assertThat(top.drain()).containsExactly(10L, 20L);
+	}
+
+	@Test
+	void thresholdIsTheWorstRetainedScoreOnceFull() {
+		TopK top = new TopK(2);
+		assertThat(top.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+		top.offer(1, 4f);
+		assertThat(top.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+		top.offer(2, 6f);
+		assertThat(top.threshold()).isEqualTo(4f);
+		top.offer(3, 5f);
+		assertThat(top.threshold()).isEqualTo(5f);
+		top.offer(4, 1f);
+		assertThat(top.threshold()).isEqualTo(5f);
+	}
+
+	@Test
+	void emptyAndZeroSizedHeapsDrainToNothing() {
+		assertThat(new TopK(5).drain()).isEmpty();
+		TopK none = new TopK(0);
+		none.offer(1, 100f);
+		assertThat(none.drain()).isEmpty();
+	}
+
+}
@@ -5,6 +5,9 @@ const API = axios.create({
 })
 
 export const searchBooks = (q) => API.get('/books', { params: { q } })
+export const suggestBooks = (q, limit=8) => API.get('/books/suggest', { params: { q, limit } })
+export const getBestsellers = (limit=8) => API.get('/books/bestsellers', { params: { limit } })
+export const getTrending = (limit=8) => API.get('/books/trending', { params: { limit } })
 export const getBook = (id) => API.get(`/books/${id}`)
 export const getReviews = (bookId) => API.get(`/reviews/book/${bookId}`)
 export const addReview = (payload) => API.post('/reviews', payload)
@@ -12,5 +15,6 @@ export const getCart = (userId) => API.get(`/cart/${userId}`)
 export const addToCart = (userId, payload) => API.post(`/cart/${userId}`, payload)
 export const removeFromCart = (userId, itemId) => API.delete(`/cart/${userId}/${itemId}`)
 export const clearCart = (userId) => API.delete(`/cart/${userId}`)
-export const checkout = (userId, payload) => API.post(`/orders/${userId}/checkout`, payload)
+export const checkout = (userId, payload, idempotencyKey) => API.post(`/orders/${userId}/checkout`, payload,
+  idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : undefined)
 export const getRecommendations = (userId, limit=8) => API.get(`/recommendations/${userId}`, { params: { limit } })
@@ -1,4 +1,4 @@
-import { useState } from 'react'
+import { useRef, useState } from 'react'
 import { checkout, getCart } from '../api'
 import { useCart } from '../context/CartContext'
 
@@ -9,6 +9,8 @@ export default function CheckoutFixed() {
   const [shippingAddress, setShippingAddress] = useState('123 Demo Street, Demo City')
   const [showUPIPayment, setShowUPIPayment] = useState(false)
   const [paymentStatus, setPaymentStatus] = useState('pending')
+  // Idempotency key of the last unfinished attempt, reused when the same payment is retried
+  const attempt = useRef(null)
 
   // Calculate total amount
   const total = cart.items?.reduce((sum, item) => sum + (item.book?.price * item.quantity), 0) || 0
@@ -27,7 +29,12 @@ export default function CheckoutFixed() {
         }
       }
 
-      const res = await checkout(USER_ID, paymentData)
+      const body = JSON.stringify(paymentData)
+      if (!attempt.current || attempt.current.body !== body) {
+        attempt.current = { key: crypto.randomUUID(), body }
+      }
+      const res = await checkout(USER_ID, paymentData, attempt.current.key)
+      attempt.current = null
       setStatus(`${res.data.status} via ${res.data.paymentProvider} (${res.data.paymentReference})`)
       setPaymentStatus('success')
 
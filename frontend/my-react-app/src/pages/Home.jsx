@@ -1,12 +1,15 @@
 import { useEffect, useState } from 'react'
-import { getRecommendations, searchBooks } from '../api'
+import { getBestsellers, getRecommendations, getTrending, searchBooks, suggestBooks } from '../api'
 import BookCard from '../components/BookCard'
 
 export default function Home() {
   const [q, setQ] = useState('')
   const [books, setBooks] = useState([])
   const [recs, setRecs] = useState([])
+  const [trending, setTrending] = useState([])
+  const [bestsellers, setBestsellers] = useState([])
   const [loading, setLoading] = useState(true)
+  const [suggestions, setSuggestions] = useState([])
 
   useEffect(() => {
     Promise.all([
@@ -17,6 +20,14 @@ export default function Home() {
         console.error('Error loading books:', err)
         setBooks([]) // Set empty array on error
       }),
+      getTrending().then(res => setTrending(res.data)).catch(err => {
+        console.error('Error loading trending books:', err)
+        setTrending([])
+      }),
+      getBestsellers().then(res => setBestsellers(res.data)).catch(err => {
+        console.error('Error loading bestsellers:', err)
+        setBestsellers([])
+      }),
       getRecommendations(1).then(res => {
         console.log('Recommendations loaded:', res.data.length)
         setRecs(res.data)
@@ -27,6 +38,18 @@ export default function Home() {
     ]).finally(() => setLoading(false))
   }, [])
 
+  // Typeahead: suggestions come from an in-memory index, fetched once typing pauses briefly
+  useEffect(() => {
+    if (!q.trim()) {
+      setSuggestions([])
+      return
+    }
+    const timer = setTimeout(() => {
+      suggestBooks(q).then(res => setSuggestions(res.data)).catch(() => setSuggestions([]))
+    }, 100)
+    return () => clearTimeout(timer)
+  }, [q])
+
   const onSearch = async (e) => {
     e.preventDefault()
     const res = await searchBooks(q)
@@ -65,7 +88,11 @@ export default function Home() {
                   onChange={e=>setQ(e.target.value)}
                   placeholder="Search books, authors, categories..."
                   className="hero-search-input"
+                  list="book-suggestions"
                 />
+                <datalist id="book-suggestions">
+                  {suggestions.map(s => <option key={s.type + s.text} value={s.text} />)}
+                </datalist>
                 <button type="submit" className="hero-search-button">
                   🔍 Search
                 </button>
@@ -75,6 +102,31 @@ export default function Home() {
         </div>
       </div>
 
+      {/* Popularity Sections: ranked by recent activity, hidden until there is some */}
+      {trending.length > 0 && (
+        <section className="recommendations-section">
+          <h2 className="section-title">
+            <span className="section-icon">🔥</span>
+            Trending Now
+          </h2>
+          <div className="books-grid">
+            {trending.map(b => <BookCard key={b.id} book={b} />)}
+          </div>
+        </section>
+      )}
+
+      {bestsellers.length > 0 && (
+        <section className="recommendations-section">
+          <h2 className="section-title">
+            <span className="section-icon">🏆</span>
+            Bestsellers
+          </h2>
+          <div className="books-grid">
+            {bestsellers.map(b => <BookCard key={b.id} book={b} />)}
+          </div>
+        </section>
+      )}
+
       {/* Recommendations Section */}
       <section className="recommendations-section">
         <h2 className="section-title">